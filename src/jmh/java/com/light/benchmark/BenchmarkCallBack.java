@@ -0,0 +1,25 @@
+package com.light.benchmark;
+
+import com.light.client.SyncCallBack;
+
+/**
+ * callback of {@code BenchmarkClient.echoCallBack}, the benchmark thread finds the one it just created and waits on it
+ *
+ * @author lihb
+ */
+public class BenchmarkCallBack extends SyncCallBack {
+    private static final ThreadLocal<BenchmarkCallBack> LAST = new ThreadLocal<>();
+
+    public BenchmarkCallBack() {
+        LAST.set(this);
+    }
+
+    /**
+     * obtain the callback last created by the current thread
+     *
+     * @return callback
+     */
+    static BenchmarkCallBack last() {
+        return LAST.get();
+    }
+}
@@ -0,0 +1,25 @@
+package com.light.benchmark;
+
+import com.light.common.Async;
+import com.light.common.Remote;
+import com.light.common.Sync;
+
+/**
+ * sync view of {@code BenchmarkService} on client side
+ *
+ * @author lihb
+ */
+@Remote(identifier = BenchmarkService.IDENTIFIER)
+public interface BenchmarkClient {
+    @Sync
+    byte[] echo(byte[] payload);
+
+    @Sync
+    void ping();
+
+    /**
+     * the result is handed to a {@code BenchmarkCallBack} created on the calling thread
+     */
+    @Async(callBack = BenchmarkCallBack.class)
+    byte[] echoCallBack(byte[] payload);
+}
@@ -0,0 +1,15 @@
+package com.light.benchmark;
+
+import com.light.common.Remote;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * async view of {@code BenchmarkService} on client side
+ *
+ * @author lihb
+ */
+@Remote(identifier = BenchmarkService.IDENTIFIER)
+public interface BenchmarkFutureClient {
+    CompletableFuture<byte[]> echo(byte[] payload);
+}
@@ -0,0 +1,21 @@
+package com.light.benchmark;
+
+import com.light.common.Instance;
+import com.light.common.Remote;
+
+/**
+ * remote call interface served by benchmarks
+ *
+ * @author lihb
+ */
+@Remote(identifier = BenchmarkService.IDENTIFIER)
+@Instance(instanceClass = BenchmarkServiceImpl.class)
+public interface BenchmarkService {
+    int IDENTIFIER = 1000;
+
+    byte[] echo(byte[] payload);
+
+    byte[] echoCallBack(byte[] payload);
+
+    void ping();
+}
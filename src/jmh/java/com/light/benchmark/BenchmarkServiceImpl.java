@@ -0,0 +1,22 @@
+package com.light.benchmark;
+
+/**
+ * instance of {@code BenchmarkService}
+ *
+ * @author lihb
+ */
+public class BenchmarkServiceImpl implements BenchmarkService {
+    @Override
+    public byte[] echo(byte[] payload) {
+        return payload;
+    }
+
+    @Override
+    public byte[] echoCallBack(byte[] payload) {
+        return payload;
+    }
+
+    @Override
+    public void ping() {
+    }
+}
@@ -0,0 +1,97 @@
+package com.light.benchmark;
+
+import com.light.codec.FrameDecoder;
+import com.light.codec.RequestDecoder;
+import com.light.codec.RequestEncoder;
+import com.light.common.Constant;
+import com.light.common.Request;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * encoding requests into frames and decoding them back, through netty pipelines without a socket
+ *
+ * @author lihb
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CodecBenchmark {
+    @Param({"16", "1024", "65536"})
+    private int payloadSize;
+    @Param({"1", "4"})
+    private int argNum;
+    /**
+     * 0 sends arguments as they are, random arguments are the worst case for compression
+     */
+    @Param({"0", "1024"})
+    private int compressThreshold;
+
+    private EmbeddedChannel encodeChannel;
+    private EmbeddedChannel decodeChannel;
+    private Request request;
+    private ByteBuf frame;
+
+    @Setup
+    public void setUp() {
+        List<byte[]> args = new ArrayList<>(argNum);
+        for (int i = 0; i < argNum; i++) {
+            byte[] arg = new byte[payloadSize];
+            ThreadLocalRandom.current().nextBytes(arg);
+            args.add(arg);
+        }
+        request = new Request();
+        request.setMsgId(1);
+        request.setRemoteCallInterfaceId(BenchmarkService.IDENTIFIER);
+        request.setMethodId(1);
+        request.setCompressThreshold(compressThreshold);
+        request.setArgs(args);
+        encodeChannel = new EmbeddedChannel(new RequestEncoder(Constant.DEFAULT_MAX_FRAME_LENGTH));
+        encodeChannel.config().setOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT);
+        decodeChannel = new EmbeddedChannel(new FrameDecoder(Constant.DEFAULT_MAX_FRAME_LENGTH), new RequestDecoder(Constant.DEFAULT_MAX_FRAME_LENGTH));
+        decodeChannel.config().setOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT);
+        encodeChannel.writeOutbound(request);
+        ByteBuf encoded = encodeChannel.readOutbound();
+        frame = PooledByteBufAllocator.DEFAULT.directBuffer(encoded.readableBytes());
+        frame.writeBytes(encoded);
+        encoded.release();
+    }
+
+    @TearDown
+    public void tearDown() {
+        frame.release();
+        encodeChannel.finishAndReleaseAll();
+        decodeChannel.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    public int encodeRequest() {
+        encodeChannel.writeOutbound(request);
+        ByteBuf encoded = encodeChannel.readOutbound();
+        int length = encoded.readableBytes();
+        encoded.release();
+        return length;
+    }
+
+    @Benchmark
+    public Request decodeRequest() {
+        decodeChannel.writeInbound(frame.retainedDuplicate());
+        return decodeChannel.readInbound();
+    }
+}
@@ -0,0 +1,67 @@
+package com.light.benchmark;
+
+import com.light.client.RemoteCallClient;
+import com.light.common.TransportType;
+import com.light.server.RemoteCallServer;
+
+/**
+ * a server and a client connected to it in the same JVM
+ *
+ * @author lihb
+ */
+final class Loopback {
+    private static final int LOCAL_PORT = 1;
+
+    final RemoteCallServer server;
+    final RemoteCallClient client;
+
+    /**
+     * start a server and a client
+     *
+     * @param transportType      transport of both sides
+     * @param copyLocalArguments whether arguments are copied over the local transport
+     * @throws InterruptedException if interrupted while starting
+     */
+    Loopback(TransportType transportType, boolean copyLocalArguments) throws InterruptedException {
+        this(transportType, copyLocalArguments, true);
+    }
+
+    /**
+     * start a server and a client
+     *
+     * @param transportType           transport of both sides
+     * @param copyLocalArguments      whether arguments are copied over the local transport
+     * @param generatedClassesEnabled whether generated stubs and dispatchers are used instead of proxies
+     * @throws InterruptedException if interrupted while starting
+     */
+    Loopback(TransportType transportType, boolean copyLocalArguments, boolean generatedClassesEnabled) throws InterruptedException {
+        String scanPackage = Loopback.class.getPackage().getName();
+        RemoteCallServer.RemoteCallServerBuilder serverBuilder = RemoteCallServer.newBuilder();
+        serverBuilder.setAutoScanPackage(scanPackage);
+        // a port picked by the system, so benchmarks do not collide with whatever listens on a fixed one,
+        // the local transport only names its address by the port
+        serverBuilder.setPort(transportType == TransportType.LOCAL ? LOCAL_PORT : 0);
+        serverBuilder.setTransportType(transportType);
+        server = serverBuilder.build();
+        server.getProxyCenter().setGeneratedClassesEnabled(generatedClassesEnabled);
+        server.start();
+        RemoteCallClient.RemoteCallClientBuilder clientBuilder = RemoteCallClient.newBuilder();
+        clientBuilder.setAutoScanPackage(scanPackage);
+        clientBuilder.setRemoteServer("127.0.0.1");
+        clientBuilder.setPort(server.getBoundPort());
+        clientBuilder.setTransportType(transportType);
+        clientBuilder.setCopyLocalArguments(copyLocalArguments);
+        client = clientBuilder.build();
+        client.getProxyCenter().setGeneratedClassesEnabled(generatedClassesEnabled);
+        client.start();
+    }
+
+    <T> T proxy(Class<T> remoteCallInterface) {
+        return remoteCallInterface.cast(client.getProxyCenter().getProxy(remoteCallInterface));
+    }
+
+    void stop() {
+        client.stop();
+        server.stop();
+    }
+}
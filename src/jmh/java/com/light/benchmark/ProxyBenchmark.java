@@ -0,0 +1,57 @@
+package com.light.benchmark;
+
+import com.light.common.TransportType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * overhead of a proxy call with as little else as possible: no arguments, the local transport
+ * and nothing serialized. {@code direct} calls the instance itself as baseline.
+ * {@code generated} switches between the stub and dispatcher generated by {@code RemoteProcessor}
+ * and a dynamic proxy with method handles
+ *
+ * @author lihb
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ProxyBenchmark {
+    @Param({"true", "false"})
+    private boolean generated;
+
+    private Loopback loopback;
+    private BenchmarkClient client;
+    private BenchmarkService instance;
+
+    @Setup(Level.Trial)
+    public void setUp() throws InterruptedException {
+        loopback = new Loopback(TransportType.LOCAL, false, generated);
+        client = loopback.proxy(BenchmarkClient.class);
+        instance = new BenchmarkServiceImpl();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        loopback.stop();
+    }
+
+    @Benchmark
+    public void proxy() {
+        client.ping();
+    }
+
+    @Benchmark
+    public void direct() {
+        instance.ping();
+    }
+}
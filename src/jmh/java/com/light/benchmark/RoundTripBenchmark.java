@@ -0,0 +1,98 @@
+package com.light.benchmark;
+
+import com.light.common.TransportType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * end-to-end remote calls through proxies, serializers, codecs and the transport
+ *
+ * @author lihb
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RoundTripBenchmark {
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    @Param({"AUTO", "LOCAL"})
+    private TransportType transportType;
+    @Param({"16", "1024", "65536"})
+    private int payloadSize;
+
+    private Loopback loopback;
+    private BenchmarkClient client;
+    private BenchmarkFutureClient futureClient;
+    private byte[] payload;
+
+    @Setup(Level.Trial)
+    public void setUp() throws InterruptedException {
+        loopback = new Loopback(transportType, true);
+        client = loopback.proxy(BenchmarkClient.class);
+        futureClient = loopback.proxy(BenchmarkFutureClient.class);
+        payload = new byte[payloadSize];
+        ThreadLocalRandom.current().nextBytes(payload);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        loopback.stop();
+    }
+
+    @Benchmark
+    public byte[] sync() {
+        return client.echo(payload);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public byte[] syncContended() {
+        return client.echo(payload);
+    }
+
+    @Benchmark
+    public byte[] future() {
+        return futureClient.echo(payload).join();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public byte[] futureContended() {
+        return futureClient.echo(payload).join();
+    }
+
+    @Benchmark
+    public Object callBack() throws InterruptedException {
+        return awaitCallBack();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Object callBackContended() throws InterruptedException {
+        return awaitCallBack();
+    }
+
+    /**
+     * call through {@code Async} and wait for the callback, which the proxy created on this thread
+     */
+    private Object awaitCallBack() throws InterruptedException {
+        client.echoCallBack(payload);
+        BenchmarkCallBack callBack = BenchmarkCallBack.last();
+        if (!callBack.await(TIMEOUT_MILLIS) || callBack.getCause() != null) {
+            throw new IllegalStateException("remote call failed", callBack.getCause());
+        }
+        return callBack.getReturnValue();
+    }
+}
@@ -0,0 +1,96 @@
+package com.light.benchmark;
+
+import com.light.serializer.CompactSerializer;
+import com.light.serializer.JavaSerializer;
+import com.light.serializer.ProtobufSerializer;
+import com.light.serializer.Serializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * serializing and deserializing a argument
+ *
+ * @author lihb
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SerializerBenchmark {
+    @Param({"compact", "protobuf", "java"})
+    private String serializerName;
+    @Param({"16", "1024", "65536"})
+    private int payloadSize;
+
+    private Serializer serializer;
+    private byte[] bytes;
+    private String string;
+    private int[] ints;
+    private byte[] serializedBytes;
+    private byte[] serializedString;
+    private byte[] serializedInts;
+
+    @Setup
+    public void setUp() throws IOException {
+        switch (serializerName) {
+            case "compact":
+                serializer = new CompactSerializer();
+                break;
+            case "protobuf":
+                serializer = new ProtobufSerializer();
+                break;
+            default:
+                serializer = new JavaSerializer();
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        bytes = new byte[payloadSize];
+        random.nextBytes(bytes);
+        char[] chars = new char[payloadSize];
+        Arrays.fill(chars, 'x');
+        string = new String(chars);
+        ints = random.ints(payloadSize / 4).toArray();
+        serializedBytes = serializer.serialize(bytes);
+        serializedString = serializer.serialize(string);
+        serializedInts = serializer.serialize(ints);
+    }
+
+    @Benchmark
+    public byte[] serializeBytes() throws IOException {
+        return serializer.serialize(bytes);
+    }
+
+    @Benchmark
+    public byte[] serializeString() throws IOException {
+        return serializer.serialize(string);
+    }
+
+    @Benchmark
+    public byte[] serializeInts() throws IOException {
+        return serializer.serialize(ints);
+    }
+
+    @Benchmark
+    public Object deserializeBytes() throws IOException {
+        return serializer.deserialize(serializedBytes, byte[].class);
+    }
+
+    @Benchmark
+    public Object deserializeString() throws IOException {
+        return serializer.deserialize(serializedString, String.class);
+    }
+
+    @Benchmark
+    public Object deserializeInts() throws IOException {
+        return serializer.deserialize(serializedInts, int[].class);
+    }
+}
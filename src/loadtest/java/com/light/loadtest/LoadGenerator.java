@@ -0,0 +1,179 @@
+package com.light.loadtest;
+
+import com.light.client.RemoteCallClient;
+import com.light.server.RemoteCallServer;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * drive a {@code RemoteCallServer} at a fixed arrival rate and report latency percentiles over time.
+ * calls are issued on schedule whether or not earlier ones returned (open model),
+ * and latency is measured from the scheduled start, so a stalled server is not hidden by coordinated omission
+ *
+ * @author lihb
+ */
+public final class LoadGenerator {
+    /**
+     * calls whose schedule is closer than this are sent by spinning instead of parking
+     */
+    private static final long SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final LoadOptions options;
+    private final Recorder recorder = new Recorder(3);
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong outstanding = new AtomicLong();
+    private volatile boolean running = true;
+
+    private LoadGenerator(LoadOptions options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new LoadGenerator(LoadOptions.parse(args)).run();
+    }
+
+    private void run() throws Exception {
+        RemoteCallServer server = options.host == null ? startServer() : null;
+        String host = options.host == null ? "127.0.0.1" : options.host;
+        RemoteCallClient[] clients = new RemoteCallClient[options.clients];
+        Thread[] senders = new Thread[options.clients];
+        byte[] payload = new byte[options.payloadSize];
+        ThreadLocalRandom.current().nextBytes(payload);
+        for (int i = 0; i < clients.length; i++) {
+            clients[i] = startClient(host);
+        }
+        long periodNanos = TimeUnit.SECONDS.toNanos(options.clients) / options.rate;
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < clients.length; i++) {
+            LoadTestClient proxy = (LoadTestClient) clients[i].getProxyCenter().getProxy(LoadTestClient.class);
+            // spread the schedules of clients evenly over one period
+            long offsetNanos = periodNanos * i / clients.length;
+            senders[i] = new Thread(() -> send(proxy, payload, startNanos + offsetNanos, periodNanos), "load-sender-" + i);
+            senders[i].start();
+        }
+        System.out.printf("driving %s:%d at %d calls/s with %d clients, payload %d bytes%n",
+                host, options.port, options.rate, options.clients, options.payloadSize);
+        System.out.printf("%8s %10s %10s %10s %10s %10s %8s %10s%n",
+                "time(s)", "calls/s", "p50(us)", "p99(us)", "p99.9(us)", "max(us)", "errors", "pending");
+        Histogram total = new Histogram(3);
+        Histogram interval = null;
+        int seconds = 0;
+        while (seconds < options.warmupSeconds + options.durationSeconds) {
+            Thread.sleep(TimeUnit.SECONDS.toMillis(options.intervalSeconds));
+            seconds += options.intervalSeconds;
+            interval = recorder.getIntervalHistogram(interval);
+            report(seconds, interval);
+            if (seconds > options.warmupSeconds) {
+                total.add(interval);
+            }
+        }
+        running = false;
+        for (Thread sender : senders) {
+            sender.join();
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (outstanding.get() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        summarize(total);
+        for (RemoteCallClient client : clients) {
+            client.stop();
+        }
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    /**
+     * issue calls on a fixed schedule until stopped
+     */
+    private void send(LoadTestClient proxy, byte[] payload, long firstNanos, long periodNanos) {
+        long intendedNanos = firstNanos;
+        while (running) {
+            long waitNanos = intendedNanos - System.nanoTime();
+            if (waitNanos > SPIN_NANOS) {
+                LockSupport.parkNanos(waitNanos - SPIN_NANOS);
+                continue;
+            }
+            while (System.nanoTime() < intendedNanos) {
+                Thread.onSpinWait();
+            }
+            long scheduledNanos = intendedNanos;
+            outstanding.incrementAndGet();
+            try {
+                proxy.echo(payload).whenComplete((result, cause) -> {
+                    outstanding.decrementAndGet();
+                    if (cause != null) {
+                        errors.incrementAndGet();
+                    } else {
+                        recorder.recordValue(System.nanoTime() - scheduledNanos);
+                    }
+                });
+            } catch (RuntimeException e) {
+                outstanding.decrementAndGet();
+                errors.incrementAndGet();
+            }
+            intendedNanos += periodNanos;
+        }
+    }
+
+    private void report(int seconds, Histogram interval) {
+        System.out.printf("%8d %10.0f %10.1f %10.1f %10.1f %10.1f %8d %10d%n", seconds,
+                (double) interval.getTotalCount() / options.intervalSeconds,
+                micros(interval.getValueAtPercentile(50)), micros(interval.getValueAtPercentile(99)),
+                micros(interval.getValueAtPercentile(99.9)), micros(interval.getMaxValue()),
+                errors.get(), outstanding.get());
+    }
+
+    private void summarize(Histogram total) throws FileNotFoundException {
+        System.out.printf("%nafter %d s warmup, %d calls in %d s: %.0f calls/s, %d errors%n",
+                options.warmupSeconds, total.getTotalCount(), options.durationSeconds,
+                (double) total.getTotalCount() / options.durationSeconds, errors.get());
+        System.out.printf("p50 %.1f us, p99 %.1f us, p99.9 %.1f us, p99.99 %.1f us, max %.1f us%n",
+                micros(total.getValueAtPercentile(50)), micros(total.getValueAtPercentile(99)),
+                micros(total.getValueAtPercentile(99.9)), micros(total.getValueAtPercentile(99.99)),
+                micros(total.getMaxValue()));
+        if (options.output != null) {
+            try (PrintStream out = new PrintStream(options.output)) {
+                total.outputPercentileDistribution(out, 1000.0);
+            }
+            System.out.printf("percentile distribution written to %s%n", options.output);
+        }
+    }
+
+    private RemoteCallServer startServer() throws InterruptedException {
+        RemoteCallServer.RemoteCallServerBuilder builder = RemoteCallServer.newBuilder();
+        builder.setAutoScanPackage(LoadGenerator.class.getPackage().getName());
+        builder.setPort(options.port);
+        builder.setTransportType(options.transportType);
+        if (options.serverWorkerThreads > 0) {
+            builder.setWorkerGroupThreadNum(options.serverWorkerThreads);
+        }
+        RemoteCallServer server = builder.build();
+        server.start();
+        return server;
+    }
+
+    private RemoteCallClient startClient(String host) throws InterruptedException {
+        RemoteCallClient.RemoteCallClientBuilder builder = RemoteCallClient.newBuilder();
+        builder.setAutoScanPackage(LoadGenerator.class.getPackage().getName());
+        builder.setRemoteServer(host);
+        builder.setPort(options.port);
+        builder.setTransportType(options.transportType);
+        builder.setConnectionNum(options.connections);
+        RemoteCallClient client = builder.build();
+        client.start();
+        return client;
+    }
+
+    private static double micros(long nanos) {
+        return nanos / 1000.0;
+    }
+}
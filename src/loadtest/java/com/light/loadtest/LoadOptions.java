@@ -0,0 +1,90 @@
+package com.light.loadtest;
+
+import com.light.common.TransportType;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * options of {@code LoadGenerator}, given as {@code --name=value} arguments
+ *
+ * @author lihb
+ */
+final class LoadOptions {
+    /**
+     * remote server to drive, a server is started in this JVM if absent
+     */
+    String host;
+    int port = 19290;
+    TransportType transportType = TransportType.AUTO;
+    /**
+     * number of {@code RemoteCallClient}s
+     */
+    int clients = 1;
+    /**
+     * connections of each client
+     */
+    int connections = 1;
+    /**
+     * calls per second summed over all clients
+     */
+    int rate = 10000;
+    int payloadSize = 64;
+    int warmupSeconds = 10;
+    int durationSeconds = 60;
+    int intervalSeconds = 1;
+    /**
+     * worker threads of the started server, 0 means the netty default
+     */
+    int serverWorkerThreads;
+    /**
+     * file the percentile distribution of the whole run is written to
+     */
+    String output;
+
+    static LoadOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException(String.format("expect --name=value but got %s", arg));
+            }
+            values.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        LoadOptions options = new LoadOptions();
+        options.host = values.remove("host");
+        options.output = values.remove("output");
+        if (values.containsKey("transport")) {
+            options.transportType = TransportType.valueOf(values.remove("transport").toUpperCase());
+        }
+        options.port = positive(values, "port", options.port);
+        options.clients = positive(values, "clients", options.clients);
+        options.connections = positive(values, "connections", options.connections);
+        options.rate = positive(values, "rate", options.rate);
+        options.payloadSize = positive(values, "payload", options.payloadSize);
+        options.warmupSeconds = number(values, "warmup", options.warmupSeconds, 0);
+        options.durationSeconds = positive(values, "duration", options.durationSeconds);
+        options.intervalSeconds = positive(values, "interval", options.intervalSeconds);
+        options.serverWorkerThreads = positive(values, "serverThreads", options.serverWorkerThreads);
+        if (!values.isEmpty()) {
+            throw new IllegalArgumentException(String.format("unknown options %s", values.keySet()));
+        }
+        return options;
+    }
+
+    private static int positive(Map<String, String> values, String name, int defaultValue) {
+        return number(values, name, defaultValue, 1);
+    }
+
+    private static int number(Map<String, String> values, String name, int defaultValue, int min) {
+        String value = values.remove(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        int number = Integer.parseInt(value);
+        if (number < min) {
+            throw new IllegalArgumentException(String.format("%s should not be less than %d", name, min));
+        }
+        return number;
+    }
+}
@@ -0,0 +1,15 @@
+package com.light.loadtest;
+
+import com.light.common.Remote;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * view of {@code LoadTestService} on client side, calls never block the load generator
+ *
+ * @author lihb
+ */
+@Remote(identifier = LoadTestService.IDENTIFIER)
+public interface LoadTestClient {
+    CompletableFuture<byte[]> echo(byte[] payload);
+}
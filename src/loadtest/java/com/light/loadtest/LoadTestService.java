@@ -0,0 +1,17 @@
+package com.light.loadtest;
+
+import com.light.common.Instance;
+import com.light.common.Remote;
+
+/**
+ * remote call interface served under load
+ *
+ * @author lihb
+ */
+@Remote(identifier = LoadTestService.IDENTIFIER)
+@Instance(instanceClass = LoadTestServiceImpl.class)
+public interface LoadTestService {
+    int IDENTIFIER = 2000;
+
+    byte[] echo(byte[] payload);
+}
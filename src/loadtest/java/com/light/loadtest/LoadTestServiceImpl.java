@@ -0,0 +1,13 @@
+package com.light.loadtest;
+
+/**
+ * instance of {@code LoadTestService}
+ *
+ * @author lihb
+ */
+public class LoadTestServiceImpl implements LoadTestService {
+    @Override
+    public byte[] echo(byte[] payload) {
+        return payload;
+    }
+}
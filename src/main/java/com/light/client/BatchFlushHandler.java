@@ -0,0 +1,69 @@
+package com.light.client;
+
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * coalesce requests written without flush into batched flushes.
+ * a flush is issued once {@code batchSize} requests are written, otherwise at the end of the current
+ * event loop tick, or {@code flushDelayMicros} after the first unflushed request if that is positive.
+ * all state is touched on the event loop only, so writes coming from many threads need no locking
+ *
+ * @author lihb
+ */
+class BatchFlushHandler extends ChannelDuplexHandler {
+    private final int batchSize;
+    private final long flushDelayMicros;
+    /**
+     * requests written since last flush
+     */
+    private int unflushed;
+    private boolean flushScheduled;
+    private ChannelHandlerContext ctx;
+    private final Runnable flushTask = () -> {
+        flushScheduled = false;
+        if (unflushed > 0) {
+            flush(ctx);
+        }
+    };
+
+    BatchFlushHandler(int batchSize, long flushDelayMicros) {
+        this.batchSize = batchSize;
+        this.flushDelayMicros = flushDelayMicros;
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+        this.ctx = ctx;
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        ctx.write(msg, promise);
+        if (++unflushed >= batchSize) {
+            flush(ctx);
+        } else if (!flushScheduled) {
+            flushScheduled = true;
+            if (flushDelayMicros > 0) {
+                ctx.executor().schedule(flushTask, flushDelayMicros, TimeUnit.MICROSECONDS);
+            } else {
+                ctx.executor().execute(flushTask);
+            }
+        }
+    }
+
+    @Override
+    public void flush(ChannelHandlerContext ctx) {
+        unflushed = 0;
+        ctx.flush();
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        unflushed = 0;
+        super.channelInactive(ctx);
+    }
+}
@@ -13,6 +13,16 @@ public interface CallBack {
      */
     void onReceive(Object result);
 
+    /**
+     * called when a remote call failed.
+     * by default the cause is received as the result
+     *
+     * @param cause cause of the failure
+     */
+    default void onError(Throwable cause) {
+        onReceive(cause);
+    }
+
     /**
      * obtain the result of a remote call
      */
@@ -0,0 +1,68 @@
+package com.light.client;
+
+/**
+ * options of the remote calls made by the current thread within a scope, overriding what annotations assign.
+ * <pre>
+ * try (CallOptions options = CallOptions.timeout(200)) {
+ *     proxy.call();
+ * }
+ * </pre>
+ * scopes nest, closing one restores the options of the enclosing scope
+ *
+ * @author lihb
+ */
+public final class CallOptions implements AutoCloseable {
+    private static final ThreadLocal<CallOptions> CURRENT = new ThreadLocal<>();
+    /**
+     * max milliseconds to wait for the result of a call
+     */
+    private final long timeoutMillis;
+    /**
+     * options of the enclosing scope, null if there is none
+     */
+    private final CallOptions previous;
+
+    private CallOptions(long timeoutMillis, CallOptions previous) {
+        this.timeoutMillis = timeoutMillis;
+        this.previous = previous;
+    }
+
+    /**
+     * open a scope in which calls time out after the given milliseconds,
+     * the server does not run calls it receives once that time passed
+     *
+     * @param timeoutMillis max milliseconds to wait for the result of a call
+     * @return the scope, which must be closed by the thread that opened it
+     */
+    public static CallOptions timeout(long timeoutMillis) {
+        if (timeoutMillis <= 0) {
+            throw new RuntimeException("timeoutMillis should be a positive number");
+        }
+        CallOptions options = new CallOptions(timeoutMillis, CURRENT.get());
+        CURRENT.set(options);
+        return options;
+    }
+
+    /**
+     * timeout of the innermost scope of the current thread
+     *
+     * @return milliseconds, 0 outside any scope
+     */
+    static long currentTimeoutMillis() {
+        CallOptions options = CURRENT.get();
+        return options == null ? 0 : options.timeoutMillis;
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    @Override
+    public void close() {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.light.client;
+
+import com.light.common.Request;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.util.AttributeKey;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * one pooled connection of {@code RemoteCallClient}.
+ * it outlives its channel, when the channel drops a new one is connected on next use.
+ * a connection has room for a request while fewer than its capacity of requests are pending and its channel is writable,
+ * requests that found no room wait here, either in a queue or as blocked senders
+ *
+ * @author lihb
+ */
+final class Connection {
+    /**
+     * connection a channel belongs to
+     */
+    static final AttributeKey<Connection> CONNECTION_KEY = AttributeKey.valueOf(Connection.class.getName());
+    /**
+     * message ids carry the index of their connection in the bits above this
+     */
+    static final int INDEX_SHIFT = 48;
+
+    /**
+     * bootstrap with the remote address assigned
+     */
+    private final Bootstrap bootstrap;
+    /**
+     * requests sent on this connection waiting for responses
+     */
+    final PendingCallTable pendingCallTable;
+    private final RemoteCallClient client;
+    private volatile Channel channel;
+    private ChannelFuture connectFuture;
+    /**
+     * requests waiting for room under {@code OverloadPolicy.QUEUE}, only taken by the event loop of the channel
+     */
+    private final Queue<QueuedRequest> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queuedNum = new AtomicInteger();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final Runnable drainTask = this::drain;
+    /**
+     * senders waiting for room under {@code OverloadPolicy.BLOCK}
+     */
+    private final ReentrantLock roomLock = new ReentrantLock();
+    private final Condition roomFreed = roomLock.newCondition();
+    private volatile int roomWaiters;
+
+    Connection(int index, Bootstrap bootstrap, int maxPendingRequests, RemoteCallClient client) {
+        this.bootstrap = bootstrap.clone().attr(CONNECTION_KEY, this);
+        this.pendingCallTable = new PendingCallTable(maxPendingRequests, (long) index << INDEX_SHIFT, this::signalRoom);
+        this.client = client;
+    }
+
+    /**
+     * connect unless already connected or connecting
+     *
+     * @return future of the ongoing or last connect
+     */
+    synchronized ChannelFuture connect() {
+        if (connectFuture != null && (!connectFuture.isDone() || isActive())) {
+            return connectFuture;
+        }
+        ChannelFuture future = bootstrap.connect();
+        channel = future.channel();
+        connectFuture = future;
+        return future;
+    }
+
+    boolean isActive() {
+        Channel current = channel;
+        return current != null && current.isActive();
+    }
+
+    Channel channel() {
+        return channel;
+    }
+
+    /**
+     * whether a request may be sent now
+     *
+     * @return true if fewer than the capacity of requests are pending and the channel is writable
+     */
+    boolean hasRoom() {
+        Channel current = channel;
+        return current != null && current.isWritable() && pendingCallTable.size() < pendingCallTable.capacity();
+    }
+
+    /**
+     * wait until there is room for a request
+     *
+     * @param deadlineNanos {@code System.nanoTime()} to give up at
+     * @return true if there is room, false if the deadline passed
+     * @throws InterruptedException if interrupted while waiting
+     */
+    boolean awaitRoom(long deadlineNanos) throws InterruptedException {
+        roomLock.lock();
+        try {
+            roomWaiters++;
+            while (!hasRoom()) {
+                long nanos = deadlineNanos - System.nanoTime();
+                if (nanos <= 0) {
+                    return false;
+                }
+                roomFreed.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            roomWaiters--;
+            roomLock.unlock();
+        }
+    }
+
+    /**
+     * wake up senders waiting for room and send queued requests, called when calls are removed or the channel turns writable
+     */
+    void signalRoom() {
+        if (roomWaiters > 0) {
+            roomLock.lock();
+            try {
+                roomFreed.signalAll();
+            } finally {
+                roomLock.unlock();
+            }
+        }
+        if (queuedNum.get() > 0) {
+            scheduleDrain();
+        }
+    }
+
+    boolean hasQueued() {
+        return queuedNum.get() > 0;
+    }
+
+    int queuedNum() {
+        return queuedNum.get();
+    }
+
+    /**
+     * queue a request to be sent once there is room
+     *
+     * @param request     request
+     * @param call        call of the request
+     * @param maxQueueNum max number of queued requests
+     * @return false if the queue is full
+     */
+    boolean enqueue(Request request, PendingCall call, int maxQueueNum) {
+        if (queuedNum.incrementAndGet() > maxQueueNum) {
+            queuedNum.decrementAndGet();
+            return false;
+        }
+        queue.add(new QueuedRequest(request, call));
+        scheduleDrain();
+        return true;
+    }
+
+    /**
+     * fail all queued requests, called when the channel is closed
+     *
+     * @param cause passed to callbacks of the requests
+     */
+    void failQueued(Throwable cause) {
+        QueuedRequest queued;
+        while ((queued = queue.poll()) != null) {
+            queuedNum.decrementAndGet();
+            queued.call.completeExceptionally(cause);
+        }
+    }
+
+    private void scheduleDrain() {
+        Channel current = channel;
+        if (current != null && drainScheduled.compareAndSet(false, true)) {
+            current.eventLoop().execute(drainTask);
+        }
+    }
+
+    /**
+     * send queued requests in order while there is room, on the event loop
+     */
+    private void drain() {
+        drainScheduled.set(false);
+        QueuedRequest queued;
+        while ((queued = queue.peek()) != null) {
+            if (!client.trySend(this, queued.request, queued.call)) {
+                // sent on next signalRoom
+                return;
+            }
+            queue.poll();
+            queuedNum.decrementAndGet();
+        }
+    }
+
+    /**
+     * close the current channel, pending calls are failed once it is inactive
+     */
+    void close() {
+        Channel current = channel;
+        if (current != null) {
+            current.close().syncUninterruptibly();
+        }
+    }
+
+    private static final class QueuedRequest {
+        private final Request request;
+        private final PendingCall call;
+
+        private QueuedRequest(Request request, PendingCall call) {
+            this.request = request;
+            this.call = call;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.light.client;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * define callback of a remote call whose method returns {@code CompletableFuture} or {@code CompletionStage}.
+ * the future is completed on the netty event loop, dependent stages doing heavy work
+ * should use the async variants with their own executor
+ *
+ * @author lihb
+ */
+public class FutureCallBack implements CallBack {
+    private final CompletableFuture<Object> future = new CompletableFuture<>();
+
+    @Override
+    public void onReceive(Object result) {
+        future.complete(result);
+    }
+
+    @Override
+    public void onError(Throwable cause) {
+        future.completeExceptionally(cause);
+    }
+
+    @Override
+    public Object getReturnValue() {
+        return future.getNow(null);
+    }
+
+    /**
+     * obtain the future completed by this callback
+     *
+     * @return future
+     */
+    public CompletableFuture<Object> getFuture() {
+        return future;
+    }
+}
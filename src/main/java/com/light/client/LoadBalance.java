@@ -0,0 +1,17 @@
+package com.light.client;
+
+/**
+ * how {@code RemoteCallClient} picks a connection for a request
+ *
+ * @author lihb
+ */
+public enum LoadBalance {
+    /**
+     * use connections in turn
+     */
+    ROUND_ROBIN,
+    /**
+     * use the connection with the fewest requests waiting for responses
+     */
+    LEAST_PENDING
+}
@@ -0,0 +1,364 @@
+package com.light.client;
+
+import com.light.common.Async;
+import com.light.common.Compress;
+import com.light.common.MethodSignature;
+import com.light.common.Remote;
+import com.light.common.RemoteCallException;
+import com.light.common.Request;
+import com.light.common.Stream;
+import com.light.common.Sync;
+import com.light.metrics.MethodMetrics;
+import com.light.serializer.Serializer;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * everything a proxy or stub needs to perform a remote call of a method, resolved once when it is created
+ *
+ * @author lihb
+ */
+final class MethodDescriptor {
+    /**
+     * how the caller receives the result
+     */
+    enum CallMode {
+        /**
+         * block until the result returned, see {@code Sync}
+         */
+        SYNC,
+        /**
+         * return at once and hand the result to a callback, see {@code Async}
+         */
+        ASYNC,
+        /**
+         * return a {@code CompletableFuture} or {@code CompletionStage}
+         */
+        FUTURE,
+        /**
+         * return a {@code Flow.Publisher} of the streamed result, see {@code Stream}
+         */
+        PUBLISHER,
+        /**
+         * return a {@code Iterator} over the streamed result, see {@code Stream}
+         */
+        ITERATOR,
+        /**
+         * not a remote call, the proxy returns null
+         */
+        NONE
+    }
+
+    private static final MethodType CALLBACK_CONSTRUCTOR_TYPE = MethodType.methodType(CallBack.class);
+
+    final String methodName;
+    final int interfaceId;
+    /**
+     * identifier of the method in its interface, sent instead of the name
+     */
+    final int methodId;
+    final CallMode callMode;
+    final Serializer serializer;
+    /**
+     * class the result is deserialized to, the value type for futures and the item type for streams
+     */
+    final Class<?> resultType;
+    /**
+     * milliseconds a call waits unless {@code CallOptions} assign a timeout, the deadline sent with its request
+     */
+    final long timeoutMillis;
+    /**
+     * min bytes of arguments and result to compress, 0 if neither is compressed
+     */
+    final int compressThreshold;
+    /**
+     * metrics of the method, resolved once so calls do not look them up, null if disabled or not a remote call
+     */
+    final MethodMetrics metrics;
+    /**
+     * no-arg constructor of the callback of a async call, typed {@code ()CallBack}
+     */
+    private final MethodHandle callBackConstructor;
+    /**
+     * client performing the calls
+     */
+    private final RemoteCallClient client;
+
+    MethodDescriptor(MethodSignature signature, CallMode callMode, Serializer serializer, Class<?> resultType,
+                     long timeoutMillis, int compressThreshold, MethodHandle callBackConstructor, RemoteCallClient client) {
+        this.methodName = signature.getMethodName();
+        this.interfaceId = signature.getInterfaceId();
+        this.methodId = signature.getMethodId();
+        this.callMode = callMode;
+        this.serializer = serializer;
+        this.resultType = resultType;
+        this.timeoutMillis = timeoutMillis <= 0 ? client.getDefaultTimeoutMillis() : timeoutMillis;
+        this.compressThreshold = Math.max(compressThreshold, 0);
+        this.callBackConstructor = callBackConstructor;
+        this.client = client;
+        this.metrics = client.getMetrics() == null || callMode == CallMode.NONE ? null
+                : client.getMetrics().method(interfaceId, methodName);
+    }
+
+    /**
+     * resolve a method of a remote call interface
+     *
+     * @param method    method
+     * @param signature id and signature of the method
+     * @param remote    {@code Remote} annotation of the interface
+     * @param client    client performing the calls
+     * @return descriptor
+     */
+    static MethodDescriptor of(Method method, MethodSignature signature, Remote remote, RemoteCallClient client) {
+        Serializer serializer = serializerOf(remote.serializer(), client);
+        int compressThreshold = compressThresholdOf(method);
+        if (method.isAnnotationPresent(Stream.class)) {
+            long timeoutMillis = method.getAnnotation(Stream.class).timeout();
+            if (method.getReturnType() == Flow.Publisher.class) {
+                return new MethodDescriptor(signature, CallMode.PUBLISHER, serializer, resolveValueType(method), timeoutMillis,
+                        compressThreshold, null, client);
+            }
+            if (method.getReturnType() == Iterator.class) {
+                return new MethodDescriptor(signature, CallMode.ITERATOR, serializer, resolveValueType(method), timeoutMillis,
+                        compressThreshold, null, client);
+            }
+            throw new RuntimeException(String.format("method %s annotated by Stream should return a Iterator or Flow.Publisher",
+                    method.getName()));
+        }
+        if (method.getReturnType() == CompletableFuture.class || method.getReturnType() == CompletionStage.class) {
+            return new MethodDescriptor(signature, CallMode.FUTURE, serializer, resolveValueType(method), 0,
+                    compressThreshold, null, client);
+        }
+        if (method.isAnnotationPresent(Sync.class)) {
+            return new MethodDescriptor(signature, CallMode.SYNC, serializer, method.getReturnType(),
+                    method.getAnnotation(Sync.class).timeout(), compressThreshold, null, client);
+        }
+        if (method.isAnnotationPresent(Async.class)) {
+            Async async = method.getAnnotation(Async.class);
+            Class<? extends CallBack> callBack = async.callBack();
+            MethodHandle constructor;
+            try {
+                constructor = MethodHandles.publicLookup().findConstructor(callBack, MethodType.methodType(void.class))
+                        .asType(CALLBACK_CONSTRUCTOR_TYPE);
+            } catch (ReflectiveOperationException e) {
+                throw new RuntimeException(String.format("CallBack class %s assigned on %s do not have a public default constructor",
+                        callBack.getName(), method.getName()));
+            }
+            return new MethodDescriptor(signature, CallMode.ASYNC, serializer, method.getReturnType(), async.timeout(),
+                    compressThreshold, constructor, client);
+        }
+        return new MethodDescriptor(signature, CallMode.NONE, serializer, method.getReturnType(), 0, compressThreshold, null, client);
+    }
+
+    /**
+     * resolve the threshold {@code Compress} assigns, on the method or else on its interface
+     *
+     * @param method method
+     * @return min bytes to compress, 0 if not compressed
+     */
+    static int compressThresholdOf(Method method) {
+        Compress compress = method.getAnnotation(Compress.class);
+        if (compress == null) {
+            compress = method.getDeclaringClass().getAnnotation(Compress.class);
+        }
+        return compress == null ? 0 : Math.max(compress.threshold(), 0);
+    }
+
+    /**
+     * resolve the serializer {@code Remote} assigns
+     *
+     * @param serializerClass class object of the serializer, {@code Serializer} itself for the one of the client
+     * @param client          client performing the calls
+     * @return serializer
+     */
+    static Serializer serializerOf(Class<? extends Serializer> serializerClass, RemoteCallClient client) {
+        return serializerClass == Serializer.class ? client.getSerializer() : client.getSerializerRegistry().register(serializerClass);
+    }
+
+    /**
+     * create the callback of a async call
+     *
+     * @return new callback instance
+     */
+    CallBack newCallBack() {
+        try {
+            return (CallBack) callBackConstructor.invokeExact();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * perform the call and wait for its result
+     *
+     * @param args arguments
+     * @return result
+     */
+    Object callSync(Object[] args) {
+        long callTimeoutMillis = effectiveTimeoutMillis();
+        Request request = newRequest(args, callTimeoutMillis);
+        SyncCallBack callBack = new SyncCallBack();
+        client.sendRequest(request, serializer, resultType, callBack);
+        boolean done;
+        try {
+            // sending may have waited for room already
+            done = callBack.await(TimeUnit.NANOSECONDS.toMillis(request.getDeadlineNanos() - System.nanoTime()));
+        } catch (InterruptedException e) {
+            client.cancelRequest(request.getMsgId());
+            Thread.currentThread().interrupt();
+            throw new RemoteCallException(String.format("interrupted while waiting for %s", methodName), e);
+        }
+        if (!done) {
+            client.cancelRequest(request.getMsgId());
+            throw new RemoteCallException(String.format("remote call %s timed out after %d ms", methodName, callTimeoutMillis));
+        }
+        Throwable cause = callBack.getCause();
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause != null) {
+            throw new RemoteCallException("remote call failed", cause);
+        }
+        return callBack.getReturnValue();
+    }
+
+    /**
+     * perform the call, the result is handed to a callback
+     *
+     * @param args     arguments
+     * @param callBack callback receiving the result
+     */
+    void callAsync(Object[] args, CallBack callBack) {
+        if (callBack instanceof StreamCallBack) {
+            callStream(args, new StreamReceiver.Forwarding(client, (StreamCallBack) callBack));
+            return;
+        }
+        client.sendRequest(newRequest(args, effectiveTimeoutMillis()), serializer, resultType, callBack);
+    }
+
+    /**
+     * perform the call
+     *
+     * @param args arguments
+     * @return future completed when the remote call returned
+     */
+    CompletableFuture<Object> callFuture(Object[] args) {
+        FutureCallBack callBack = new FutureCallBack();
+        client.sendRequest(newRequest(args, effectiveTimeoutMillis()), serializer, resultType, callBack);
+        return callBack.getFuture();
+    }
+
+    /**
+     * perform the call, its result is streamed to a iterator
+     *
+     * @param args arguments
+     * @return iterator, which waits for each item up to the timeout of the call
+     */
+    Iterator<Object> callIterator(Object[] args) {
+        StreamIterator iterator = new StreamIterator(client, effectiveTimeoutMillis());
+        callStream(args, iterator);
+        return iterator;
+    }
+
+    /**
+     * create a publisher performing the call for each subscriber, the result is streamed to the subscriber
+     *
+     * @param args arguments
+     * @return publisher
+     */
+    Flow.Publisher<Object> callPublisher(Object[] args) {
+        return subscriber -> {
+            StreamSubscription subscription = new StreamSubscription(client, subscriber);
+            subscriber.onSubscribe(subscription);
+            try {
+                callStream(args, subscription);
+            } catch (RuntimeException e) {
+                subscription.onError(e);
+            }
+        };
+    }
+
+    /**
+     * perform a call whose result is streamed, it is not subject to timeouts
+     */
+    private void callStream(Object[] args, StreamReceiver receiver) {
+        Request request = newRequest(args, 0);
+        receiver.bind(request);
+        client.sendRequest(request, serializer, resultType, receiver);
+    }
+
+    /**
+     * timeout of a call made now, the one of {@code CallOptions} if in a scope
+     */
+    private long effectiveTimeoutMillis() {
+        long optionTimeoutMillis = CallOptions.currentTimeoutMillis();
+        return optionTimeoutMillis > 0 ? optionTimeoutMillis : timeoutMillis;
+    }
+
+    /**
+     * create the request of a call, with a deadline unless the timeout is 0
+     */
+    private Request newRequest(Object[] args, long callTimeoutMillis) {
+        Request request = new Request();
+        if (callTimeoutMillis > 0) {
+            request.setDeadlineNanos(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(callTimeoutMillis));
+        }
+        request.setRemoteCallInterfaceId(interfaceId);
+        request.setSerializerId(serializer.getIdentifier());
+        request.setMethodId(methodId);
+        request.setMethodName(methodName);
+        request.setMetrics(metrics);
+        request.setCompressThreshold(compressThreshold);
+        if (client.isPassByReference()) {
+            request.setArgs(Collections.emptyList());
+            request.setArgValues(args == null ? new Object[0] : args);
+            return request;
+        }
+        List<byte[]> argsList = new ArrayList<>(args == null ? 0 : args.length);
+        if (args != null) {
+            try {
+                for (Object arg : args) {
+                    argsList.add(serializer.serialize(arg));
+                }
+            } catch (IOException e) {
+                throw new RemoteCallException(String.format("can not serialize arguments of %s", methodName), e);
+            }
+        }
+        request.setArgs(argsList);
+        return request;
+    }
+
+    /**
+     * resolve the class of {@code T} in a {@code CompletableFuture<T>}, {@code Flow.Publisher<T>} or {@code Iterator<T>} return type
+     *
+     * @param method
+     * @return class of the future value or the items, or {@code Object} if not resolvable
+     */
+    private static Class<?> resolveValueType(Method method) {
+        Type returnType = method.getGenericReturnType();
+        if (!(returnType instanceof ParameterizedType)) {
+            return Object.class;
+        }
+        Type valueType = ((ParameterizedType) returnType).getActualTypeArguments()[0];
+        if (valueType instanceof ParameterizedType) {
+            valueType = ((ParameterizedType) valueType).getRawType();
+        }
+        return valueType instanceof Class ? (Class<?>) valueType : Object.class;
+    }
+}
@@ -0,0 +1,24 @@
+package com.light.client;
+
+/**
+ * what {@code RemoteCallClient} does with a request when the connection has no room for it,
+ * that is {@code maxPendingRequests} requests are waiting for responses or the channel is not writable
+ *
+ * @author lihb
+ */
+public enum OverloadPolicy {
+    /**
+     * throw a {@code RemoteCallException} right away
+     */
+    FAIL,
+    /**
+     * wait for room until the deadline of the request, then throw a {@code RemoteCallException}.
+     * a request sent from a event loop of the client fails instead, as waiting would stall responses
+     */
+    BLOCK,
+    /**
+     * keep the request in a bounded queue of the connection and send it once there is room,
+     * throw a {@code RemoteCallException} if the queue is full
+     */
+    QUEUE
+}
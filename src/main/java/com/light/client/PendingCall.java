@@ -0,0 +1,93 @@
+package com.light.client;
+
+import com.light.metrics.MethodMetrics;
+import com.light.serializer.Serializer;
+import io.netty.channel.Channel;
+import io.netty.util.Timeout;
+
+/**
+ * a remote call waiting for its response
+ *
+ * @author lihb
+ */
+final class PendingCall {
+    /**
+     * callback of the remote call
+     */
+    final CallBack callBack;
+    /**
+     * serializer the result is deserialized with
+     */
+    final Serializer serializer;
+    /**
+     * declared type of the result
+     */
+    final Class<?> returnType;
+    /**
+     * message id assigned by {@code PendingCallTable}
+     */
+    long msgId;
+    /**
+     * channel the request is written to
+     */
+    Channel channel;
+    /**
+     * metrics of the called method, null if metrics are disabled
+     */
+    MethodMetrics metrics;
+    /**
+     * when the call started, for metrics
+     */
+    long startNanos;
+    /**
+     * eviction scheduled for the deadline of the request, null if the caller times out by itself
+     */
+    Timeout timeout;
+
+    PendingCall(CallBack callBack, Serializer serializer, Class<?> returnType) {
+        this.callBack = callBack;
+        this.serializer = serializer;
+        this.returnType = returnType;
+    }
+
+    void complete(Object result) {
+        cancelTimeout();
+        if (metrics != null) {
+            metrics.succeed(startNanos);
+        }
+        callBack.onReceive(result);
+    }
+
+    /**
+     * receive a item of a streamed result, the call stays pending
+     *
+     * @param item item
+     */
+    void next(Object item) {
+        ((StreamCallBack) callBack).onNext(item);
+    }
+
+    void completeExceptionally(Throwable cause) {
+        cancelTimeout();
+        if (metrics != null) {
+            metrics.fail(startNanos);
+        }
+        callBack.onError(cause);
+    }
+
+    /**
+     * the caller gave up waiting, the callback is not called
+     */
+    void cancel() {
+        cancelTimeout();
+        if (metrics != null) {
+            metrics.fail(startNanos);
+        }
+    }
+
+    private void cancelTimeout() {
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.light.client;
+
+import io.netty.channel.Channel;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * remote calls of a connection waiting for their responses.
+ * message ids come from a monotonically increasing sequence, a call is kept in the slot
+ * {@code msgId & (capacity - 1)}, so registering and removing are a single CAS without boxing or hashing.
+ * a id whose slot is still taken by a older call is skipped.
+ * slots are rounded up to a power of two, the number of pending calls is held to the capacity by a counter.
+ * ids of a table start right after a base, so ids of different tables of a client do not collide,
+ * and 0, the id of a request not sent yet, is never assigned
+ *
+ * @author lihb
+ */
+final class PendingCallTable {
+    private final AtomicLong sequence;
+    private final AtomicReferenceArray<PendingCall> slots;
+    private final int mask;
+    /**
+     * max number of pending calls, at most the number of slots
+     */
+    private final int capacity;
+    private final AtomicInteger size = new AtomicInteger();
+    /**
+     * run after calls are removed, so senders waiting for room are woken up
+     */
+    private final Runnable onRemove;
+
+    /**
+     * @param capacity max number of pending calls
+     * @param idBase   message ids start right after this
+     * @param onRemove run after calls are removed
+     */
+    PendingCallTable(int capacity, long idBase, Runnable onRemove) {
+        this.sequence = new AtomicLong(idBase + 1);
+        this.onRemove = onRemove;
+        int slotNum = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(slotNum);
+        this.mask = slotNum - 1;
+        this.capacity = Math.max(1, capacity);
+    }
+
+    /**
+     * assign a message id to a call and keep it until removed
+     *
+     * @param call pending call
+     * @return message id, or -1 if the table is full
+     */
+    long register(PendingCall call) {
+        if (size.incrementAndGet() > capacity) {
+            size.decrementAndGet();
+            return -1;
+        }
+        for (int i = 0; i <= mask; i++) {
+            long msgId = sequence.getAndIncrement();
+            call.msgId = msgId;
+            if (slots.compareAndSet((int) (msgId & mask), null, call)) {
+                return msgId;
+            }
+        }
+        size.decrementAndGet();
+        return -1;
+    }
+
+    /**
+     * obtain a call without removing it, for a streamed result which receives many responses
+     *
+     * @param msgId message id of the call
+     * @return the call, or null if it is not pending
+     */
+    PendingCall get(long msgId) {
+        PendingCall call = slots.get((int) (msgId & mask));
+        return call == null || call.msgId != msgId ? null : call;
+    }
+
+    /**
+     * remove a call
+     *
+     * @param msgId message id of the call
+     * @return the call, or null if it is not pending
+     */
+    PendingCall remove(long msgId) {
+        int index = (int) (msgId & mask);
+        PendingCall call = slots.get(index);
+        if (call == null || call.msgId != msgId || !slots.compareAndSet(index, call, null)) {
+            return null;
+        }
+        size.decrementAndGet();
+        onRemove.run();
+        return call;
+    }
+
+    /**
+     * remove all calls whose requests were written to a channel
+     *
+     * @param channel channel
+     * @param cause   passed to callbacks of the removed calls
+     */
+    void failAll(Channel channel, Throwable cause) {
+        boolean removed = false;
+        for (int i = 0; i <= mask; i++) {
+            PendingCall call = slots.get(i);
+            if (call != null && call.channel == channel && slots.compareAndSet(i, call, null)) {
+                size.decrementAndGet();
+                removed = true;
+                call.completeExceptionally(cause);
+            }
+        }
+        if (removed) {
+            onRemove.run();
+        }
+    }
+
+    /**
+     * number of pending calls
+     *
+     * @return size
+     */
+    int size() {
+        return size.get();
+    }
+
+    /**
+     * max number of pending calls
+     *
+     * @return capacity
+     */
+    int capacity() {
+        return capacity;
+    }
+
+    /**
+     * number of slots, the capacity rounded up to a power of two
+     *
+     * @return number of slots
+     */
+    int slotNum() {
+        return mask + 1;
+    }
+}
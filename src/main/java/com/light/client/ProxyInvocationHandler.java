@@ -1,132 +1,128 @@
 package com.light.client;
 
-import com.light.common.Async;
+import com.light.common.MethodSignature;
 import com.light.common.Remote;
-import com.light.common.Request;
-import com.light.common.Sync;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.ObjectOutputStream;
-import java.lang.reflect.Constructor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Random;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
- * handle  method call of proxy object
+ * handle  method call of proxy object.
+ * methods are resolved into {@code MethodDescriptor}s when the proxy is created,
+ * so a call does no reflection. default methods run locally on the proxy like they do on a generated stub
  *
  * @author lihb
  */
 public class ProxyInvocationHandler implements InvocationHandler {
     private static final Logger logger = LoggerFactory.getLogger(ProxyInvocationHandler.class);
+    private static final Object[] EMPTY_ARGS = new Object[0];
     private RemoteCallClient client;
-    private Random random = new Random();
-    private ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(1024);
-    private ObjectOutputStream objectOutputStream;
+    /**
+     * proxied remote call interface
+     */
+    private final Class<?> remoteCallInterface;
+    /**
+     * key -> method of the remote call interface
+     * value -> resolved descriptor of the method
+     */
+    private final Map<Method, MethodDescriptor> descriptorMap;
+    /**
+     * key -> default method of the remote call interface
+     * value -> handle taking the proxy and the arguments array
+     */
+    private final Map<Method, MethodHandle> defaultMethodMap = new HashMap<>();
 
-    public ProxyInvocationHandler(RemoteCallClient client) {
+    public ProxyInvocationHandler(RemoteCallClient client, Class<?> remoteCallInterface) {
         this.client = client;
-        try {
-            objectOutputStream = new ObjectOutputStream(byteArrayOutputStream);
-        } catch (IOException e) {
-            logger.error("", e);
+        this.remoteCallInterface = remoteCallInterface;
+        Remote remote = remoteCallInterface.getAnnotation(Remote.class);
+        if (remote == null) {
+            throw new RuntimeException(String.format("interface %s is not annotated by Remote", remoteCallInterface.getName()));
         }
-    }
-
-    @Override
-    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-        Class<?> remoteCallInterfaceClass = proxy.getClass().getSuperclass();
-        if (!remoteCallInterfaceClass.isAnnotationPresent(Remote.class)) {
-            throw new RuntimeException(String.format("interface %s is not annotated by Remote", remoteCallInterfaceClass.getName()));
-        }
-        Remote remote = remoteCallInterfaceClass.getAnnotation(Remote.class);
         if (remote.identifier() <= 0) {
-            throw new RuntimeException(String.format("identifier of Remote annotation assigned on %s should be positive", remoteCallInterfaceClass.getName()));
+            throw new RuntimeException(String.format("identifier of Remote annotation assigned on %s should be positive", remoteCallInterface.getName()));
         }
-        Request request = generateRequest(remote.identifier(), method.getName(), args);
-        if (method.isAnnotationPresent(Sync.class)) {
-            return invokeSync(request);
+        Map<Method, MethodSignature> signatures = MethodSignature.resolve(remoteCallInterface, remote.identifier());
+        Map<Method, MethodDescriptor> descriptors = new HashMap<>();
+        // proxies created on RemoteCallServer side have no client and perform no call
+        if (client != null) {
+            for (Map.Entry<Method, MethodSignature> entry : signatures.entrySet()) {
+                descriptors.put(entry.getKey(), MethodDescriptor.of(entry.getKey(), entry.getValue(), remote, client));
+            }
+            client.declareMethods(signatures.values());
         }
-        if (method.isAnnotationPresent(Async.class)) {
-            return invokeAsync(method, request);
+        this.descriptorMap = descriptors;
+        for (Method method : remoteCallInterface.getMethods()) {
+            if (method.isDefault()) {
+                defaultMethodMap.put(method, defaultMethodHandle(method));
+            }
         }
-        return null;
     }
 
-    /**
-     * process {@code Sync} situation
-     *
-     * @param request
-     * @return
-     */
-    private Object invokeSync(Request request) {
-        CallBack callBack = new SyncCallBack();
-        client.sendRequest(request, callBack);
-        synchronized (callBack) {
-            try {
-                callBack.wait();
-            } catch (InterruptedException e) {
-                logger.error("", e);
-                Thread.currentThread().interrupt();
-            }
+    private static MethodHandle defaultMethodHandle(Method method) {
+        Class<?> declaringInterface = method.getDeclaringClass();
+        try {
+            MethodHandle handle = MethodHandles.privateLookupIn(declaringInterface, MethodHandles.lookup())
+                    .unreflectSpecial(method, declaringInterface);
+            return handle.asType(handle.type().generic()).asSpreader(Object[].class, method.getParameterCount());
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException(String.format("can not access default method %s of %s",
+                    method.getName(), declaringInterface.getName()), e);
         }
-        return callBack.getReturnValue();
     }
 
-    /**
-     * process {@code Async} situation
-     *
-     * @param method
-     * @param request
-     * @return
-     * @throws Throwable
-     */
-    private Object invokeAsync(Method method, Request request) throws Throwable {
-        Async async = method.getAnnotation(Async.class);
-        Class<CallBack> callBack = async.callBack();
-        if (callBack == null) {
-            throw new RuntimeException("CallBack class that assigned in Async annotation is null");
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        MethodDescriptor descriptor = descriptorMap.get(method);
+        if (descriptor == null) {
+            MethodHandle defaultMethod = defaultMethodMap.get(method);
+            if (defaultMethod != null) {
+                Object[] arguments = args == null ? EMPTY_ARGS : args;
+                return defaultMethod.invokeExact(proxy, arguments);
+            }
+            return invokeObjectMethod(proxy, method, args);
         }
-        Constructor<CallBack> callBackConstructor;
-        try {
-            callBackConstructor = callBack.getConstructor();
-        } catch (NoSuchMethodException e) {
-            throw new RuntimeException("CallBack class do not have a default constructor");
+        switch (descriptor.callMode) {
+            case FUTURE:
+                return descriptor.callFuture(args);
+            case PUBLISHER:
+                return descriptor.callPublisher(args);
+            case ITERATOR:
+                return descriptor.callIterator(args);
+            case SYNC:
+                return descriptor.callSync(args);
+            case ASYNC:
+                descriptor.callAsync(args, descriptor.newCallBack());
+                return null;
+            default:
+                return null;
         }
-        client.sendRequest(request, callBackConstructor.newInstance());
-        return null;
     }
 
     /**
-     * generate request
-     *
-     * @param remoteCallInterfaceIdentifier
-     * @param methodName
-     * @param args
-     * @return
+     * answer methods declared by {@code Object} on the proxy itself
      */
-    private Request generateRequest(int remoteCallInterfaceIdentifier, String methodName, Object[] args) throws Exception {
-        long msgId = System.nanoTime() + random.nextLong();
-        Request request = new Request();
-        request.setMsgId(msgId);
-        request.setRemoteCallInterfaceId(remoteCallInterfaceIdentifier);
-        request.setMethodName(methodName);
-        List<byte[]> argsList = new LinkedList<>();
-        for (Object arg : args) {
-            try {
-                objectOutputStream.writeObject(arg);
-                argsList.add(byteArrayOutputStream.toByteArray());
-            } catch (Exception e) {
-                objectOutputStream.reset();
-                throw e;
+    private Object invokeObjectMethod(Object proxy, Method method, Object[] args) {
+        if (method.getDeclaringClass() == Object.class) {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return String.format("proxy of %s", remoteCallInterface.getName());
             }
         }
-        request.setArgs(argsList);
-        return request;
+        if (client == null) {
+            throw new RuntimeException(String.format("proxy of %s is not bound to a RemoteCallClient", remoteCallInterface.getName()));
+        }
+        throw new RuntimeException(String.format("method %s is not a method of remote call interface %s",
+                method.getName(), remoteCallInterface.getName()));
     }
 }
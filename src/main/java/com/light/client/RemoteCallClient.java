@@ -1,21 +1,34 @@
 package com.light.client;
 
+import com.light.codec.FrameDecoder;
+import com.light.codec.RequestEncoder;
+import com.light.codec.ResponseDecoder;
 import com.light.common.Constant;
+import com.light.common.MethodSignature;
 import com.light.common.ProxyCenter;
+import com.light.common.RemoteCallException;
 import com.light.common.Request;
+import com.light.common.TransportType;
+import com.light.metrics.MetricsRegistry;
+import com.light.serializer.CompactSerializer;
+import com.light.serializer.Serializer;
+import com.light.serializer.SerializerRegistry;
 import io.netty.bootstrap.Bootstrap;
-import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
+import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.channel.*;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.EventExecutor;
 
-import java.io.ByteArrayInputStream;
-import java.io.ObjectInputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 
 /**
@@ -47,24 +60,104 @@ public final class RemoteCallClient {
      * address of remote server
      */
     private String remoteServer;
+    /**
+     * max length of a frame sending or receiving
+     */
+    private int maxFrameLength = Constant.DEFAULT_MAX_FRAME_LENGTH;
+    /**
+     * milliseconds a remote call waits when neither its annotation nor {@code CallOptions} assign a timeout
+     */
+    private long defaultTimeoutMillis = Constant.DEFAULT_TIMEOUT_MILLIS;
+    /**
+     * serializer for interfaces which do not assign one in {@code Remote}
+     */
+    private Serializer serializer;
+    /**
+     * known serializers
+     */
+    private SerializerRegistry serializerRegistry;
     /**
      * proxy center
      */
     private ProxyCenter proxyCenter;
     /**
-     * reserve sending messages
-     * key -> message id
-     * value -> callback
+     * max number of requests waiting for responses on a connection
+     */
+    private int maxPendingRequests = Constant.DEFAULT_MAX_PENDING_REQUESTS;
+    /**
+     * what is done with a request when its connection has no room
+     */
+    private OverloadPolicy overloadPolicy = OverloadPolicy.FAIL;
+    /**
+     * max number of requests queued on a connection under {@code OverloadPolicy.QUEUE}
+     */
+    private int maxQueuedRequests = Constant.DEFAULT_MAX_QUEUED_REQUESTS;
+    /**
+     * bytes of outbound buffer a channel turns writable again below and unwritable above
+     */
+    private int writeBufferLowWaterMark = Constant.DEFAULT_WRITE_BUFFER_LOW_WATER_MARK;
+    private int writeBufferHighWaterMark = Constant.DEFAULT_WRITE_BUFFER_HIGH_WATER_MARK;
+    /**
+     * number of connections to remote server
+     */
+    private int connectionNum = 1;
+    /**
+     * how a connection is picked for a request
+     */
+    private LoadBalance loadBalance = LoadBalance.ROUND_ROBIN;
+    /**
+     * max requests coalesced into one flush, 1 flushes every request
+     */
+    private int writeBatchSize = 1;
+    /**
+     * microseconds a batched flush is delayed by, 0 flushes at the end of the event loop tick
+     */
+    private long flushDelayMicros;
+    /**
+     * items a streamed result may be ahead of its consumer by
+     */
+    private int streamWindow = Constant.DEFAULT_STREAM_WINDOW;
+    /**
+     * netty transport
+     */
+    private TransportType transportType = TransportType.AUTO;
+    /**
+     * whether Nagle's algorithm is disabled
+     */
+    private boolean tcpNoDelay = true;
+    /**
+     * whether delayed acks are disabled, epoll only
+     */
+    private boolean tcpQuickAck;
+    /**
+     * whether arguments and results are copied by serializing over the local transport,
+     * otherwise the server sees the very objects the caller passed
+     */
+    private boolean copyLocalArguments = true;
+    /**
+     * event loop group of all connections
+     */
+    private EventLoopGroup workerGroup;
+    /**
+     * evicts calls at the deadline of their requests
+     */
+    private HashedWheelTimer timeoutTimer;
+    /**
+     * pooled connections
+     */
+    private Connection[] connections;
+    /**
+     * counter for picking connections in turn
      */
-    private Map<Long, CallBack> messageMap = new ConcurrentHashMap<>();
+    private final AtomicInteger nextConnection = new AtomicInteger();
     /**
-     * channel future
+     * metrics of remote calls, null if disabled
      */
-    private ChannelFuture connectFuture;
+    private MetricsRegistry metrics;
     /**
-     * channel handler context
+     * signatures of the methods of proxied interfaces, declared to the server in the handshake of each connection
      */
-    ChannelHandlerContext channelHandlerContext;
+    private final List<MethodSignature> declaredMethods = new CopyOnWriteArrayList<>();
 
     private RemoteCallClient() {
     }
@@ -93,109 +186,518 @@ public final class RemoteCallClient {
         return port;
     }
 
+    public int getMaxFrameLength() {
+        return maxFrameLength;
+    }
+
+    public long getDefaultTimeoutMillis() {
+        return defaultTimeoutMillis;
+    }
+
+    public int getMaxPendingRequests() {
+        return maxPendingRequests;
+    }
+
+    public OverloadPolicy getOverloadPolicy() {
+        return overloadPolicy;
+    }
+
+    public int getMaxQueuedRequests() {
+        return maxQueuedRequests;
+    }
+
+    public int getWriteBufferLowWaterMark() {
+        return writeBufferLowWaterMark;
+    }
+
+    public int getWriteBufferHighWaterMark() {
+        return writeBufferHighWaterMark;
+    }
+
+    public int getConnectionNum() {
+        return connectionNum;
+    }
+
+    public LoadBalance getLoadBalance() {
+        return loadBalance;
+    }
+
+    public int getWriteBatchSize() {
+        return writeBatchSize;
+    }
+
+    public long getFlushDelayMicros() {
+        return flushDelayMicros;
+    }
+
+    public int getStreamWindow() {
+        return streamWindow;
+    }
+
+    public TransportType getTransportType() {
+        return transportType;
+    }
+
+    public boolean isTcpNoDelay() {
+        return tcpNoDelay;
+    }
+
+    public boolean isTcpQuickAck() {
+        return tcpQuickAck;
+    }
+
+    public boolean isCopyLocalArguments() {
+        return copyLocalArguments;
+    }
+
+    /**
+     * whether arguments and results skip serializing and are passed by reference
+     *
+     * @return true if on the local transport without copying
+     */
+    public boolean isPassByReference() {
+        return transportType == TransportType.LOCAL && !copyLocalArguments;
+    }
+
     public String getRemoteServer() {
         return remoteServer;
     }
 
+    public Serializer getSerializer() {
+        return serializer;
+    }
+
+    public SerializerRegistry getSerializerRegistry() {
+        return serializerRegistry;
+    }
+
     public ProxyCenter getProxyCenter() {
         return proxyCenter;
     }
 
     /**
-     * sending a remote call request to {@code RemoteCallServer} side
+     * obtain metrics of remote calls, which may be exported by {@code JmxExporter} or {@code PrometheusExporter}
+     *
+     * @return metrics registry, null if disabled
+     */
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * sending a remote call request to {@code RemoteCallServer} side.
+     * the result is deserialized by the serializer the request assigned
      *
      * @param request  request
      * @param callback called when a remote call finished
      */
     public void sendRequest(Request request, CallBack callback) {
-        channelHandlerContext.writeAndFlush(request);
-        messageMap.put(request.getMsgId(), callback);
+        Serializer requestSerializer = serializerRegistry.get(request.getSerializerId());
+        if (requestSerializer == null) {
+            throw new RuntimeException(String.format("serializer %d is not registered", request.getSerializerId()));
+        }
+        sendRequest(request, requestSerializer, Object.class, callback);
+    }
+
+    /**
+     * sending a remote call request to {@code RemoteCallServer} side.
+     * the message id of the request is assigned here.
+     * if the connection has no room for the request, it is handled according to {@code OverloadPolicy}
+     *
+     * @param request    request
+     * @param serializer serializer the arguments are serialized with
+     * @param returnType declared type of the result
+     * @param callback   called when a remote call finished
+     */
+    public void sendRequest(Request request, Serializer serializer, Class<?> returnType, CallBack callback) {
+        request.setSerializerId(serializer.getIdentifier());
+        Connection connection = selectConnection();
+        PendingCall call = new PendingCall(callback, serializer, returnType);
+        if (metrics != null) {
+            // requests of a proxy or stub carry the metrics of their method
+            call.metrics = request.getMetrics() != null ? request.getMetrics()
+                    : metrics.method(request.getRemoteCallInterfaceId(), request.getMethodName());
+            call.startNanos = call.metrics.start();
+            for (byte[] arg : request.getArgs()) {
+                call.metrics.addBytesOut(arg.length);
+            }
+        }
+        if (!connection.isActive()) {
+            sendWhenConnected(connection, request, call);
+            return;
+        }
+        if (overloadPolicy == OverloadPolicy.QUEUE) {
+            // requests queued earlier go first
+            if (connection.hasQueued() || !trySend(connection, request, call)) {
+                if (!connection.enqueue(request, call, maxQueuedRequests)) {
+                    call.cancel();
+                    throw new RemoteCallException(String.format("more than %d requests are queued", maxQueuedRequests));
+                }
+            }
+            return;
+        }
+        boolean waited = false;
+        while (!trySend(connection, request, call)) {
+            if (overloadPolicy == OverloadPolicy.FAIL) {
+                call.cancel();
+                throw new RemoteCallException(overloadReason(connection));
+            }
+            if (!waited && inEventLoop()) {
+                call.cancel();
+                throw new RemoteCallException(String.format("can not wait for room on a event loop of the client, %s",
+                        overloadReason(connection)));
+            }
+            waited = true;
+            boolean hasRoom;
+            try {
+                hasRoom = connection.awaitRoom(request.getDeadlineNanos() != 0 ? request.getDeadlineNanos()
+                        : System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(defaultTimeoutMillis));
+            } catch (InterruptedException e) {
+                call.cancel();
+                Thread.currentThread().interrupt();
+                throw new RemoteCallException("interrupted while waiting for room to send request", e);
+            }
+            if (!hasRoom) {
+                call.cancel();
+                throw new RemoteCallException(String.format("no room to send request %s in time, %s",
+                        request.getMethodName(), overloadReason(connection)));
+            }
+        }
+    }
+
+    /**
+     * send a request of a event loop once the connection is connected instead of waiting for it.
+     * as the event loop can not wait for room either, a request finding none is queued under {@code OverloadPolicy.QUEUE}
+     * and failed otherwise
+     *
+     * @param connection connection still connecting
+     * @param request    request
+     * @param call       call of the request
+     */
+    private void sendWhenConnected(Connection connection, Request request, PendingCall call) {
+        connection.connect().addListener(future -> {
+            if (!future.isSuccess()) {
+                call.completeExceptionally(new RemoteCallException(
+                        String.format("can not connect to %s:%d", remoteServer, port), future.cause()));
+            } else if (overloadPolicy == OverloadPolicy.QUEUE) {
+                if ((connection.hasQueued() || !trySend(connection, request, call))
+                        && !connection.enqueue(request, call, maxQueuedRequests)) {
+                    call.completeExceptionally(new RemoteCallException(
+                            String.format("more than %d requests are queued", maxQueuedRequests)));
+                }
+            } else if (!trySend(connection, request, call)) {
+                call.completeExceptionally(new RemoteCallException(overloadReason(connection)));
+            }
+        });
+    }
+
+    /**
+     * register and write a request if the connection has room for it.
+     * a request whose deadline passed is failed instead, a registered one is evicted at its deadline
+     * unless a sync caller times out by itself
+     *
+     * @param connection connection
+     * @param request    request
+     * @param call       call of the request
+     * @return false if there is no room
+     */
+    boolean trySend(Connection connection, Request request, PendingCall call) {
+        long deadlineNanos = request.getDeadlineNanos();
+        if (request.isExpired(System.nanoTime())) {
+            call.completeExceptionally(timedOut(request));
+            return true;
+        }
+        if (!connection.hasRoom()) {
+            return false;
+        }
+        PendingCallTable pendingCallTable = connection.pendingCallTable;
+        Channel channel = connection.channel();
+        call.channel = channel;
+        long msgId = pendingCallTable.register(call);
+        if (msgId < 0) {
+            return false;
+        }
+        request.setMsgId(msgId);
+        if (deadlineNanos != 0 && !(call.callBack instanceof SyncCallBack)) {
+            call.timeout = timeoutTimer.newTimeout(timeout -> {
+                PendingCall pendingCall = pendingCallTable.remove(msgId);
+                if (pendingCall != null) {
+                    pendingCall.completeExceptionally(timedOut(request));
+                }
+            }, deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+        ChannelFuture writeFuture;
+        if (writeBatchSize > 1 && !channel.eventLoop().inEventLoop()) {
+            // a write without flush issued outside the event loop is queued lazily and would not wake it up
+            ChannelPromise promise = channel.newPromise();
+            channel.eventLoop().execute(() -> channel.write(request, promise));
+            writeFuture = promise;
+        } else if (writeBatchSize > 1) {
+            writeFuture = channel.write(request);
+        } else {
+            writeFuture = channel.writeAndFlush(request);
+        }
+        writeFuture.addListener(future -> {
+            if (!future.isSuccess()) {
+                PendingCall pendingCall = pendingCallTable.remove(msgId);
+                if (pendingCall != null) {
+                    pendingCall.completeExceptionally(new RemoteCallException("can not send request", future.cause()));
+                }
+            }
+        });
+        return true;
+    }
+
+    private static RemoteCallException timedOut(Request request) {
+        return new RemoteCallException(String.format("remote call %s timed out", request.getMethodName()));
+    }
+
+    private static String overloadReason(Connection connection) {
+        if (connection.pendingCallTable.size() >= connection.pendingCallTable.capacity()) {
+            return String.format("more than %d requests are pending", connection.pendingCallTable.capacity());
+        }
+        return "connection to server is not writable";
+    }
+
+    /**
+     * whether the current thread is a event loop of this client
+     */
+    private boolean inEventLoop() {
+        for (EventExecutor executor : workerGroup) {
+            if (executor.inEventLoop()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * give up waiting for a remote call, a response arriving later is dropped
+     *
+     * @param msgId message id of the request
+     */
+    public void cancelRequest(long msgId) {
+        PendingCallTable pendingCallTable = pendingCallTableOf(msgId);
+        PendingCall pendingCall = pendingCallTable == null ? null : pendingCallTable.remove(msgId);
+        if (pendingCall != null) {
+            pendingCall.cancel();
+        }
+    }
+
+    /**
+     * allow the server to stream more items of a streamed result
+     *
+     * @param request request of the stream
+     * @param credit  number of items
+     */
+    void grantStream(Request request, int credit) {
+        PendingCallTable pendingCallTable = pendingCallTableOf(request.getMsgId());
+        PendingCall pendingCall = pendingCallTable == null ? null : pendingCallTable.get(request.getMsgId());
+        if (pendingCall != null) {
+            pendingCall.channel.writeAndFlush(newStreamControl(request.getMsgId(), credit));
+        }
+    }
+
+    /**
+     * give up a streamed result, the server stops producing items and ones arriving later are dropped
+     *
+     * @param request request of the stream
+     */
+    void cancelStream(Request request) {
+        PendingCallTable pendingCallTable = pendingCallTableOf(request.getMsgId());
+        PendingCall pendingCall = pendingCallTable == null ? null : pendingCallTable.remove(request.getMsgId());
+        if (pendingCall != null) {
+            pendingCall.cancel();
+            pendingCall.channel.writeAndFlush(newStreamControl(request.getMsgId(), 0));
+        }
+    }
+
+    /**
+     * table a message id is registered in
+     *
+     * @return table, null if the id is not assigned by any
+     */
+    private PendingCallTable pendingCallTableOf(long msgId) {
+        int index = (int) (msgId >>> Connection.INDEX_SHIFT);
+        // 0 is the id of a request not sent yet
+        return msgId == 0 || index >= connections.length ? null : connections[index].pendingCallTable;
+    }
+
+    /**
+     * create a request granting a stream more credits, or cancelling it
+     *
+     * @param msgId  message id of the stream
+     * @param credit number of items, 0 to cancel
+     * @return request
+     */
+    static Request newStreamControl(long msgId, int credit) {
+        Request request = new Request();
+        request.setMsgId(msgId);
+        request.setControl(true);
+        request.setStreamCredit(credit);
+        request.setArgs(Collections.emptyList());
+        return request;
+    }
+
+    /**
+     * declare the methods of a newly proxied interface, to connections opened later in their handshake
+     * and to open ones in a handshake of their own
+     *
+     * @param signatures signatures of the methods
+     */
+    void declareMethods(Collection<MethodSignature> signatures) {
+        if (signatures.isEmpty()) {
+            return;
+        }
+        declaredMethods.addAll(signatures);
+        if (connections == null) {
+            return;
+        }
+        for (Connection connection : connections) {
+            if (connection.isActive()) {
+                connection.channel().writeAndFlush(newHandshake(signatures));
+            }
+        }
+    }
+
+    /**
+     * create a handshake request declaring method signatures
+     *
+     * @param signatures signatures of the methods
+     * @return request
+     */
+    static Request newHandshake(Collection<MethodSignature> signatures) {
+        List<byte[]> entries = new ArrayList<>(signatures.size());
+        for (MethodSignature signature : signatures) {
+            entries.add(signature.encode());
+        }
+        Request request = new Request();
+        request.setMsgId(Constant.HANDSHAKE_MSG_ID);
+        request.setRemoteCallInterfaceId(Constant.HANDSHAKE_INTERFACE_ID);
+        request.setArgs(entries);
+        return request;
+    }
+
+    /**
+     * pick a active connection according to {@code LoadBalance}, preferring ones with room for a request.
+     * a picked connection whose channel dropped is reconnected in background and the next one is tried,
+     * if none is active the caller waits for a reconnect, or gets a connection still connecting on a event loop
+     *
+     * @return active connection
+     */
+    private Connection selectConnection() {
+        int start = nextConnection.getAndIncrement() & Integer.MAX_VALUE;
+        Connection selected = null;
+        for (int i = 0; i < connections.length; i++) {
+            Connection connection = connections[(start + i) % connections.length];
+            if (!connection.isActive()) {
+                connection.connect();
+                continue;
+            }
+            if (loadBalance == LoadBalance.ROUND_ROBIN) {
+                if (connection.hasRoom()) {
+                    return connection;
+                }
+                if (selected == null) {
+                    selected = connection;
+                }
+                continue;
+            }
+            if (selected == null || (connection.hasRoom() && !selected.hasRoom())
+                    || (connection.hasRoom() == selected.hasRoom()
+                    && connection.pendingCallTable.size() < selected.pendingCallTable.size())) {
+                selected = connection;
+            }
+        }
+        if (selected != null) {
+            // no active connection has room, overloadPolicy decides what happens to the request
+            return selected;
+        }
+        Connection connection = connections[start % connections.length];
+        ChannelFuture connectFuture = connection.connect();
+        if (inEventLoop()) {
+            // blocking here would stall the event loop, the caller sends once connected
+            return connection;
+        }
+        if (!connectFuture.awaitUninterruptibly(defaultTimeoutMillis, TimeUnit.MILLISECONDS) || !connectFuture.isSuccess()) {
+            throw new RemoteCallException(String.format("can not connect to %s:%d", remoteServer, port), connectFuture.cause());
+        }
+        return connection;
     }
 
     public void stop() {
-        try {
-            connectFuture.channel().close().sync();
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+        if (connections != null) {
+            for (Connection connection : connections) {
+                connection.close();
+            }
+        }
+        if (workerGroup != null) {
+            workerGroup.shutdownGracefully();
+        }
+        if (timeoutTimer != null) {
+            timeoutTimer.stop();
         }
     }
 
     private void init() {
         proxyCenter.scanFor(autoScanPackage);
+        ResponseHandler responseHandler = new ResponseHandler(declaredMethods);
+        TransportType transport = transportType.resolve();
+        workerGroup = transport.newEventLoopGroup(workerGroupThreadNum);
+        timeoutTimer = new HashedWheelTimer(new DefaultThreadFactory("light-timeout", true),
+                Constant.TIMEOUT_TICK_MILLIS, TimeUnit.MILLISECONDS);
         Bootstrap bootstrap = new Bootstrap();
-        connectFuture = bootstrap.group(new NioEventLoopGroup(workerGroupThreadNum)).channel(NioSocketChannel.class).handler(new ChannelInitializer<SocketChannel>() {
+        bootstrap.group(workerGroup).channel(transport.channelClass()).remoteAddress(transport.address(remoteServer, port))
+                .handler(new ChannelInitializer<Channel>() {
             @Override
-            protected void initChannel(SocketChannel ch) throws Exception {
+            protected void initChannel(Channel ch) throws Exception {
                 ChannelPipeline pipeline = ch.pipeline();
-                pipeline.addLast(new ChannelInboundHandlerAdapter() {
-                    @Override
-                    public void channelActive(ChannelHandlerContext ctx) throws Exception {
-                        channelHandlerContext = ctx;
-                    }
-
-                    @Override
-                    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
-                        if (!(msg instanceof ByteBuf)) {
-                            return;
-                        }
-                        ByteBuf byteBuf = (ByteBuf) msg;
-                        byteBuf.markReaderIndex();
-                        long msgId = 0;
-                        if (byteBuf.readableBytes() > 8) {
-                            msgId = byteBuf.readLong();
-                        }
-                        int msgBodyLength = 0;
-                        if (byteBuf.readableBytes() > 8) {
-                            msgBodyLength = byteBuf.readInt();
-                        }
-                        if (byteBuf.readableBytes() >= msgBodyLength) {
-                            byte[] bodyBytes = new byte[msgBodyLength];
-                            byteBuf.readBytes(bodyBytes);
-                            CallBack callBack = messageMap.get(msgId);
-                            ObjectInputStream inputStream = new ObjectInputStream(new ByteArrayInputStream(bodyBytes));
-                            callBack.onReceive(inputStream.readObject());
-                            messageMap.remove(msgId);
-                            ctx.fireChannelReadComplete();
-                        } else {
-                            byteBuf.resetReaderIndex();
-                        }
-                    }
-                }).addLast(new ChannelOutboundHandlerAdapter() {
-                    @Override
-                    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
-                        if (!(msg instanceof Request)) {
-                            return;
-                        }
-                        Request request = (Request) msg;
-                        int totalLength = 0;
-                        int remoteCallInterfaceIdLength = 8;
-                        totalLength += remoteCallInterfaceIdLength;
-                        int methodNameLength = 4;
-                        totalLength += methodNameLength;
-                        totalLength += request.getMethodName().length();
-                        int argHeadLength = 4;
-                        for (byte[] arg : request.getArgs()) {
-                            totalLength += argHeadLength;
-                            totalLength += arg.length;
-                        }
-                        ByteBuf buffer = Unpooled.buffer(totalLength);
-                        buffer.writeLong(request.getRemoteCallInterfaceId());
-                        buffer.writeInt(request.getMethodName().length());
-                        buffer.writeBytes(request.getMethodName().getBytes());
-                        for (byte[] arg : request.getArgs()) {
-                            buffer.writeInt(arg.length);
-                            buffer.writeBytes(arg);
-                        }
-                        ctx.writeAndFlush(buffer);
-                    }
-                });
+                if (transport != TransportType.LOCAL) {
+                    pipeline.addLast(new FrameDecoder(maxFrameLength))
+                            .addLast(new ResponseDecoder(maxFrameLength))
+                            .addLast(new RequestEncoder(maxFrameLength));
+                }
+                pipeline.addLast(responseHandler);
+                if (writeBatchSize > 1) {
+                    pipeline.addLast(new BatchFlushHandler(writeBatchSize, flushDelayMicros));
+                }
             }
-        }).connect(remoteServer, port);
+        });
+        bootstrap.option(ChannelOption.WRITE_BUFFER_WATER_MARK, new WriteBufferWaterMark(writeBufferLowWaterMark, writeBufferHighWaterMark));
+        if (transport != TransportType.LOCAL) {
+            bootstrap.option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+                    .option(ChannelOption.TCP_NODELAY, tcpNoDelay);
+        }
+        if (transport == TransportType.EPOLL) {
+            bootstrap.option(EpollChannelOption.TCP_QUICKACK, tcpQuickAck);
+        }
+        connections = new Connection[connectionNum];
+        for (int i = 0; i < connectionNum; i++) {
+            connections[i] = new Connection(i, bootstrap, maxPendingRequests, this);
+        }
+        if (metrics != null) {
+            metrics.registerGauge("pending_requests", () -> {
+                long pending = 0;
+                for (Connection connection : connections) {
+                    pending += connection.pendingCallTable.size();
+                }
+                return pending;
+            });
+            metrics.registerGauge("queued_requests", () -> {
+                long queued = 0;
+                for (Connection connection : connections) {
+                    queued += connection.queuedNum();
+                }
+                return queued;
+            });
+        }
     }
 
     public void start() throws InterruptedException {
         init();
-        connectFuture.sync();
+        for (Connection connection : connections) {
+            connection.connect().sync();
+        }
     }
 
     /**
@@ -223,6 +725,76 @@ public final class RemoteCallClient {
          * address of remote server
          */
         private String remoteServer;
+        /**
+         * max length of a frame sending or receiving
+         */
+        private int maxFrameLength = Constant.DEFAULT_MAX_FRAME_LENGTH;
+        /**
+         * milliseconds a sync remote call waits when {@code Sync} assigns no timeout
+         */
+        private long defaultTimeoutMillis = Constant.DEFAULT_TIMEOUT_MILLIS;
+        /**
+         * max number of requests waiting for responses on a connection
+         */
+        private int maxPendingRequests = Constant.DEFAULT_MAX_PENDING_REQUESTS;
+        /**
+         * what is done with a request when its connection has no room
+         */
+        private OverloadPolicy overloadPolicy = OverloadPolicy.FAIL;
+        /**
+         * max number of requests queued on a connection under {@code OverloadPolicy.QUEUE}
+         */
+        private int maxQueuedRequests = Constant.DEFAULT_MAX_QUEUED_REQUESTS;
+        /**
+         * bytes of outbound buffer a channel turns writable again below and unwritable above
+         */
+        private int writeBufferLowWaterMark = Constant.DEFAULT_WRITE_BUFFER_LOW_WATER_MARK;
+        private int writeBufferHighWaterMark = Constant.DEFAULT_WRITE_BUFFER_HIGH_WATER_MARK;
+        /**
+         * number of connections to remote server
+         */
+        private int connectionNum = 1;
+        /**
+         * how a connection is picked for a request
+         */
+        private LoadBalance loadBalance = LoadBalance.ROUND_ROBIN;
+        /**
+         * max requests coalesced into one flush, 1 flushes every request
+         */
+        private int writeBatchSize = 1;
+        /**
+         * microseconds a batched flush is delayed by, 0 flushes at the end of the event loop tick
+         */
+        private long flushDelayMicros;
+        /**
+         * items a streamed result may be ahead of its consumer by
+         */
+        private int streamWindow = Constant.DEFAULT_STREAM_WINDOW;
+        /**
+         * netty transport
+         */
+        private TransportType transportType = TransportType.AUTO;
+        /**
+         * whether Nagle's algorithm is disabled
+         */
+        private boolean tcpNoDelay = true;
+        /**
+         * whether delayed acks are disabled, epoll only
+         */
+        private boolean tcpQuickAck;
+        /**
+         * whether arguments and results are copied by serializing over the local transport,
+         * otherwise the server sees the very objects the caller passed
+         */
+        private boolean copyLocalArguments = true;
+        /**
+         * whether metrics of remote calls are collected
+         */
+        private boolean metricsEnabled = true;
+        /**
+         * serializer for interfaces which do not assign one in {@code Remote}
+         */
+        private Serializer serializer = new CompactSerializer();
 
         private RemoteCallClientBuilder() {
         }
@@ -272,6 +844,202 @@ public final class RemoteCallClient {
             this.port = port;
         }
 
+        public int getMaxFrameLength() {
+            return maxFrameLength;
+        }
+
+        public void setMaxFrameLength(int maxFrameLength) {
+            if (maxFrameLength <= 0) {
+                throw new RuntimeException("maxFrameLength should be a positive number");
+            }
+            this.maxFrameLength = maxFrameLength;
+        }
+
+        public long getDefaultTimeoutMillis() {
+            return defaultTimeoutMillis;
+        }
+
+        public void setDefaultTimeoutMillis(long defaultTimeoutMillis) {
+            if (defaultTimeoutMillis <= 0) {
+                throw new RuntimeException("defaultTimeoutMillis should be a positive number");
+            }
+            this.defaultTimeoutMillis = defaultTimeoutMillis;
+        }
+
+        public int getMaxPendingRequests() {
+            return maxPendingRequests;
+        }
+
+        public void setMaxPendingRequests(int maxPendingRequests) {
+            if (maxPendingRequests <= 0) {
+                throw new RuntimeException("maxPendingRequests should be a positive number");
+            }
+            this.maxPendingRequests = maxPendingRequests;
+        }
+
+        public OverloadPolicy getOverloadPolicy() {
+            return overloadPolicy;
+        }
+
+        /**
+         * choose what is done with a request when its connection has {@code maxPendingRequests} requests pending
+         * or a outbound buffer above the high water mark, {@code FAIL} by default
+         *
+         * @param overloadPolicy overload policy
+         */
+        public void setOverloadPolicy(OverloadPolicy overloadPolicy) {
+            Objects.requireNonNull(overloadPolicy);
+            this.overloadPolicy = overloadPolicy;
+        }
+
+        public int getMaxQueuedRequests() {
+            return maxQueuedRequests;
+        }
+
+        public void setMaxQueuedRequests(int maxQueuedRequests) {
+            if (maxQueuedRequests <= 0) {
+                throw new RuntimeException("maxQueuedRequests should be a positive number");
+            }
+            this.maxQueuedRequests = maxQueuedRequests;
+        }
+
+        public int getWriteBufferLowWaterMark() {
+            return writeBufferLowWaterMark;
+        }
+
+        public int getWriteBufferHighWaterMark() {
+            return writeBufferHighWaterMark;
+        }
+
+        /**
+         * bound the outbound buffer of each connection, a connection stops taking requests once more than high bytes
+         * are waiting to be written and takes them again when fewer than low bytes are
+         *
+         * @param low  low water mark in bytes
+         * @param high high water mark in bytes
+         */
+        public void setWriteBufferWaterMark(int low, int high) {
+            if (low <= 0 || high < low) {
+                throw new RuntimeException("water marks should be positive and low should not be above high");
+            }
+            this.writeBufferLowWaterMark = low;
+            this.writeBufferHighWaterMark = high;
+        }
+
+        public int getConnectionNum() {
+            return connectionNum;
+        }
+
+        public void setConnectionNum(int connectionNum) {
+            if (connectionNum <= 0) {
+                throw new RuntimeException("connectionNum should be a positive number");
+            }
+            this.connectionNum = connectionNum;
+        }
+
+        public LoadBalance getLoadBalance() {
+            return loadBalance;
+        }
+
+        public void setLoadBalance(LoadBalance loadBalance) {
+            Objects.requireNonNull(loadBalance);
+            this.loadBalance = loadBalance;
+        }
+
+        public int getWriteBatchSize() {
+            return writeBatchSize;
+        }
+
+        public void setWriteBatchSize(int writeBatchSize) {
+            if (writeBatchSize <= 0) {
+                throw new RuntimeException("writeBatchSize should be a positive number");
+            }
+            this.writeBatchSize = writeBatchSize;
+        }
+
+        public long getFlushDelayMicros() {
+            return flushDelayMicros;
+        }
+
+        public void setFlushDelayMicros(long flushDelayMicros) {
+            if (flushDelayMicros < 0) {
+                throw new RuntimeException("flushDelayMicros should not be a negative number");
+            }
+            this.flushDelayMicros = flushDelayMicros;
+        }
+
+        public int getStreamWindow() {
+            return streamWindow;
+        }
+
+        public void setStreamWindow(int streamWindow) {
+            if (streamWindow <= 0) {
+                throw new RuntimeException("streamWindow should be a positive number");
+            }
+            this.streamWindow = streamWindow;
+        }
+
+        public TransportType getTransportType() {
+            return transportType;
+        }
+
+        public void setTransportType(TransportType transportType) {
+            Objects.requireNonNull(transportType);
+            this.transportType = transportType;
+        }
+
+        public boolean isTcpNoDelay() {
+            return tcpNoDelay;
+        }
+
+        public void setTcpNoDelay(boolean tcpNoDelay) {
+            this.tcpNoDelay = tcpNoDelay;
+        }
+
+        public boolean isTcpQuickAck() {
+            return tcpQuickAck;
+        }
+
+        /**
+         * disable delayed acks, ignored unless the epoll transport is in use
+         *
+         * @param tcpQuickAck true to enable
+         */
+        public void setTcpQuickAck(boolean tcpQuickAck) {
+            this.tcpQuickAck = tcpQuickAck;
+        }
+
+        public boolean isCopyLocalArguments() {
+            return copyLocalArguments;
+        }
+
+        /**
+         * over the local transport, serialize arguments and results to copy them, which is the default,
+         * or pass them by reference so the caller and the instance share mutable state
+         *
+         * @param copyLocalArguments false to pass by reference
+         */
+        public void setCopyLocalArguments(boolean copyLocalArguments) {
+            this.copyLocalArguments = copyLocalArguments;
+        }
+
+        public boolean isMetricsEnabled() {
+            return metricsEnabled;
+        }
+
+        public void setMetricsEnabled(boolean metricsEnabled) {
+            this.metricsEnabled = metricsEnabled;
+        }
+
+        public Serializer getSerializer() {
+            return serializer;
+        }
+
+        public void setSerializer(Serializer serializer) {
+            Objects.requireNonNull(serializer);
+            this.serializer = serializer;
+        }
+
         public String getRemoteServer() {
             return remoteServer;
         }
@@ -296,6 +1064,28 @@ public final class RemoteCallClient {
             client.workerGroupThreadNum = workerGroupThreadNum;
             client.port = port;
             client.remoteServer = remoteServer;
+            client.maxFrameLength = maxFrameLength;
+            client.defaultTimeoutMillis = defaultTimeoutMillis;
+            client.maxPendingRequests = maxPendingRequests;
+            client.overloadPolicy = overloadPolicy;
+            client.maxQueuedRequests = maxQueuedRequests;
+            client.writeBufferLowWaterMark = writeBufferLowWaterMark;
+            client.writeBufferHighWaterMark = writeBufferHighWaterMark;
+            client.connectionNum = connectionNum;
+            client.loadBalance = loadBalance;
+            client.writeBatchSize = writeBatchSize;
+            client.flushDelayMicros = flushDelayMicros;
+            client.streamWindow = streamWindow;
+            client.transportType = transportType;
+            client.tcpNoDelay = tcpNoDelay;
+            client.tcpQuickAck = tcpQuickAck;
+            client.copyLocalArguments = copyLocalArguments;
+            if (metricsEnabled) {
+                client.metrics = new MetricsRegistry("client", String.format("%s:%d", remoteServer, port));
+            }
+            client.serializer = serializer;
+            client.serializerRegistry = new SerializerRegistry();
+            client.serializerRegistry.register(serializer);
             client.proxyCenter = new ProxyCenter(client);
             return client;
         }
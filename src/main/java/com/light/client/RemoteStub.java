@@ -0,0 +1,225 @@
+package com.light.client;
+
+import com.light.common.MethodSignature;
+import com.light.serializer.Serializer;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+/**
+ * base class of the client stubs {@code RemoteProcessor} generates for remote call interfaces.
+ * a stub describes its methods once in its constructor and calls each one directly,
+ * so neither a dynamic proxy nor reflection is involved.
+ * arguments are still serialized by {@code MethodDescriptor}, as the serializer is taken from the client at runtime
+ * and arguments on the local transport are passed by reference without serializing
+ *
+ * @author lihb
+ */
+public abstract class RemoteStub {
+    /**
+     * client performing the calls
+     */
+    private final RemoteCallClient client;
+    /**
+     * identifier of the remote call interface
+     */
+    private final int interfaceId;
+    /**
+     * serializer for arguments and results of the interface
+     */
+    private final Serializer serializer;
+    /**
+     * signatures of the methods, by index
+     */
+    private final MethodSignature[] signatures;
+    /**
+     * descriptors of the methods, by index
+     */
+    private final MethodDescriptor[] descriptors;
+    /**
+     * thresholds {@code Compress} assigns, by index
+     */
+    private final int[] compressThresholds;
+
+    /**
+     * @param client          client performing the calls
+     * @param interfaceId     identifier of the remote call interface
+     * @param serializerClass serializer {@code Remote} assigns
+     * @param methodNum       number of methods of the interface
+     */
+    protected RemoteStub(RemoteCallClient client, int interfaceId, Class<? extends Serializer> serializerClass, int methodNum) {
+        this.client = client;
+        this.interfaceId = interfaceId;
+        this.serializer = MethodDescriptor.serializerOf(serializerClass, client);
+        this.signatures = new MethodSignature[methodNum];
+        this.descriptors = new MethodDescriptor[methodNum];
+        this.compressThresholds = new int[methodNum];
+    }
+
+    /**
+     * describe a method annotated by {@code Sync}
+     *
+     * @param index         index of the method
+     * @param methodId      identifier of the method
+     * @param signature     name and parameter types
+     * @param resultType    return type
+     * @param timeoutMillis timeout {@code Sync} assigns
+     */
+    protected final void sync(int index, int methodId, String signature, Class<?> resultType, long timeoutMillis) {
+        describe(index, methodId, signature, MethodDescriptor.CallMode.SYNC, resultType, timeoutMillis);
+    }
+
+    /**
+     * describe a method annotated by {@code Async}
+     *
+     * @param index         index of the method
+     * @param methodId      identifier of the method
+     * @param signature     name and parameter types
+     * @param resultType    return type
+     * @param timeoutMillis timeout {@code Async} assigns
+     */
+    protected final void async(int index, int methodId, String signature, Class<?> resultType, long timeoutMillis) {
+        describe(index, methodId, signature, MethodDescriptor.CallMode.ASYNC, resultType, timeoutMillis);
+    }
+
+    /**
+     * describe a method returning {@code CompletableFuture} or {@code CompletionStage}
+     *
+     * @param index     index of the method
+     * @param methodId  identifier of the method
+     * @param signature name and parameter types
+     * @param valueType class of the future value
+     */
+    protected final void future(int index, int methodId, String signature, Class<?> valueType) {
+        describe(index, methodId, signature, MethodDescriptor.CallMode.FUTURE, valueType, 0);
+    }
+
+    /**
+     * describe a method returning {@code Flow.Publisher} annotated by {@code Stream}
+     *
+     * @param index         index of the method
+     * @param methodId      identifier of the method
+     * @param signature     name and parameter types
+     * @param itemType      class of the items
+     * @param timeoutMillis timeout {@code Stream} assigns
+     */
+    protected final void publisher(int index, int methodId, String signature, Class<?> itemType, long timeoutMillis) {
+        describe(index, methodId, signature, MethodDescriptor.CallMode.PUBLISHER, itemType, timeoutMillis);
+    }
+
+    /**
+     * describe a method returning {@code Iterator} annotated by {@code Stream}
+     *
+     * @param index         index of the method
+     * @param methodId      identifier of the method
+     * @param signature     name and parameter types
+     * @param itemType      class of the items
+     * @param timeoutMillis timeout {@code Stream} assigns
+     */
+    protected final void iterator(int index, int methodId, String signature, Class<?> itemType, long timeoutMillis) {
+        describe(index, methodId, signature, MethodDescriptor.CallMode.ITERATOR, itemType, timeoutMillis);
+    }
+
+    /**
+     * describe a method which is not a remote call
+     *
+     * @param index     index of the method
+     * @param methodId  identifier of the method
+     * @param signature name and parameter types
+     */
+    protected final void none(int index, int methodId, String signature) {
+        describe(index, methodId, signature, MethodDescriptor.CallMode.NONE, Object.class, 0);
+    }
+
+    /**
+     * compress arguments and result of a method, called before the method is described
+     *
+     * @param index     index of the method
+     * @param threshold min bytes to compress
+     */
+    protected final void compress(int index, int threshold) {
+        compressThresholds[index] = threshold;
+    }
+
+    /**
+     * declare the described methods to the server, called once all of them are described
+     */
+    protected final void declare() {
+        for (int i = 0; i < signatures.length; i++) {
+            if (signatures[i] == null) {
+                throw new RuntimeException(String.format("method %d of stub %s is not described", i, getClass().getName()));
+            }
+        }
+        client.declareMethods(Arrays.asList(signatures));
+    }
+
+    /**
+     * call a method described by {@code sync} and wait for its result
+     *
+     * @param index index of the method
+     * @param args  arguments
+     * @return result
+     */
+    protected final Object invokeSync(int index, Object[] args) {
+        return descriptors[index].callSync(args);
+    }
+
+    /**
+     * call a method described by {@code async}
+     *
+     * @param index    index of the method
+     * @param args     arguments
+     * @param callBack callback receiving the result
+     */
+    protected final void invokeAsync(int index, Object[] args, CallBack callBack) {
+        descriptors[index].callAsync(args, callBack);
+    }
+
+    /**
+     * call a method described by {@code future}
+     *
+     * @param index index of the method
+     * @param args  arguments
+     * @return future completed when the remote call returned
+     */
+    protected final CompletableFuture<Object> invokeFuture(int index, Object[] args) {
+        return descriptors[index].callFuture(args);
+    }
+
+    /**
+     * call a method described by {@code publisher}
+     *
+     * @param index index of the method
+     * @param args  arguments
+     * @return publisher performing the call for each subscriber
+     */
+    protected final Flow.Publisher<Object> invokePublisher(int index, Object[] args) {
+        return descriptors[index].callPublisher(args);
+    }
+
+    /**
+     * call a method described by {@code iterator}
+     *
+     * @param index index of the method
+     * @param args  arguments
+     * @return iterator over the streamed result
+     */
+    protected final Iterator<Object> invokeIterator(int index, Object[] args) {
+        return descriptors[index].callIterator(args);
+    }
+
+    private void describe(int index, int methodId, String signature, MethodDescriptor.CallMode callMode,
+                          Class<?> resultType, long timeoutMillis) {
+        MethodSignature methodSignature = new MethodSignature(interfaceId, methodId, signature);
+        signatures[index] = methodSignature;
+        descriptors[index] = new MethodDescriptor(methodSignature, callMode, serializer, resultType, timeoutMillis,
+                compressThresholds[index], null, client);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("stub of remote call interface %d", interfaceId);
+    }
+}
@@ -0,0 +1,139 @@
+package com.light.client;
+
+import com.light.common.Constant;
+import com.light.common.MethodSignature;
+import com.light.common.RemoteCallException;
+import com.light.common.Response;
+import com.light.common.ServerBusyException;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * complete pending calls of a connection with decoded responses.
+ * a opened connection first declares the method signatures of proxied interfaces in a handshake
+ *
+ * @author lihb
+ */
+@ChannelHandler.Sharable
+class ResponseHandler extends SimpleChannelInboundHandler<Response> {
+    private static final Logger logger = LoggerFactory.getLogger(ResponseHandler.class);
+    /**
+     * signatures of the methods of proxied interfaces
+     */
+    private final List<MethodSignature> declaredMethods;
+
+    ResponseHandler(List<MethodSignature> declaredMethods) {
+        this.declaredMethods = declaredMethods;
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        if (!declaredMethods.isEmpty()) {
+            ctx.writeAndFlush(RemoteCallClient.newHandshake(declaredMethods));
+        }
+        super.channelActive(ctx);
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, Response response) throws Exception {
+        if (response.getMsgId() == Constant.HANDSHAKE_MSG_ID) {
+            if (response.getStatus() != Response.STATUS_OK) {
+                logger.error("server {} rejected declared methods: {}", ctx.channel().remoteAddress(),
+                        new String(response.getBody(), StandardCharsets.UTF_8));
+            }
+            return;
+        }
+        PendingCallTable pendingCallTable = ctx.channel().attr(Connection.CONNECTION_KEY).get().pendingCallTable;
+        if (response.getStatus() == Response.STATUS_ITEM) {
+            receiveItem(ctx, pendingCallTable, response);
+            return;
+        }
+        PendingCall pendingCall = pendingCallTable.remove(response.getMsgId());
+        if (pendingCall == null) {
+            logger.debug("no pending call for message {}, it may be timed out", response.getMsgId());
+            return;
+        }
+        if (response.getStatus() == Response.STATUS_BUSY) {
+            pendingCall.completeExceptionally(new ServerBusyException(
+                    new String(response.getBody(), StandardCharsets.UTF_8)));
+            return;
+        }
+        if (response.getStatus() == Response.STATUS_END) {
+            pendingCall.complete(null);
+            return;
+        }
+        if (response.getStatus() != Response.STATUS_OK) {
+            pendingCall.completeExceptionally(new RemoteCallException(
+                    new String(response.getBody(), StandardCharsets.UTF_8)));
+            return;
+        }
+        if (response.getBody() == null) {
+            pendingCall.complete(response.getValue());
+            return;
+        }
+        if (pendingCall.metrics != null) {
+            pendingCall.metrics.addBytesIn(response.getBody().length);
+        }
+        Object result;
+        try {
+            result = pendingCall.serializer.deserialize(response.getBody(), pendingCall.returnType);
+        } catch (IOException e) {
+            pendingCall.completeExceptionally(new RemoteCallException("can not deserialize result", e));
+            return;
+        }
+        pendingCall.complete(result);
+    }
+
+    /**
+     * hand a item to the streamed call it belongs to, a item that can not be deserialized fails and cancels the stream
+     */
+    private static void receiveItem(ChannelHandlerContext ctx, PendingCallTable pendingCallTable, Response response) {
+        PendingCall pendingCall = pendingCallTable.get(response.getMsgId());
+        if (pendingCall == null) {
+            logger.debug("no pending call for item of message {}, its stream may be cancelled", response.getMsgId());
+            return;
+        }
+        if (response.getBody() == null) {
+            pendingCall.next(response.getValue());
+            return;
+        }
+        if (pendingCall.metrics != null) {
+            pendingCall.metrics.addBytesIn(response.getBody().length);
+        }
+        Object item;
+        try {
+            item = pendingCall.serializer.deserialize(response.getBody(), pendingCall.returnType);
+        } catch (IOException e) {
+            if (pendingCallTable.remove(response.getMsgId()) != null) {
+                ctx.writeAndFlush(RemoteCallClient.newStreamControl(response.getMsgId(), 0));
+                pendingCall.completeExceptionally(new RemoteCallException("can not deserialize item", e));
+            }
+            return;
+        }
+        pendingCall.next(item);
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        if (ctx.channel().isWritable()) {
+            ctx.channel().attr(Connection.CONNECTION_KEY).get().signalRoom();
+        }
+        super.channelWritabilityChanged(ctx);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        Connection connection = ctx.channel().attr(Connection.CONNECTION_KEY).get();
+        RemoteCallException cause = new RemoteCallException("connection to server closed");
+        connection.pendingCallTable.failAll(ctx.channel(), cause);
+        connection.failQueued(cause);
+        super.channelInactive(ctx);
+    }
+}
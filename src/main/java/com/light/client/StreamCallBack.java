@@ -0,0 +1,46 @@
+package com.light.client;
+
+/**
+ * define callback of a remote call whose result is streamed, assigned by {@code Async} like any callback.
+ * items are received one by one on the event loop of the connection as the server produces them,
+ * the server is granted more items once received ones are handled,
+ * so it is never more than the stream window of {@code RemoteCallClient} ahead
+ *
+ * @author lihb
+ */
+public interface StreamCallBack extends CallBack {
+    /**
+     * called with each item of the result
+     *
+     * @param item item
+     */
+    void onNext(Object item);
+
+    /**
+     * called when the result has no more items
+     */
+    void onComplete();
+
+    /**
+     * called when the remote call or its stream failed, no more items follow
+     *
+     * @param cause cause of the failure
+     */
+    @Override
+    void onError(Throwable cause);
+
+    /**
+     * the end of the stream
+     *
+     * @param result always null
+     */
+    @Override
+    default void onReceive(Object result) {
+        onComplete();
+    }
+
+    @Override
+    default Object getReturnValue() {
+        return null;
+    }
+}
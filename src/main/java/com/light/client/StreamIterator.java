@@ -0,0 +1,94 @@
+package com.light.client;
+
+import com.light.common.RemoteCallException;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * iterator over a streamed result, returned by methods returning {@code Iterator}.
+ * {@code hasNext} blocks until the next item arrived, up to the timeout of the call for each item.
+ * a caller leaving the stream before its end should close the iterator, so the server stops producing items
+ *
+ * @author lihb
+ */
+final class StreamIterator extends StreamReceiver implements Iterator<Object>, AutoCloseable {
+    /**
+     * received items, the end or a failure, bounded by the credits granted
+     */
+    private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+    private final long timeoutMillis;
+    /**
+     * head taken from the queue and not returned yet, only accessed by the consuming thread
+     */
+    private Object head;
+
+    StreamIterator(RemoteCallClient client, long timeoutMillis) {
+        super(client);
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public void onNext(Object item) {
+        if (!isCancelled()) {
+            queue.add(item == null ? NULL : item);
+        }
+    }
+
+    @Override
+    public void onComplete() {
+        queue.add(END);
+    }
+
+    @Override
+    public void onError(Throwable cause) {
+        queue.add(new Failure(cause));
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (head == null) {
+            try {
+                head = queue.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                close();
+                Thread.currentThread().interrupt();
+                throw new RemoteCallException("interrupted while waiting for next item", e);
+            }
+            if (head == null) {
+                close();
+                throw new RemoteCallException(String.format("no item arrived within %d ms", timeoutMillis));
+            }
+        }
+        if (head instanceof Failure) {
+            Throwable cause = ((Failure) head).cause;
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new RemoteCallException("remote call failed", cause);
+        }
+        return head != END;
+    }
+
+    @Override
+    public Object next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Object item = head;
+        head = null;
+        consumed(1);
+        return item == NULL ? null : item;
+    }
+
+    /**
+     * leave the stream, the server stops producing items
+     */
+    @Override
+    public void close() {
+        if (head != END && !(head instanceof Failure)) {
+            head = END;
+            cancelStream();
+        }
+    }
+}
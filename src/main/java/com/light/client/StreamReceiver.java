@@ -0,0 +1,139 @@
+package com.light.client;
+
+import com.light.common.Request;
+
+/**
+ * receiving side of a streamed result, registered as the callback of its call.
+ * the server is granted credits back in batches of half the window as items are consumed,
+ * so it is never more than a window ahead of the consumer
+ *
+ * @author lihb
+ */
+abstract class StreamReceiver implements StreamCallBack {
+    /**
+     * stands for a null item in a queue of received items
+     */
+    static final Object NULL = new Object();
+    /**
+     * stands for the end of the stream in a queue of received items
+     */
+    static final Object END = new Object();
+
+    private final RemoteCallClient client;
+    private final int window;
+    /**
+     * request of the stream, its message id is assigned once it is sent
+     */
+    private volatile Request request;
+    /**
+     * items consumed since credits were last granted
+     */
+    private int consumed;
+    private volatile boolean cancelled;
+
+    StreamReceiver(RemoteCallClient client) {
+        this.client = client;
+        this.window = client.getStreamWindow();
+    }
+
+    /**
+     * prepare the request of the stream before it is sent
+     *
+     * @param request request
+     */
+    void bind(Request request) {
+        request.setStreamCredit(window);
+        this.request = request;
+    }
+
+    /**
+     * note items as consumed, granting the server credits for them once half the window is consumed
+     *
+     * @param n number of items
+     */
+    final void consumed(int n) {
+        int credit;
+        synchronized (this) {
+            consumed += n;
+            if (consumed < Math.max(1, window / 2)) {
+                return;
+            }
+            credit = consumed;
+            consumed = 0;
+        }
+        grant(credit);
+    }
+
+    /**
+     * allow the server to send more items
+     *
+     * @param credit number of items
+     */
+    void grant(int credit) {
+        client.grantStream(request, credit);
+    }
+
+    /**
+     * stop the stream at the server, items still arriving are dropped
+     */
+    final void cancelStream() {
+        cancelled = true;
+        Request current = request;
+        if (current != null) {
+            client.cancelStream(current);
+        }
+    }
+
+    /**
+     * whether the stream was cancelled, a item arriving then cancels it again,
+     * since a request queued before it was sent could not be cancelled
+     *
+     * @return true if cancelled
+     */
+    final boolean isCancelled() {
+        if (cancelled) {
+            cancelStream();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * hand items to a callback of the user, each is consumed once the callback returned
+     */
+    static final class Forwarding extends StreamReceiver {
+        private final StreamCallBack callBack;
+
+        Forwarding(RemoteCallClient client, StreamCallBack callBack) {
+            super(client);
+            this.callBack = callBack;
+        }
+
+        @Override
+        public void onNext(Object item) {
+            callBack.onNext(item);
+            consumed(1);
+        }
+
+        @Override
+        public void onComplete() {
+            callBack.onComplete();
+        }
+
+        @Override
+        public void onError(Throwable cause) {
+            callBack.onError(cause);
+        }
+    }
+
+    /**
+     * stands for a failure of the stream in a queue of received items
+     */
+    static final class Failure {
+        final Throwable cause;
+
+        Failure(Throwable cause) {
+            this.cause = cause;
+        }
+    }
+}
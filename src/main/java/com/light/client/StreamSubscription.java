@@ -0,0 +1,115 @@
+package com.light.client;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * subscription to a streamed result, each subscriber of a publisher a method returned performs the call anew.
+ * received items are kept until the subscriber demands them, which grants the server credits for more
+ *
+ * @author lihb
+ */
+final class StreamSubscription extends StreamReceiver implements Flow.Subscription {
+    private final Flow.Subscriber<Object> subscriber;
+    /**
+     * received items, the end or a failure, bounded by the credits granted
+     */
+    private final Queue<Object> queue = new ConcurrentLinkedQueue<>();
+    /**
+     * items requested by the subscriber and not delivered yet
+     */
+    private final AtomicLong demand = new AtomicLong();
+    /**
+     * number of times delivery was asked for while delivering, so one thread delivers at a time
+     */
+    private final AtomicInteger wip = new AtomicInteger();
+    /**
+     * whether the subscriber received its last signal or cancelled
+     */
+    private volatile boolean done;
+
+    StreamSubscription(RemoteCallClient client, Flow.Subscriber<Object> subscriber) {
+        super(client);
+        this.subscriber = subscriber;
+    }
+
+    @Override
+    public void request(long n) {
+        if (n <= 0) {
+            cancelStream();
+            queue.add(new Failure(new IllegalArgumentException("non-positive number of items requested")));
+        } else {
+            demand.accumulateAndGet(n, (a, b) -> a + b < 0 ? Long.MAX_VALUE : a + b);
+        }
+        deliver();
+    }
+
+    @Override
+    public void cancel() {
+        done = true;
+        cancelStream();
+    }
+
+    @Override
+    public void onNext(Object item) {
+        if (!isCancelled()) {
+            queue.add(item == null ? NULL : item);
+            deliver();
+        }
+    }
+
+    @Override
+    public void onComplete() {
+        queue.add(END);
+        deliver();
+    }
+
+    @Override
+    public void onError(Throwable cause) {
+        queue.add(new Failure(cause));
+        deliver();
+    }
+
+    /**
+     * signal the subscriber as far as it demanded, the end or a failure needs no demand
+     */
+    private void deliver() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            long requested = demand.get();
+            long delivered = 0;
+            Object head;
+            while (!done && (head = queue.peek()) != null) {
+                if (head == END) {
+                    done = true;
+                    subscriber.onComplete();
+                } else if (head instanceof Failure) {
+                    done = true;
+                    subscriber.onError(((Failure) head).cause);
+                } else if (delivered < requested) {
+                    queue.poll();
+                    subscriber.onNext(head == NULL ? null : head);
+                    delivered++;
+                } else {
+                    break;
+                }
+            }
+            if (done) {
+                queue.clear();
+            }
+            if (delivered > 0) {
+                if (requested != Long.MAX_VALUE) {
+                    demand.addAndGet(-delivered);
+                }
+                consumed((int) delivered);
+            }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+}
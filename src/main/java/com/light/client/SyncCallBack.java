@@ -1,16 +1,62 @@
 package com.light.client;
 
+import java.util.concurrent.locks.LockSupport;
+
 /**
- * define callback of a sync remote call
+ * define callback of a sync remote call.
+ * it must be created by the thread that waits for the result,
+ * which parks in {@code await} until the result arrives.
+ * the result is published before the waiter is unparked, so a result arriving before {@code await} is not lost
  *
  * @author lihb
  */
 public class SyncCallBack extends AbstractCallBack {
+    private final Thread waiter = Thread.currentThread();
+    private volatile boolean done;
+    private volatile Throwable cause;
+
     @Override
     public void onReceive(Object result) {
-        synchronized (this) {
-            super.onReceive(result);
-            this.notifyAll();
+        super.onReceive(result);
+        done = true;
+        LockSupport.unpark(waiter);
+    }
+
+    @Override
+    public void onError(Throwable cause) {
+        this.cause = cause;
+        done = true;
+        LockSupport.unpark(waiter);
+    }
+
+    /**
+     * wait until the remote call finished
+     *
+     * @param timeoutMillis max time to wait
+     * @return true if finished, false if timed out
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    public boolean await(long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + timeoutMillis * 1_000_000L;
+        while (!done) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            LockSupport.parkNanos(this, remaining);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
         }
+        return true;
+    }
+
+    /**
+     * obtain the cause if the remote call failed
+     *
+     * @return cause or null if succeeded
+     */
+    public Throwable getCause() {
+        return cause;
     }
 }
@@ -0,0 +1,157 @@
+package com.light.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.util.concurrent.FastThreadLocal;
+
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * raw deflate of frame payloads, straight from byte arrays into pooled buffers and back.
+ * each thread reuses one deflater and one inflater, codecs run on event loops
+ *
+ * @author lihb
+ */
+final class Compression {
+    /**
+     * bytes a buffer is made writable by before each deflate step
+     */
+    private static final int MIN_WRITABLE_BYTES = 256;
+    private static final FastThreadLocal<Deflater> DEFLATER = new FastThreadLocal<Deflater>() {
+        @Override
+        protected Deflater initialValue() {
+            // fastest level, compression is for large payloads on the latency path
+            return new Deflater(Deflater.BEST_SPEED, true);
+        }
+
+        @Override
+        protected void onRemoval(Deflater value) {
+            value.end();
+        }
+    };
+    private static final FastThreadLocal<Inflater> INFLATER = new FastThreadLocal<Inflater>() {
+        @Override
+        protected Inflater initialValue() {
+            return new Inflater(true);
+        }
+
+        @Override
+        protected void onRemoval(Inflater value) {
+            value.end();
+        }
+    };
+
+    private Compression() {
+    }
+
+    /**
+     * upper bound of the deflated length of a payload, as zlib computes it,
+     * with room for the last deflate step so a buffer of this capacity does not grow
+     *
+     * @param length length of the payload
+     * @return bytes
+     */
+    static int maxDeflatedLength(int length) {
+        return length + (length >>> 12) + (length >>> 14) + MIN_WRITABLE_BYTES;
+    }
+
+    /**
+     * start a deflate stream
+     *
+     * @return deflater of the current thread, reset
+     */
+    static Deflater deflater() {
+        Deflater deflater = DEFLATER.get();
+        deflater.reset();
+        return deflater;
+    }
+
+    /**
+     * deflate bytes into a buffer, which grows as needed
+     *
+     * @param deflater deflater of the stream
+     * @param input    bytes
+     * @param out      buffer to write to
+     */
+    static void deflate(Deflater deflater, byte[] input, ByteBuf out) {
+        deflater.setInput(input);
+        while (!deflater.needsInput()) {
+            deflateStep(deflater, out);
+        }
+    }
+
+    /**
+     * end a deflate stream, writing what the deflater still holds
+     *
+     * @param deflater deflater of the stream
+     * @param out      buffer to write to
+     */
+    static void finish(Deflater deflater, ByteBuf out) {
+        deflater.finish();
+        while (!deflater.finished()) {
+            deflateStep(deflater, out);
+        }
+    }
+
+    private static void deflateStep(Deflater deflater, ByteBuf out) {
+        out.ensureWritable(MIN_WRITABLE_BYTES);
+        ByteBuffer output = out.internalNioBuffer(out.writerIndex(), out.writableBytes());
+        out.writerIndex(out.writerIndex() + deflater.deflate(output));
+    }
+
+    /**
+     * read the length a payload inflates to, which is rejected before anything is allocated
+     * if it is more than a uncompressed frame could carry
+     *
+     * @param in        buffer holding the length
+     * @param maxLength max length of a frame
+     * @return inflated length
+     */
+    static int readInflatedLength(ByteBuf in, int maxLength) {
+        int length = in.readInt();
+        if (length < 0 || length > maxLength) {
+            throw new CorruptedFrameException(String.format("compressed payload inflates to %d bytes, over the max frame length %d",
+                    length, maxLength));
+        }
+        return length;
+    }
+
+    /**
+     * start a inflate stream of the readable bytes of a buffer
+     *
+     * @param in buffer holding the deflated bytes
+     * @return inflater of the current thread, reading from the buffer
+     */
+    static Inflater inflater(ByteBuf in) {
+        Inflater inflater = INFLATER.get();
+        inflater.reset();
+        inflater.setInput(in.nioBuffer());
+        return inflater;
+    }
+
+    /**
+     * inflate exactly the given number of bytes
+     *
+     * @param inflater inflater of the stream
+     * @param output   array to inflate into
+     * @param offset   offset in the array
+     * @param length   number of bytes
+     */
+    static void inflate(Inflater inflater, byte[] output, int offset, int length) {
+        int end = offset + length;
+        try {
+            while (offset < end) {
+                int inflated = inflater.inflate(output, offset, end - offset);
+                if (inflated == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new CorruptedFrameException("compressed payload ends early");
+                }
+                offset += inflated;
+            }
+        } catch (DataFormatException e) {
+            throw new CorruptedFrameException("malformed compressed payload", e);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.light.codec;
+
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+
+/**
+ * split the inbound byte stream into frames
+ * <p>
+ * frameLength(4) | frame
+ * <p>
+ * bytes are accumulated across reads until a whole frame is available,
+ * and a read holding several frames yields all of them.
+ * the length field is stripped from the emitted frame
+ *
+ * @author lihb
+ */
+public class FrameDecoder extends LengthFieldBasedFrameDecoder {
+    public FrameDecoder(int maxFrameLength) {
+        super(maxFrameLength, 0, FrameEncoder.LENGTH_FIELD_LENGTH, 0, FrameEncoder.LENGTH_FIELD_LENGTH);
+    }
+}
@@ -0,0 +1,60 @@
+package com.light.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToByteEncoder;
+import io.netty.handler.codec.TooLongFrameException;
+
+/**
+ * encode a message as a frame {@code FrameDecoder} understands
+ * <p>
+ * the length field is reserved before the frame is written and filled in afterwards,
+ * so a message is encoded into a single direct buffer of the exact frame size
+ *
+ * @author lihb
+ */
+public abstract class FrameEncoder<T> extends MessageToByteEncoder<T> {
+    /**
+     * length of the frame length field
+     */
+    public static final int LENGTH_FIELD_LENGTH = 4;
+    private final int maxFrameLength;
+
+    protected FrameEncoder(Class<? extends T> outboundMessageType, int maxFrameLength) {
+        super(outboundMessageType);
+        this.maxFrameLength = maxFrameLength;
+    }
+
+    @Override
+    protected ByteBuf allocateBuffer(ChannelHandlerContext ctx, T msg, boolean preferDirect) throws Exception {
+        return ctx.alloc().directBuffer(LENGTH_FIELD_LENGTH + frameLength(msg));
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, T msg, ByteBuf out) throws Exception {
+        int lengthFieldIndex = out.writerIndex();
+        out.writeInt(0);
+        encodeFrame(msg, out);
+        int frameLength = out.writerIndex() - lengthFieldIndex - LENGTH_FIELD_LENGTH;
+        if (frameLength > maxFrameLength) {
+            throw new TooLongFrameException(String.format("frame length %d exceeds %d", frameLength, maxFrameLength));
+        }
+        out.setInt(lengthFieldIndex, frameLength);
+    }
+
+    /**
+     * compute the length of the frame of a message, without the length field
+     *
+     * @param msg message
+     * @return frame length
+     */
+    protected abstract int frameLength(T msg);
+
+    /**
+     * write the frame of a message, without the length field
+     *
+     * @param msg message
+     * @param out buffer to write to
+     */
+    protected abstract void encodeFrame(T msg, ByteBuf out) throws Exception;
+}
@@ -0,0 +1,86 @@
+package com.light.codec;
+
+import com.light.common.Request;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.MessageToMessageDecoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Inflater;
+
+/**
+ * decode a request frame written by {@code RequestEncoder}
+ *
+ * @author lihb
+ */
+public class RequestDecoder extends MessageToMessageDecoder<ByteBuf> {
+    /**
+     * max length of a frame, which bounds what a compressed frame may inflate to
+     */
+    private final int maxFrameLength;
+
+    public RequestDecoder(int maxFrameLength) {
+        this.maxFrameLength = maxFrameLength;
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf msg, List<Object> out) throws Exception {
+        Request request = new Request();
+        request.setMsgId(msg.readLong());
+        request.setRemoteCallInterfaceId(msg.readInt());
+        request.setSerializerId(msg.readByte());
+        request.setMethodId(msg.readInt());
+        int flags = msg.readByte();
+        if ((flags & RequestEncoder.FLAG_DEADLINE) != 0) {
+            request.setDeadlineNanos(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(msg.readInt()));
+        }
+        if ((flags & RequestEncoder.FLAG_COMPRESS) != 0) {
+            request.setCompressThreshold(msg.readInt());
+        }
+        if ((flags & RequestEncoder.FLAG_STREAM) != 0) {
+            request.setStreamCredit(msg.readInt());
+        }
+        request.setControl((flags & RequestEncoder.FLAG_CONTROL) != 0);
+        List<byte[]> args = new ArrayList<>();
+        if ((flags & RequestEncoder.FLAG_COMPRESSED) != 0) {
+            readCompressedArgs(msg, args);
+        } else {
+            while (msg.isReadable()) {
+                int argLength = msg.readInt();
+                if (argLength < 0 || argLength > msg.readableBytes()) {
+                    throw new CorruptedFrameException(String.format("argument length %d exceeds the %d bytes left",
+                            argLength, msg.readableBytes()));
+                }
+                byte[] arg = new byte[argLength];
+                msg.readBytes(arg);
+                args.add(arg);
+            }
+        }
+        request.setArgs(args);
+        out.add(request);
+    }
+
+    /**
+     * inflate each argument straight into its own array
+     */
+    private void readCompressedArgs(ByteBuf msg, List<byte[]> args) {
+        int remaining = Compression.readInflatedLength(msg, maxFrameLength);
+        Inflater inflater = Compression.inflater(msg);
+        byte[] argHeader = new byte[4];
+        while (remaining > 0) {
+            Compression.inflate(inflater, argHeader, 0, argHeader.length);
+            int argLength = (argHeader[0] & 0xFF) << 24 | (argHeader[1] & 0xFF) << 16 | (argHeader[2] & 0xFF) << 8 | argHeader[3] & 0xFF;
+            remaining -= argHeader.length;
+            if (argLength < 0 || argLength > remaining) {
+                throw new CorruptedFrameException(String.format("argument length %d exceeds the %d bytes left", argLength, remaining));
+            }
+            byte[] arg = new byte[argLength];
+            Compression.inflate(inflater, arg, 0, argLength);
+            args.add(arg);
+            remaining -= argLength;
+        }
+    }
+}
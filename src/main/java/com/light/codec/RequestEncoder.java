@@ -0,0 +1,209 @@
+package com.light.codec;
+
+import com.light.common.Constant;
+import com.light.common.Request;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToMessageEncoder;
+import io.netty.handler.codec.TooLongFrameException;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+/**
+ * encode a request sending to {@code RemoteCallServer}
+ * <p>
+ * frameLength(4) | msgId(8) | remoteCallInterfaceId(4) | serializerId(1) | methodId(4) | flags(1)
+ * | [timeoutMillis(4)] | [compressThreshold(4)] | [streamCredit(4)] | payload
+ * <p>
+ * timeoutMillis is present if flags has {@code FLAG_DEADLINE}, it is the time left before the caller stops waiting
+ * when the request is encoded, relative so the clocks of the two sides need not agree.
+ * compressThreshold is present if flags has {@code FLAG_COMPRESS}, the server compresses results of at least that many bytes.
+ * streamCredit is present if flags has {@code FLAG_STREAM}, the server streams the result and may send that many items at first.
+ * a request with {@code FLAG_CONTROL} performs no call and has no payload, it grants the stream of its msgId
+ * streamCredit more items, or cancels it if {@code FLAG_STREAM} is absent.
+ * <p>
+ * payload is (argLength(4) | arg)*, or if flags has {@code FLAG_COMPRESSED} rawLength(4) | the raw deflated arguments.
+ * arguments are compressed if their payload has at least compressThreshold bytes.
+ * <p>
+ * the frame is written into a single direct buffer of the exact size taken from the channel allocator.
+ * arguments of at least {@code Constant.ZERO_COPY_ARG_THRESHOLD} bytes are not copied,
+ * they are wrapped and composed with slices of that buffer instead, unless they are compressed
+ *
+ * @author lihb
+ */
+public class RequestEncoder extends MessageToMessageEncoder<Request> {
+    /**
+     * flag of a request carrying timeoutMillis
+     */
+    static final int FLAG_DEADLINE = 0x01;
+    /**
+     * flag of a request carrying compressThreshold
+     */
+    static final int FLAG_COMPRESS = 0x02;
+    /**
+     * flag of a request whose arguments are compressed
+     */
+    static final int FLAG_COMPRESSED = 0x04;
+    /**
+     * flag of a request carrying streamCredit
+     */
+    static final int FLAG_STREAM = 0x08;
+    /**
+     * flag of a stream control request
+     */
+    static final int FLAG_CONTROL = 0x10;
+    private static final int HEADER_LENGTH = 18;
+    private static final int DEADLINE_LENGTH = 4;
+    private static final int THRESHOLD_LENGTH = 4;
+    private static final int CREDIT_LENGTH = 4;
+    private static final int RAW_LENGTH_LENGTH = 4;
+    private static final int ARG_HEADER_LENGTH = 4;
+    private final int maxFrameLength;
+
+    public RequestEncoder(int maxFrameLength) {
+        super(Request.class);
+        this.maxFrameLength = maxFrameLength;
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, Request msg, List<Object> out) throws Exception {
+        List<byte[]> args = msg.getArgs();
+        int flags = 0;
+        int headerLength = HEADER_LENGTH;
+        if (msg.getDeadlineNanos() != 0) {
+            flags |= FLAG_DEADLINE;
+            headerLength += DEADLINE_LENGTH;
+        }
+        if (msg.getCompressThreshold() > 0) {
+            flags |= FLAG_COMPRESS;
+            headerLength += THRESHOLD_LENGTH;
+        }
+        if (msg.getStreamCredit() > 0) {
+            flags |= FLAG_STREAM;
+            headerLength += CREDIT_LENGTH;
+        }
+        if (msg.isControl()) {
+            flags |= FLAG_CONTROL;
+        }
+        int payloadLength = 0;
+        int copiedLength = 0;
+        int largeArgNum = 0;
+        for (byte[] arg : args) {
+            payloadLength += ARG_HEADER_LENGTH + arg.length;
+            copiedLength += ARG_HEADER_LENGTH;
+            if (arg.length >= Constant.ZERO_COPY_ARG_THRESHOLD) {
+                largeArgNum++;
+            } else {
+                copiedLength += arg.length;
+            }
+        }
+        if (msg.getCompressThreshold() > 0 && payloadLength >= msg.getCompressThreshold()) {
+            out.add(encodeCompressed(ctx, msg, flags | FLAG_COMPRESSED, headerLength, payloadLength));
+            return;
+        }
+        int frameLength = headerLength + payloadLength;
+        if (frameLength > maxFrameLength) {
+            throw new TooLongFrameException(String.format("frame length %d exceeds %d", frameLength, maxFrameLength));
+        }
+        ByteBuf buffer = ctx.alloc().directBuffer(FrameEncoder.LENGTH_FIELD_LENGTH + headerLength + copiedLength);
+        // the buffer is released once on every path, what is passed on holds its own reference
+        try {
+            buffer.writeInt(frameLength);
+            writeHeader(buffer, msg, flags);
+            if (largeArgNum == 0) {
+                for (byte[] arg : args) {
+                    buffer.writeInt(arg.length);
+                    buffer.writeBytes(arg);
+                }
+                out.add(buffer.retain());
+                return;
+            }
+            out.add(compose(ctx, buffer, args, largeArgNum));
+        } finally {
+            buffer.release();
+        }
+    }
+
+    /**
+     * compose the copied part of a request with its large arguments, which are wrapped instead of copied
+     */
+    private static CompositeByteBuf compose(ChannelHandlerContext ctx, ByteBuf buffer, List<byte[]> args, int largeArgNum) {
+        CompositeByteBuf composite = ctx.alloc().compositeDirectBuffer(largeArgNum * 2 + 1);
+        try {
+            int segmentIndex = 0;
+            for (byte[] arg : args) {
+                buffer.writeInt(arg.length);
+                if (arg.length < Constant.ZERO_COPY_ARG_THRESHOLD) {
+                    buffer.writeBytes(arg);
+                    continue;
+                }
+                composite.addComponent(true, buffer.retainedSlice(segmentIndex, buffer.writerIndex() - segmentIndex));
+                composite.addComponent(true, Unpooled.wrappedBuffer(arg));
+                segmentIndex = buffer.writerIndex();
+            }
+            if (buffer.writerIndex() > segmentIndex) {
+                composite.addComponent(true, buffer.retainedSlice(segmentIndex, buffer.writerIndex() - segmentIndex));
+            }
+            return composite;
+        } catch (Throwable e) {
+            composite.release();
+            throw e;
+        }
+    }
+
+    /**
+     * write a request whose arguments are deflated straight into the frame buffer
+     */
+    private ByteBuf encodeCompressed(ChannelHandlerContext ctx, Request msg, int flags, int headerLength, int payloadLength) {
+        ByteBuf buffer = ctx.alloc().directBuffer(FrameEncoder.LENGTH_FIELD_LENGTH + headerLength + RAW_LENGTH_LENGTH
+                + Compression.maxDeflatedLength(payloadLength));
+        try {
+            buffer.writeInt(0);
+            writeHeader(buffer, msg, flags);
+            buffer.writeInt(payloadLength);
+            Deflater deflater = Compression.deflater();
+            byte[] argHeader = new byte[ARG_HEADER_LENGTH];
+            for (byte[] arg : msg.getArgs()) {
+                argHeader[0] = (byte) (arg.length >>> 24);
+                argHeader[1] = (byte) (arg.length >>> 16);
+                argHeader[2] = (byte) (arg.length >>> 8);
+                argHeader[3] = (byte) arg.length;
+                Compression.deflate(deflater, argHeader, buffer);
+                Compression.deflate(deflater, arg, buffer);
+            }
+            Compression.finish(deflater, buffer);
+            int frameLength = buffer.readableBytes() - FrameEncoder.LENGTH_FIELD_LENGTH;
+            if (frameLength > maxFrameLength) {
+                throw new TooLongFrameException(String.format("frame length %d exceeds %d", frameLength, maxFrameLength));
+            }
+            buffer.setInt(0, frameLength);
+            return buffer;
+        } catch (Throwable e) {
+            buffer.release();
+            throw e;
+        }
+    }
+
+    private static void writeHeader(ByteBuf buffer, Request msg, int flags) {
+        buffer.writeLong(msg.getMsgId());
+        buffer.writeInt(msg.getRemoteCallInterfaceId());
+        buffer.writeByte(msg.getSerializerId());
+        buffer.writeInt(msg.getMethodId());
+        buffer.writeByte(flags);
+        if ((flags & FLAG_DEADLINE) != 0) {
+            // an expired request is still sent with 1ms left, the server drops it without running
+            long timeoutMillis = TimeUnit.NANOSECONDS.toMillis(msg.getDeadlineNanos() - System.nanoTime());
+            buffer.writeInt((int) Math.max(1, Math.min(timeoutMillis, Integer.MAX_VALUE)));
+        }
+        if ((flags & FLAG_COMPRESS) != 0) {
+            buffer.writeInt(msg.getCompressThreshold());
+        }
+        if ((flags & FLAG_STREAM) != 0) {
+            buffer.writeInt(msg.getStreamCredit());
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.light.codec;
+
+import com.light.common.Response;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToMessageDecoder;
+
+import java.util.List;
+
+/**
+ * decode a response frame written by {@code ResponseEncoder}
+ *
+ * @author lihb
+ */
+public class ResponseDecoder extends MessageToMessageDecoder<ByteBuf> {
+    /**
+     * max length of a frame, which bounds what a compressed frame may inflate to
+     */
+    private final int maxFrameLength;
+
+    public ResponseDecoder(int maxFrameLength) {
+        this.maxFrameLength = maxFrameLength;
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf msg, List<Object> out) throws Exception {
+        Response response = new Response();
+        response.setMsgId(msg.readLong());
+        response.setStatus(msg.readByte());
+        response.setSerializerId(msg.readByte());
+        byte[] body;
+        if ((msg.readByte() & ResponseEncoder.FLAG_COMPRESSED) != 0) {
+            body = new byte[Compression.readInflatedLength(msg, maxFrameLength)];
+            Compression.inflate(Compression.inflater(msg), body, 0, body.length);
+        } else {
+            body = new byte[msg.readableBytes()];
+            msg.readBytes(body);
+        }
+        response.setBody(body);
+        out.add(response);
+    }
+}
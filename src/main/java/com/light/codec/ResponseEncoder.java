@@ -0,0 +1,60 @@
+package com.light.codec;
+
+import com.light.common.Response;
+import io.netty.buffer.ByteBuf;
+
+import java.util.zip.Deflater;
+
+/**
+ * encode a response sending to {@code RemoteCallClient}
+ * <p>
+ * msgId(8) | status(1) | serializerId(1) | flags(1) | body
+ * <p>
+ * if flags has {@code FLAG_COMPRESSED} body is rawLength(4) | the raw deflated body.
+ * a body is compressed if it has at least the bytes its request asked to compress from
+ *
+ * @author lihb
+ */
+public class ResponseEncoder extends FrameEncoder<Response> {
+    /**
+     * flag of a response whose body is compressed
+     */
+    static final int FLAG_COMPRESSED = 0x01;
+    private static final int HEADER_LENGTH = 11;
+    private static final int RAW_LENGTH_LENGTH = 4;
+
+    public ResponseEncoder(int maxFrameLength) {
+        super(Response.class, maxFrameLength);
+    }
+
+    @Override
+    protected int frameLength(Response msg) {
+        int bodyLength = msg.getBody().length;
+        if (compressed(msg)) {
+            return HEADER_LENGTH + RAW_LENGTH_LENGTH + Compression.maxDeflatedLength(bodyLength);
+        }
+        return HEADER_LENGTH + bodyLength;
+    }
+
+    @Override
+    protected void encodeFrame(Response msg, ByteBuf out) throws Exception {
+        byte[] body = msg.getBody();
+        out.writeLong(msg.getMsgId());
+        out.writeByte(msg.getStatus());
+        out.writeByte(msg.getSerializerId());
+        if (!compressed(msg)) {
+            out.writeByte(0);
+            out.writeBytes(body);
+            return;
+        }
+        out.writeByte(FLAG_COMPRESSED);
+        out.writeInt(body.length);
+        Deflater deflater = Compression.deflater();
+        Compression.deflate(deflater, body, out);
+        Compression.finish(deflater, out);
+    }
+
+    private static boolean compressed(Response msg) {
+        return msg.getCompressThreshold() > 0 && msg.getBody().length >= msg.getCompressThreshold();
+    }
+}
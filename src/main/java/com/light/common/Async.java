@@ -21,5 +21,13 @@ public @interface Async {
      *
      * @return
      */
-    Class<CallBack> callBack();
+    Class<? extends CallBack> callBack();
+
+    /**
+     * max milliseconds to wait for the result, after which the callback receives a timeout error.
+     * non-positive means the default timeout of {@code RemoteCallClient}
+     *
+     * @return
+     */
+    long timeout() default 0;
 }
@@ -0,0 +1,25 @@
+package com.light.common;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * indicate compressing arguments and results of remote calls on {@code RemoteCallClient} side.
+ * on a interface it applies to all of its methods, on a method it overrides the one of the interface.
+ * the client asks for compressed results in each request, so the server needs no setting of its own
+ *
+ * @author lihb
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Compress {
+    /**
+     * min bytes of serialized arguments or result to compress, smaller ones are not worth the time.
+     * non-positive means no compression
+     *
+     * @return
+     */
+    int threshold() default Constant.DEFAULT_COMPRESS_THRESHOLD;
+}
@@ -6,7 +6,48 @@ package com.light.common;
 public class Constant {
     public static final String PACKAGE_NAME_REGEX = "[a-zA-Z]+[0-9a-zA-Z_]*(\\.[a-zA-Z]+[0-9a-zA-Z_]*)*";
     public static final String FILE_PROTOCOL = "file";
+    public static final String JAR_PROTOCOL = "jar";
     public static final String CLASS_FILE_SUFFIX = "class";
     public static final String IPV4_REGEX = "^(25[0-5]|2[0-4]\\d|[0-1]?\\d?\\d)(\\.(25[0-5]|2[0-4]\\d|[0-1]?\\d?\\d)){3}$";
     public static final String IPV6_REGEX = "^(([\\da-fA-F]{1,4}):){8}$";
+    public static final int DEFAULT_MAX_FRAME_LENGTH = 16 * 1024 * 1024;
+    public static final int ZERO_COPY_ARG_THRESHOLD = 8 * 1024;
+    public static final long DEFAULT_TIMEOUT_MILLIS = 5000;
+    /**
+     * tick of the timer evicting timed out calls, which fire up to a tick late
+     */
+    public static final long TIMEOUT_TICK_MILLIS = 10;
+    /**
+     * min bytes of arguments or result {@code Compress} compresses by default
+     */
+    public static final int DEFAULT_COMPRESS_THRESHOLD = 16 * 1024;
+    /**
+     * items a streamed result may be ahead of its consumer by
+     */
+    public static final int DEFAULT_STREAM_WINDOW = 64;
+    public static final int DEFAULT_MAX_PENDING_REQUESTS = 64 * 1024;
+    public static final int DEFAULT_DISPATCH_QUEUE_SIZE = 1024;
+    public static final int DEFAULT_MAX_QUEUED_REQUESTS = 16 * 1024;
+    public static final int DEFAULT_WRITE_BUFFER_LOW_WATER_MARK = 512 * 1024;
+    public static final int DEFAULT_WRITE_BUFFER_HIGH_WATER_MARK = 1024 * 1024;
+    /**
+     * remote call interface id of handshake requests, which carry encoded {@code MethodSignature}s as arguments
+     */
+    public static final int HANDSHAKE_INTERFACE_ID = 0;
+    /**
+     * message id of handshake requests and their responses
+     */
+    public static final long HANDSHAKE_MSG_ID = -1;
+    /**
+     * suffix of client stubs {@code RemoteProcessor} generates
+     */
+    public static final String STUB_SUFFIX = "_Stub";
+    /**
+     * suffix of server dispatchers {@code RemoteProcessor} generates
+     */
+    public static final String DISPATCHER_SUFFIX = "_Dispatcher";
+    /**
+     * classpath resource {@code RemoteProcessor} lists remote call interfaces in, one binary name per line
+     */
+    public static final String REMOTE_INDEX_LOCATION = "META-INF/light/remote.index";
 }
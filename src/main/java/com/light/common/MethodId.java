@@ -0,0 +1,24 @@
+package com.light.common;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * assign a fixed id to a method of a remote call interface.
+ * methods without it get a id derived from their signature
+ *
+ * @author lihb
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface MethodId {
+    /**
+     * identifier of the method, unique in its remote call interface
+     * used to identify the method through network
+     *
+     * @return
+     */
+    int value();
+}
@@ -0,0 +1,148 @@
+package com.light.common;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * numeric id and signature of a method of a remote call interface.
+ * requests carry the id only, signatures are exchanged once per connection in a handshake
+ * so both sides can tell whether a id means the same method to them
+ *
+ * @author lihb
+ */
+public final class MethodSignature {
+    /**
+     * identifier of the remote call interface
+     */
+    private final int interfaceId;
+    /**
+     * identifier of the method in the interface
+     */
+    private final int methodId;
+    /**
+     * name and parameter types, like {@code echo(java.lang.String,int[])}
+     */
+    private final String signature;
+
+    public MethodSignature(int interfaceId, int methodId, String signature) {
+        this.interfaceId = interfaceId;
+        this.methodId = methodId;
+        this.signature = signature;
+    }
+
+    /**
+     * resolve the methods of a remote call interface, except static and default ones and those of {@code Object}.
+     * default methods run locally on client side and are never called through network
+     *
+     * @param remoteCallInterface class object of remote call interface
+     * @param interfaceId         identifier of remote call interface
+     * @return signatures of the methods, in the order of {@code getMethods}
+     */
+    public static Map<Method, MethodSignature> resolve(Class<?> remoteCallInterface, int interfaceId) {
+        Map<Method, MethodSignature> signatures = new LinkedHashMap<>();
+        Map<Integer, Method> id2MethodMap = new HashMap<>();
+        for (Method method : remoteCallInterface.getMethods()) {
+            if (Modifier.isStatic(method.getModifiers()) || method.isDefault() || method.getDeclaringClass() == Object.class) {
+                continue;
+            }
+            String signature = signatureOf(method);
+            int methodId;
+            if (method.isAnnotationPresent(MethodId.class)) {
+                methodId = method.getAnnotation(MethodId.class).value();
+                if (methodId <= 0) {
+                    throw new RuntimeException(String.format("id that MethodId annotation assigned on %s should be a positive number", signature));
+                }
+            } else {
+                methodId = idOf(signature);
+            }
+            Method previous = id2MethodMap.put(methodId, method);
+            if (previous != null) {
+                throw new RuntimeException(String.format("methods %s and %s of remote call interface %s share id %d, assign distinct ids by MethodId",
+                        signatureOf(previous), signature, remoteCallInterface.getName(), methodId));
+            }
+            signatures.put(method, new MethodSignature(interfaceId, methodId, signature));
+        }
+        return signatures;
+    }
+
+    private static String signatureOf(Method method) {
+        StringBuilder builder = new StringBuilder(method.getName()).append('(');
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(parameterTypes[i].getTypeName());
+        }
+        return builder.append(')').toString();
+    }
+
+    /**
+     * id of a method without {@code MethodId}, which is a 32-bit FNV-1a of the UTF-8 signature masked to a positive number
+     *
+     * @param signature name and parameter types
+     * @return method id
+     */
+    public static int idOf(String signature) {
+        int hash = 0x811C9DC5;
+        for (byte b : signature.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x01000193;
+        }
+        hash &= Integer.MAX_VALUE;
+        return hash == 0 ? 1 : hash;
+    }
+
+    /**
+     * encode as a handshake entry
+     * <p>
+     * interfaceId(4) | methodId(4) | signature
+     *
+     * @return bytes
+     */
+    public byte[] encode() {
+        byte[] signatureBytes = signature.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(8 + signatureBytes.length).putInt(interfaceId).putInt(methodId).put(signatureBytes).array();
+    }
+
+    /**
+     * decode a handshake entry written by {@code encode}
+     *
+     * @param bytes bytes
+     * @return signature
+     */
+    public static MethodSignature decode(byte[] bytes) {
+        if (bytes.length < 8) {
+            throw new IllegalArgumentException(String.format("handshake entry of %d bytes is too short", bytes.length));
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new MethodSignature(buffer.getInt(), buffer.getInt(),
+                new String(bytes, 8, bytes.length - 8, StandardCharsets.UTF_8));
+    }
+
+    public int getInterfaceId() {
+        return interfaceId;
+    }
+
+    public int getMethodId() {
+        return methodId;
+    }
+
+    public String getSignature() {
+        return signature;
+    }
+
+    public String getMethodName() {
+        return signature.substring(0, signature.indexOf('('));
+    }
+
+    @Override
+    public String toString() {
+        return interfaceId + "#" + methodId + " " + signature;
+    }
+}
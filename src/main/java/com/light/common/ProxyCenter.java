@@ -2,11 +2,17 @@ package com.light.common;
 
 import com.light.client.ProxyInvocationHandler;
 import com.light.client.RemoteCallClient;
+import com.light.serializer.Serializer;
+import com.light.serializer.SerializerRegistry;
+import com.light.server.DispatchTable;
 import com.light.server.RemoteCallServer;
+import com.light.server.RemoteDispatcher;
 import com.light.utils.ClassScanner;
+import com.light.utils.Utils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Proxy;
 import java.util.List;
 import java.util.Map;
@@ -17,7 +23,9 @@ import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 /**
- * response for load remote call interfaces and generate proxy object for them
+ * response for load remote call interfaces and generate proxy object for them.
+ * stubs and dispatchers generated by {@code RemoteProcessor} are used when present,
+ * dynamic proxies and method handles otherwise
  *
  * @author lihb
  */
@@ -38,17 +46,28 @@ public final class ProxyCenter {
      * value -> proxy object that generated
      */
     private Map<Integer, Object> identifier2ProxyMap = new ConcurrentHashMap<>();
+    /**
+     * method handles of remote call instances, used for dispatching on {@code RemoteCallServer} side
+     */
+    private final DispatchTable dispatchTable;
+    /**
+     * whether classes generated by {@code RemoteProcessor} are used when present
+     */
+    private boolean generatedClassesEnabled = true;
 
     public ProxyCenter(RemoteCallClient client) {
         this.client = client;
+        this.dispatchTable = new DispatchTable();
     }
 
     public ProxyCenter(RemoteCallServer server) {
         this.server = server;
+        this.dispatchTable = new DispatchTable(server.getMetrics());
     }
 
     /**
-     * scan remote call instances which is annotated by {@code Remote}
+     * scan remote call interfaces which is annotated by {@code Remote}, in the package and its sub packages.
+     * a index {@code RemoteProcessor} generated is used instead of scanning where present
      *
      * @param packageName full qualified package name for scanning
      * @return true if loaded successfully or false if failed
@@ -58,7 +77,7 @@ public final class ProxyCenter {
         if (!Pattern.matches(Constant.PACKAGE_NAME_REGEX, packageName)) {
             throw new RuntimeException(String.format("not a valid package name:%s", packageName));
         }
-        Set<Class<?>> classSet = ClassScanner.scan(packageName, false);
+        Set<Class<?>> classSet = ClassScanner.scanRemoteInterfaces(packageName, true);
         List<Class<?>> remoteCallClasses = classSet.stream().filter(clazz -> clazz.isAnnotationPresent(Remote.class) && clazz.isInterface())
                 .collect(Collectors.toList());
         addManagedRemoteCallInterfaces(remoteCallClasses);
@@ -101,15 +120,78 @@ public final class ProxyCenter {
                 throw new RuntimeException(String.format("Class %s need contain a default constructor",
                         instanceClass.getName()));
             }
+            RemoteDispatcher dispatcher = (RemoteDispatcher) newGeneratedInstance(remoteCallInterface, Constant.DISPATCHER_SUFFIX,
+                    remoteCallInterface, proxy);
+            Serializer serializer = boundSerializerOf(remoteAnnotation);
+            if (dispatcher != null) {
+                dispatchTable.register(identifier, dispatcher, serializer);
+            } else {
+                dispatchTable.register(identifier, remoteCallInterface, proxy, serializer);
+            }
             logger.debug("adding remote call interface:%s, identifier:%d, instance:%s", remoteCallInterface.getName(), identifier, instanceClass.getName());
         } else {
-            proxy = Proxy.newProxyInstance(Thread.currentThread().getContextClassLoader(), new Class[]{remoteCallInterface}, new ProxyInvocationHandler(client));
+            // proxies on RemoteCallServer side have no client to call through
+            proxy = client == null ? null : newGeneratedInstance(remoteCallInterface, Constant.STUB_SUFFIX, RemoteCallClient.class, client);
+            if (proxy == null) {
+                proxy = Proxy.newProxyInstance(Thread.currentThread().getContextClassLoader(), new Class[]{remoteCallInterface}, new ProxyInvocationHandler(client, remoteCallInterface));
+            }
             logger.debug("adding remote call interface:%s, identifier:%d", remoteCallInterface.getName(), identifier);
         }
         identifier2ProxyMap.put(identifier, proxy);
         remoteCallInterface2ProxyMap.put(remoteCallInterface, proxy);
     }
 
+    /**
+     * serializer a interface served here is bound to, which is not enabled for other interfaces
+     *
+     * @param remoteAnnotation annotation of the interface
+     * @return serializer, null if the interface accepts the serializers enabled for all interfaces
+     */
+    private Serializer boundSerializerOf(Remote remoteAnnotation) {
+        Class<? extends Serializer> serializerClass = remoteAnnotation.serializer();
+        if (serializerClass == Serializer.class) {
+            return null;
+        }
+        Serializer serializer = server == null ? null : server.getSerializerRegistry().get(serializerClass);
+        return serializer != null ? serializer : SerializerRegistry.newInstance(serializerClass);
+    }
+
+    /**
+     * create the stub or dispatcher {@code RemoteProcessor} generated for a remote call interface
+     *
+     * @param remoteCallInterface class object of remote call interface
+     * @param suffix              suffix of the generated class
+     * @param parameterType       parameter type of its constructor
+     * @param argument            argument of its constructor
+     * @return instance or null if disabled or not generated
+     */
+    private Object newGeneratedInstance(Class<?> remoteCallInterface, String suffix, Class<?> parameterType, Object argument) {
+        if (!generatedClassesEnabled) {
+            return null;
+        }
+        String className = Utils.generatedClassName(remoteCallInterface.getName(), suffix);
+        Class<?> generatedClass;
+        try {
+            generatedClass = Class.forName(className, true, remoteCallInterface.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+        if (!remoteCallInterface.isAssignableFrom(generatedClass) && !RemoteDispatcher.class.isAssignableFrom(generatedClass)) {
+            throw new RuntimeException(String.format("Class %s is neither a stub nor a dispatcher of %s", className, remoteCallInterface.getName()));
+        }
+        try {
+            return generatedClass.getConstructor(parameterType).newInstance(argument);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(String.format("can not create %s", className), e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException(String.format("Class %s need contain a public constructor with parameter %s",
+                    className, parameterType.getName()), e);
+        }
+    }
+
     /**
      * add remote call interfaces to {@code ProxyCenter} for manage
      *
@@ -141,4 +223,27 @@ public final class ProxyCenter {
     public Object getProxy(int identifier) {
         return identifier2ProxyMap.get(identifier);
     }
+
+    public boolean isGeneratedClassesEnabled() {
+        return generatedClassesEnabled;
+    }
+
+    /**
+     * whether stubs and dispatchers generated by {@code RemoteProcessor} are used when present,
+     * takes effect for interfaces added afterwards
+     *
+     * @param generatedClassesEnabled false to always use dynamic proxies and method handles
+     */
+    public void setGeneratedClassesEnabled(boolean generatedClassesEnabled) {
+        this.generatedClassesEnabled = generatedClassesEnabled;
+    }
+
+    /**
+     * obtain the dispatch table of remote call instances
+     *
+     * @return dispatch table
+     */
+    public DispatchTable getDispatchTable() {
+        return dispatchTable;
+    }
 }
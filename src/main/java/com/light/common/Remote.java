@@ -1,5 +1,7 @@
 package com.light.common;
 
+import com.light.serializer.Serializer;
+
 import java.lang.annotation.*;
 
 /**
@@ -17,4 +19,13 @@ public @interface Remote {
      * @return
      */
     int identifier();
+
+    /**
+     * class object of the serializer for arguments and results of this interface.
+     * {@code Serializer} itself means the serializer of {@code RemoteCallClient} is used,
+     * and the server accepts any serializer enabled on it. otherwise the server accepts this serializer alone
+     *
+     * @return
+     */
+    Class<? extends Serializer> serializer() default Serializer.class;
 }
@@ -0,0 +1,18 @@
+package com.light.common;
+
+/**
+ * thrown when a remote call can not be completed
+ *
+ * @author lihb
+ */
+public class RemoteCallException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public RemoteCallException(String message) {
+        super(message);
+    }
+
+    public RemoteCallException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
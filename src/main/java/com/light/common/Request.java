@@ -1,5 +1,7 @@
 package com.light.common;
 
+import com.light.metrics.MethodMetrics;
+
 import java.util.List;
 
 /**
@@ -13,17 +15,51 @@ public final class Request {
      */
     private long msgId;
     /**
-     *
+     * identifier of the remote call interface
      */
     private int remoteCallInterfaceId;
     /**
-     * name of a remote call method
+     * identifier of the serializer arguments are serialized with
+     */
+    private byte serializerId;
+    /**
+     * identifier of a remote call method in its interface, see {@code MethodSignature}
+     */
+    private int methodId;
+    /**
+     * name of a remote call method, for metrics and messages on {@code RemoteCallClient} side, never encoded
      */
     private String methodName;
+    /**
+     * metrics of the remote call method on {@code RemoteCallClient} side, resolved once per method, never encoded
+     */
+    private MethodMetrics metrics;
     /**
      * arguments of a remote call method
      */
     private List<byte[]> args;
+    /**
+     * arguments passed by reference instead of {@code args} over the local transport, never encoded
+     */
+    private Object[] argValues;
+    /**
+     * {@code System.nanoTime()} the caller stops waiting at, 0 if it waits forever.
+     * it is sent as the remaining milliseconds since clocks of the two sides are not comparable
+     */
+    private long deadlineNanos;
+    /**
+     * min bytes of arguments and result to compress, 0 if neither is compressed
+     */
+    private int compressThreshold;
+    /**
+     * items the server may stream before it is granted more, 0 if the result is not streamed
+     */
+    private int streamCredit;
+    /**
+     * whether this is a stream control request, which performs no call but grants the stream of its message id
+     * {@code streamCredit} more items, or cancels it if {@code streamCredit} is 0
+     */
+    private boolean control;
 
     public long getMsgId() {
         return msgId;
@@ -33,7 +69,7 @@ public final class Request {
         this.msgId = msgId;
     }
 
-    public long getRemoteCallInterfaceId() {
+    public int getRemoteCallInterfaceId() {
         return remoteCallInterfaceId;
     }
 
@@ -41,6 +77,72 @@ public final class Request {
         this.remoteCallInterfaceId = remoteCallInterfaceId;
     }
 
+    public byte getSerializerId() {
+        return serializerId;
+    }
+
+    public void setSerializerId(byte serializerId) {
+        this.serializerId = serializerId;
+    }
+
+    public Object[] getArgValues() {
+        return argValues;
+    }
+
+    public void setArgValues(Object[] argValues) {
+        this.argValues = argValues;
+    }
+
+    public long getDeadlineNanos() {
+        return deadlineNanos;
+    }
+
+    public void setDeadlineNanos(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    public int getCompressThreshold() {
+        return compressThreshold;
+    }
+
+    public void setCompressThreshold(int compressThreshold) {
+        this.compressThreshold = compressThreshold;
+    }
+
+    public int getStreamCredit() {
+        return streamCredit;
+    }
+
+    public void setStreamCredit(int streamCredit) {
+        this.streamCredit = streamCredit;
+    }
+
+    public boolean isControl() {
+        return control;
+    }
+
+    public void setControl(boolean control) {
+        this.control = control;
+    }
+
+    /**
+     * whether the caller stopped waiting for the result
+     *
+     * @param nowNanos {@code System.nanoTime()}
+     * @return true if the deadline passed
+     */
+    public boolean isExpired(long nowNanos) {
+        return deadlineNanos != 0 && nowNanos - deadlineNanos >= 0;
+    }
+
+    public int getMethodId() {
+        return methodId;
+    }
+
+    public void setMethodId(int methodId) {
+        this.methodId = methodId;
+    }
+
     public String getMethodName() {
         return methodName;
     }
@@ -49,6 +151,14 @@ public final class Request {
         this.methodName = methodName;
     }
 
+    public MethodMetrics getMetrics() {
+        return metrics;
+    }
+
+    public void setMetrics(MethodMetrics metrics) {
+        this.metrics = metrics;
+    }
+
     public List<byte[]> getArgs() {
         return args;
     }
@@ -5,4 +5,97 @@ package com.light.common;
  * @author lihb
  */
 public final class Response {
+    /**
+     * the remote call returned, body is the serialized return value
+     */
+    public static final byte STATUS_OK = 0;
+    /**
+     * the remote call failed, body is the UTF-8 encoded error message
+     */
+    public static final byte STATUS_ERROR = 1;
+    /**
+     * the server had no room to run the remote call and did not invoke it, body is the UTF-8 encoded reason
+     */
+    public static final byte STATUS_BUSY = 2;
+    /**
+     * the remote call streams its result, body is the next serialized item and more responses follow
+     */
+    public static final byte STATUS_ITEM = 3;
+    /**
+     * the streamed result of the remote call has no more items, body is empty
+     */
+    public static final byte STATUS_END = 4;
+
+    /**
+     * id of the request message this response answers
+     */
+    private long msgId;
+    /**
+     * status of the remote call
+     */
+    private byte status;
+    /**
+     * identifier of the serializer body is serialized with
+     */
+    private byte serializerId;
+    /**
+     * serialized return value or error message of a remote call method
+     */
+    private byte[] body;
+    /**
+     * result passed by reference instead of {@code body} over the local transport, never encoded
+     */
+    private Object value;
+    /**
+     * min bytes of body to compress, 0 if it is never compressed, taken from the request
+     */
+    private int compressThreshold;
+
+    public long getMsgId() {
+        return msgId;
+    }
+
+    public void setMsgId(long msgId) {
+        this.msgId = msgId;
+    }
+
+    public byte getStatus() {
+        return status;
+    }
+
+    public void setStatus(byte status) {
+        this.status = status;
+    }
+
+    public byte getSerializerId() {
+        return serializerId;
+    }
+
+    public void setSerializerId(byte serializerId) {
+        this.serializerId = serializerId;
+    }
+
+    public Object getValue() {
+        return value;
+    }
+
+    public void setValue(Object value) {
+        this.value = value;
+    }
+
+    public int getCompressThreshold() {
+        return compressThreshold;
+    }
+
+    public void setCompressThreshold(int compressThreshold) {
+        this.compressThreshold = compressThreshold;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    public void setBody(byte[] body) {
+        this.body = body;
+    }
 }
@@ -0,0 +1,14 @@
+package com.light.common;
+
+/**
+ * thrown when the server had no room to run a remote call, the call was not invoked and may be retried later
+ *
+ * @author lihb
+ */
+public class ServerBusyException extends RemoteCallException {
+    private static final long serialVersionUID = 1L;
+
+    public ServerBusyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,25 @@
+package com.light.common;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * indicate streaming the items of a {@code Iterator} or {@code Flow.Publisher} result on {@code RemoteCallClient} side.
+ * the items arrive as the server produces them and the consumer grants it more, so the call itself has no deadline.
+ * a method returning one of them without this annotation is called like any other method
+ *
+ * @author lihb
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Stream {
+    /**
+     * max milliseconds a {@code Iterator} waits for each item, a {@code Flow.Publisher} is not timed.
+     * non-positive means the default timeout of {@code RemoteCallClient}
+     *
+     * @return
+     */
+    long timeout() default 0;
+}
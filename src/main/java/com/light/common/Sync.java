@@ -13,4 +13,11 @@ import java.lang.annotation.Target;
 @Target(ElementType.METHOD)
 @Retention(RetentionPolicy.RUNTIME)
 public @interface Sync {
+    /**
+     * max milliseconds to wait for the result.
+     * non-positive means the default timeout of {@code RemoteCallClient}
+     *
+     * @return
+     */
+    long timeout() default 0;
 }
@@ -0,0 +1,117 @@
+package com.light.common;
+
+import io.netty.channel.Channel;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalChannel;
+import io.netty.channel.local.LocalServerChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+
+/**
+ * netty transport used by {@code RemoteCallClient} and {@code RemoteCallServer}
+ *
+ * @author lihb
+ */
+public enum TransportType {
+    /**
+     * epoll if available, otherwise nio
+     */
+    AUTO,
+    /**
+     * linux native epoll, falls back to nio if the native library can not be loaded
+     */
+    EPOLL,
+    /**
+     * java nio
+     */
+    NIO,
+    /**
+     * in-JVM channels for client and server in the same process.
+     * requests and responses are handed over as objects without framing,
+     * the server is addressed by its port alone
+     */
+    LOCAL;
+
+    private static final Logger logger = LoggerFactory.getLogger(TransportType.class);
+
+    /**
+     * resolve to the transport actually usable on this machine
+     *
+     * @return {@code EPOLL}, {@code NIO} or {@code LOCAL}
+     */
+    public TransportType resolve() {
+        if (this == NIO || this == LOCAL) {
+            return this;
+        }
+        if (Epoll.isAvailable()) {
+            return EPOLL;
+        }
+        if (this == EPOLL) {
+            logger.warn("epoll transport is unavailable, fall back to nio", Epoll.unavailabilityCause());
+        }
+        return NIO;
+    }
+
+    /**
+     * create a event loop group, call this on a resolved transport
+     *
+     * @param threadNum number of threads, 0 means the netty default
+     * @return event loop group
+     */
+    public EventLoopGroup newEventLoopGroup(int threadNum) {
+        switch (this) {
+            case EPOLL:
+                return new EpollEventLoopGroup(threadNum);
+            case LOCAL:
+                return new DefaultEventLoopGroup(threadNum);
+            default:
+                return new NioEventLoopGroup(threadNum);
+        }
+    }
+
+    public Class<? extends ServerChannel> serverChannelClass() {
+        switch (this) {
+            case EPOLL:
+                return EpollServerSocketChannel.class;
+            case LOCAL:
+                return LocalServerChannel.class;
+            default:
+                return NioServerSocketChannel.class;
+        }
+    }
+
+    public Class<? extends Channel> channelClass() {
+        switch (this) {
+            case EPOLL:
+                return EpollSocketChannel.class;
+            case LOCAL:
+                return LocalChannel.class;
+            default:
+                return NioSocketChannel.class;
+        }
+    }
+
+    /**
+     * address of a server, call this on a resolved transport
+     *
+     * @param host host, ignored by {@code LOCAL}
+     * @param port port
+     * @return socket address
+     */
+    public SocketAddress address(String host, int port) {
+        return this == LOCAL ? new LocalAddress("light-rpc-" + port) : new InetSocketAddress(host, port);
+    }
+}
@@ -0,0 +1,70 @@
+package com.light.metrics;
+
+/**
+ * immutable copy of a {@code LatencyHistogram}
+ *
+ * @author lihb
+ */
+public final class HistogramSnapshot {
+    private final long[] counts;
+    private final long count;
+    private final long sum;
+    private final long max;
+
+    HistogramSnapshot(long[] counts, long sum, long max) {
+        long total = 0;
+        for (long bucketCount : counts) {
+            total += bucketCount;
+        }
+        this.counts = counts;
+        this.count = total;
+        this.sum = sum;
+        this.max = max;
+    }
+
+    /**
+     * number of recorded values
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * sum of recorded values in nanoseconds
+     */
+    public long getSum() {
+        return sum;
+    }
+
+    /**
+     * largest recorded value in nanoseconds
+     */
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * value in nanoseconds that the given share of recorded values do not exceed
+     *
+     * @param percentile between 0 and 100
+     * @return value, 0 if nothing is recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100, percentile) / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(LatencyHistogram.bucketUpperBound(i), max);
+            }
+        }
+        return max;
+    }
+}
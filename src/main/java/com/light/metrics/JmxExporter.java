@@ -0,0 +1,126 @@
+package com.light.metrics;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * expose a {@code MetricsRegistry} as a read-only MBean named
+ * {@code com.light:type=RemoteCallMetrics,side=<side>,name=<name>}.
+ * attributes are {@code <interface id>.<method>.<metric>} plus the gauges, latencies are in microseconds
+ *
+ * @author lihb
+ */
+public final class JmxExporter {
+    private JmxExporter() {
+    }
+
+    /**
+     * register a registry to the platform MBean server
+     *
+     * @param registry metrics registry
+     * @return name of the registered MBean
+     */
+    public static ObjectName register(MetricsRegistry registry) {
+        try {
+            ObjectName objectName = new ObjectName(String.format("com.light:type=RemoteCallMetrics,side=%s,name=%s",
+                    registry.getSide(), ObjectName.quote(registry.getName())));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsMBean(registry), objectName);
+            return objectName;
+        } catch (JMException e) {
+            throw new RuntimeException(String.format("can not register metrics %s to JMX", registry.getName()), e);
+        }
+    }
+
+    public static void unregister(ObjectName objectName) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            throw new RuntimeException(String.format("can not unregister %s from JMX", objectName), e);
+        }
+    }
+
+    private static final class MetricsMBean implements DynamicMBean {
+        private final MetricsRegistry registry;
+
+        MetricsMBean(MetricsRegistry registry) {
+            this.registry = registry;
+        }
+
+        private Map<String, Long> attributes() {
+            MetricsSnapshot snapshot = registry.snapshot();
+            Map<String, Long> attributes = new LinkedHashMap<>(snapshot.getGauges());
+            for (MethodSnapshot method : snapshot.getMethods()) {
+                String prefix = method.getInterfaceId() + "." + method.getMethodName() + ".";
+                HistogramSnapshot latency = method.getLatency();
+                attributes.put(prefix + "calls", method.getCalls());
+                attributes.put(prefix + "errors", method.getErrors());
+                attributes.put(prefix + "bytesIn", method.getBytesIn());
+                attributes.put(prefix + "bytesOut", method.getBytesOut());
+                attributes.put(prefix + "inFlight", method.getInFlight());
+                attributes.put(prefix + "p50Micros", latency.getValueAtPercentile(50) / 1000);
+                attributes.put(prefix + "p99Micros", latency.getValueAtPercentile(99) / 1000);
+                attributes.put(prefix + "p999Micros", latency.getValueAtPercentile(99.9) / 1000);
+                attributes.put(prefix + "maxMicros", latency.getMax() / 1000);
+            }
+            return attributes;
+        }
+
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            Long value = attributes().get(attribute);
+            if (value == null) {
+                throw new AttributeNotFoundException(attribute);
+            }
+            return value;
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] names) {
+            Map<String, Long> attributes = attributes();
+            AttributeList list = new AttributeList();
+            for (String name : names) {
+                Long value = attributes.get(name);
+                if (value != null) {
+                    list.add(new Attribute(name, value));
+                }
+            }
+            return list;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) {
+            throw new UnsupportedOperationException("metrics are read-only");
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) {
+            throw new UnsupportedOperationException("metrics have no operations");
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            List<MBeanAttributeInfo> infos = new ArrayList<>();
+            for (String name : attributes().keySet()) {
+                infos.add(new MBeanAttributeInfo(name, Long.class.getName(), name, true, false, false));
+            }
+            return new MBeanInfo(MetricsMBean.class.getName(), "remote call metrics",
+                    infos.toArray(new MBeanAttributeInfo[0]), null, null, null);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.light.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * lock-free histogram of nanosecond latencies.
+ * every power of two is split into {@code SUB_BUCKET_COUNT} linear buckets,
+ * so a recorded value is reported at most 12.5% above its real value.
+ * buckets are striped by thread the way {@code LongAdder} stripes its cells, so threads recording at once
+ * seldom write the same cache line, and a snapshot adds the stripes up
+ *
+ * @author lihb
+ */
+public final class LatencyHistogram {
+    static final int SUB_BUCKET_BITS = 3;
+    static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+    /**
+     * number of stripes, the processors rounded up to a power of two and capped as a stripe holds every bucket
+     */
+    static final int STRIPE_COUNT = Math.min(8, Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)));
+    /**
+     * slot of a stripe holding the largest value recorded to it, after the buckets
+     */
+    private static final int MAX_SLOT = BUCKET_COUNT;
+
+    /**
+     * stripes of bucket counts, created as threads first record to them
+     */
+    private final AtomicReferenceArray<AtomicLongArray> stripes = new AtomicReferenceArray<>(STRIPE_COUNT);
+    private final LongAdder sum = new LongAdder();
+
+    /**
+     * record a latency
+     *
+     * @param nanos latency in nanoseconds, negative values count as 0
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        AtomicLongArray stripe = stripe();
+        stripe.incrementAndGet(bucketIndex(value));
+        sum.add(value);
+        long current = stripe.get(MAX_SLOT);
+        while (value > current && !stripe.compareAndSet(MAX_SLOT, current, value)) {
+            current = stripe.get(MAX_SLOT);
+        }
+    }
+
+    /**
+     * copy out the current distribution, recording may go on concurrently
+     *
+     * @return snapshot
+     */
+    public HistogramSnapshot snapshot() {
+        long[] counts = new long[BUCKET_COUNT];
+        long max = 0;
+        for (int s = 0; s < STRIPE_COUNT; s++) {
+            AtomicLongArray stripe = stripes.get(s);
+            if (stripe == null) {
+                continue;
+            }
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                counts[i] += stripe.get(i);
+            }
+            max = Math.max(max, stripe.get(MAX_SLOT));
+        }
+        return new HistogramSnapshot(counts, sum.sum(), max);
+    }
+
+    /**
+     * stripe of the current thread
+     */
+    private AtomicLongArray stripe() {
+        // spread sequential thread ids over the stripes
+        int index = (int) ((Thread.currentThread().getId() * 0x9E3779B97F4A7C15L) >>> 32) & (STRIPE_COUNT - 1);
+        AtomicLongArray stripe = stripes.get(index);
+        if (stripe == null) {
+            stripes.compareAndSet(index, null, new AtomicLongArray(BUCKET_COUNT + 1));
+            stripe = stripes.get(index);
+        }
+        return stripe;
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    /**
+     * largest value falling into a bucket
+     */
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        long lower = (long) (SUB_BUCKET_COUNT + index % SUB_BUCKET_COUNT) << shift;
+        return lower + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,74 @@
+package com.light.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * metrics of one method of a remote call interface on one side
+ *
+ * @author lihb
+ */
+public final class MethodMetrics {
+    private final int interfaceId;
+    private final String methodName;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    /**
+     * serialized payload received, results on client side and arguments on server side
+     */
+    private final LongAdder bytesIn = new LongAdder();
+    /**
+     * serialized payload sent, arguments on client side and results on server side
+     */
+    private final LongAdder bytesOut = new LongAdder();
+    private final LongAdder inFlight = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    MethodMetrics(int interfaceId, String methodName) {
+        this.interfaceId = interfaceId;
+        this.methodName = methodName;
+    }
+
+    /**
+     * a call started
+     *
+     * @return {@code System.nanoTime()} to pass to {@code succeed} or {@code fail}
+     */
+    public long start() {
+        inFlight.increment();
+        return System.nanoTime();
+    }
+
+    /**
+     * a call finished with a result
+     *
+     * @param startNanos value returned by {@code start}
+     */
+    public void succeed(long startNanos) {
+        latency.record(System.nanoTime() - startNanos);
+        calls.increment();
+        inFlight.decrement();
+    }
+
+    /**
+     * a call finished with a error, including timeouts and broken connections
+     *
+     * @param startNanos value returned by {@code start}
+     */
+    public void fail(long startNanos) {
+        errors.increment();
+        succeed(startNanos);
+    }
+
+    public void addBytesIn(long bytes) {
+        bytesIn.add(bytes);
+    }
+
+    public void addBytesOut(long bytes) {
+        bytesOut.add(bytes);
+    }
+
+    public MethodSnapshot snapshot() {
+        return new MethodSnapshot(interfaceId, methodName, calls.sum(), errors.sum(), bytesIn.sum(), bytesOut.sum(),
+                inFlight.sum(), latency.snapshot());
+    }
+}
@@ -0,0 +1,67 @@
+package com.light.metrics;
+
+/**
+ * immutable copy of {@code MethodMetrics}
+ *
+ * @author lihb
+ */
+public final class MethodSnapshot {
+    private final int interfaceId;
+    private final String methodName;
+    private final long calls;
+    private final long errors;
+    private final long bytesIn;
+    private final long bytesOut;
+    private final long inFlight;
+    private final HistogramSnapshot latency;
+
+    MethodSnapshot(int interfaceId, String methodName, long calls, long errors, long bytesIn, long bytesOut,
+                   long inFlight, HistogramSnapshot latency) {
+        this.interfaceId = interfaceId;
+        this.methodName = methodName;
+        this.calls = calls;
+        this.errors = errors;
+        this.bytesIn = bytesIn;
+        this.bytesOut = bytesOut;
+        this.inFlight = inFlight;
+        this.latency = latency;
+    }
+
+    public int getInterfaceId() {
+        return interfaceId;
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+
+    /**
+     * finished calls, including failed ones
+     */
+    public long getCalls() {
+        return calls;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    public long getBytesIn() {
+        return bytesIn;
+    }
+
+    public long getBytesOut() {
+        return bytesOut;
+    }
+
+    public long getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * latency distribution in nanoseconds
+     */
+    public HistogramSnapshot getLatency() {
+        return latency;
+    }
+}
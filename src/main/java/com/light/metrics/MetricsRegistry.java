@@ -0,0 +1,94 @@
+package com.light.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * metrics of a {@code RemoteCallClient} or a {@code RemoteCallServer}, per remote call method
+ *
+ * @author lihb
+ */
+public final class MetricsRegistry {
+    /**
+     * {@code client} or {@code server}
+     */
+    private final String side;
+    /**
+     * distinguish registries of the same side in one JVM
+     */
+    private volatile String name;
+    /**
+     * key -> identifier of remote call interface
+     * value -> metrics by method name
+     */
+    private final Map<Integer, Map<String, MethodMetrics>> methodMetricsMap = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    public MetricsRegistry(String side, String name) {
+        this.side = side;
+        this.name = name;
+    }
+
+    public String getSide() {
+        return side;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * rename the registry, for one created before what distinguishes it is known, such as the port a server is given
+     *
+     * @param name new name, exporters registered already keep the old one
+     */
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * obtain metrics of a method, created on first use
+     *
+     * @param interfaceId identifier of remote call interface
+     * @param methodName  method name
+     * @return metrics
+     */
+    public MethodMetrics method(int interfaceId, String methodName) {
+        Map<String, MethodMetrics> methods = methodMetricsMap.get(interfaceId);
+        if (methods == null) {
+            methods = methodMetricsMap.computeIfAbsent(interfaceId, id -> new ConcurrentHashMap<>());
+        }
+        MethodMetrics metrics = methods.get(methodName);
+        if (metrics == null) {
+            metrics = methods.computeIfAbsent(methodName, method -> new MethodMetrics(interfaceId, method));
+        }
+        return metrics;
+    }
+
+    /**
+     * register a value read when a snapshot is taken, such as the number of pending requests
+     *
+     * @param gaugeName name of the value
+     * @param gauge     supplier of the value
+     */
+    public void registerGauge(String gaugeName, LongSupplier gauge) {
+        gauges.put(gaugeName, gauge);
+    }
+
+    public MetricsSnapshot snapshot() {
+        List<MethodSnapshot> methods = new ArrayList<>();
+        for (Map<String, MethodMetrics> methodMetrics : methodMetricsMap.values()) {
+            for (MethodMetrics metrics : methodMetrics.values()) {
+                methods.add(metrics.snapshot());
+            }
+        }
+        Map<String, Long> gaugeValues = new LinkedHashMap<>();
+        gauges.forEach((gaugeName, gauge) -> gaugeValues.put(gaugeName, gauge.getAsLong()));
+        return new MetricsSnapshot(side, name, Collections.unmodifiableList(methods), Collections.unmodifiableMap(gaugeValues));
+    }
+}
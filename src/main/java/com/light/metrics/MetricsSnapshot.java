@@ -0,0 +1,39 @@
+package com.light.metrics;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * immutable copy of a {@code MetricsRegistry}
+ *
+ * @author lihb
+ */
+public final class MetricsSnapshot {
+    private final String side;
+    private final String name;
+    private final List<MethodSnapshot> methods;
+    private final Map<String, Long> gauges;
+
+    MetricsSnapshot(String side, String name, List<MethodSnapshot> methods, Map<String, Long> gauges) {
+        this.side = side;
+        this.name = name;
+        this.methods = methods;
+        this.gauges = gauges;
+    }
+
+    public String getSide() {
+        return side;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<MethodSnapshot> getMethods() {
+        return methods;
+    }
+
+    public Map<String, Long> getGauges() {
+        return gauges;
+    }
+}
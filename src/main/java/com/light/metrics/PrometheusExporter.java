@@ -0,0 +1,168 @@
+package com.light.metrics;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpServerCodec;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.ToLongFunction;
+
+/**
+ * serve metrics registries in the prometheus text format on {@code http://<host>:<port>/metrics}
+ *
+ * @author lihb
+ */
+public final class PrometheusExporter {
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final String host;
+    private final int port;
+    private final List<MetricsRegistry> registries = new CopyOnWriteArrayList<>();
+    private EventLoopGroup eventLoopGroup;
+    private Channel channel;
+
+    public PrometheusExporter(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    public void addRegistry(MetricsRegistry registry) {
+        registries.add(registry);
+    }
+
+    public void removeRegistry(MetricsRegistry registry) {
+        registries.remove(registry);
+    }
+
+    public void start() throws InterruptedException {
+        eventLoopGroup = new NioEventLoopGroup(1);
+        MetricsHandler handler = new MetricsHandler();
+        channel = new ServerBootstrap().group(eventLoopGroup).channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) throws Exception {
+                        ch.pipeline().addLast(new HttpServerCodec())
+                                .addLast(new HttpObjectAggregator(4096))
+                                .addLast(handler);
+                    }
+                }).bind(host, port).sync().channel();
+    }
+
+    public void stop() {
+        channel.close().syncUninterruptibly();
+        eventLoopGroup.shutdownGracefully();
+    }
+
+    /**
+     * write snapshots in the prometheus text format
+     *
+     * @param snapshots snapshots of registries
+     * @return text
+     */
+    public static String format(List<MetricsSnapshot> snapshots) {
+        StringBuilder text = new StringBuilder();
+        writeMethodFamily(text, snapshots, "light_rpc_calls_total", "counter", "finished remote calls", MethodSnapshot::getCalls);
+        writeMethodFamily(text, snapshots, "light_rpc_errors_total", "counter", "failed remote calls", MethodSnapshot::getErrors);
+        writeMethodFamily(text, snapshots, "light_rpc_bytes_in_total", "counter", "serialized payload bytes received", MethodSnapshot::getBytesIn);
+        writeMethodFamily(text, snapshots, "light_rpc_bytes_out_total", "counter", "serialized payload bytes sent", MethodSnapshot::getBytesOut);
+        writeMethodFamily(text, snapshots, "light_rpc_in_flight", "gauge", "remote calls in progress", MethodSnapshot::getInFlight);
+        text.append("# HELP light_rpc_latency_seconds latency of remote calls\n");
+        text.append("# TYPE light_rpc_latency_seconds summary\n");
+        for (MetricsSnapshot snapshot : snapshots) {
+            for (MethodSnapshot method : snapshot.getMethods()) {
+                String labels = methodLabels(snapshot, method);
+                HistogramSnapshot latency = method.getLatency();
+                for (double quantile : QUANTILES) {
+                    text.append("light_rpc_latency_seconds{").append(labels).append(",quantile=\"").append(quantile).append("\"} ")
+                            .append(latency.getValueAtPercentile(quantile * 100) / 1e9).append('\n');
+                }
+                text.append("light_rpc_latency_seconds_sum{").append(labels).append("} ").append(latency.getSum() / 1e9).append('\n');
+                text.append("light_rpc_latency_seconds_count{").append(labels).append("} ").append(latency.getCount()).append('\n');
+            }
+        }
+        List<String> gaugeNames = new ArrayList<>();
+        for (MetricsSnapshot snapshot : snapshots) {
+            for (String gaugeName : snapshot.getGauges().keySet()) {
+                if (!gaugeNames.contains(gaugeName)) {
+                    gaugeNames.add(gaugeName);
+                }
+            }
+        }
+        for (String gaugeName : gaugeNames) {
+            text.append("# TYPE light_rpc_").append(gaugeName).append(" gauge\n");
+            for (MetricsSnapshot snapshot : snapshots) {
+                Long value = snapshot.getGauges().get(gaugeName);
+                if (value != null) {
+                    text.append("light_rpc_").append(gaugeName).append('{').append(registryLabels(snapshot)).append("} ")
+                            .append(value).append('\n');
+                }
+            }
+        }
+        return text.toString();
+    }
+
+    private static void writeMethodFamily(StringBuilder text, List<MetricsSnapshot> snapshots, String family, String type,
+                                          String help, ToLongFunction<MethodSnapshot> value) {
+        text.append("# HELP ").append(family).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(family).append(' ').append(type).append('\n');
+        for (MetricsSnapshot snapshot : snapshots) {
+            for (MethodSnapshot method : snapshot.getMethods()) {
+                text.append(family).append('{').append(methodLabels(snapshot, method)).append("} ")
+                        .append(value.applyAsLong(method)).append('\n');
+            }
+        }
+    }
+
+    private static String registryLabels(MetricsSnapshot snapshot) {
+        return "side=\"" + snapshot.getSide() + "\",name=\"" + escape(snapshot.getName()) + "\"";
+    }
+
+    private static String methodLabels(MetricsSnapshot snapshot, MethodSnapshot method) {
+        return registryLabels(snapshot) + ",interface=\"" + method.getInterfaceId() + "\",method=\"" + escape(method.getMethodName()) + "\"";
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    @ChannelHandler.Sharable
+    private final class MetricsHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) throws Exception {
+            FullHttpResponse response;
+            if (request.uri().equals("/metrics") || request.uri().startsWith("/metrics?")) {
+                List<MetricsSnapshot> snapshots = new ArrayList<>(registries.size());
+                for (MetricsRegistry registry : registries) {
+                    snapshots.add(registry.snapshot());
+                }
+                ByteBuf body = ByteBufUtil.writeUtf8(ctx.alloc(), format(snapshots));
+                response = new DefaultFullHttpResponse(request.protocolVersion(), HttpResponseStatus.OK, body);
+                response.headers().set(HttpHeaderNames.CONTENT_TYPE, CONTENT_TYPE);
+            } else {
+                response = new DefaultFullHttpResponse(request.protocolVersion(), HttpResponseStatus.NOT_FOUND);
+            }
+            response.headers().setInt(HttpHeaderNames.CONTENT_LENGTH, response.content().readableBytes());
+            ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+        }
+    }
+}
@@ -0,0 +1,547 @@
+package com.light.processor;
+
+import com.light.common.Async;
+import com.light.common.Compress;
+import com.light.common.Constant;
+import com.light.common.Instance;
+import com.light.common.MethodId;
+import com.light.common.MethodSignature;
+import com.light.common.Remote;
+import com.light.common.Stream;
+import com.light.common.Sync;
+import com.light.utils.Utils;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.MirroredTypeException;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * generate a client stub and, for interfaces with a {@code Instance}, a server dispatcher
+ * for every interface annotated by {@code Remote}.
+ * the stub extends {@code RemoteStub} and the dispatcher implements {@code RemoteDispatcher},
+ * {@code ProxyCenter} picks both up by name instead of creating dynamic proxies and method handles.
+ * generated code stops at the call, it does not serialize: {@code Serializer} takes any {@code Object},
+ * so a call per parameter would be the same interface call and box primitives all the same.
+ * interfaces with type parameters are skipped and keep using dynamic proxies,
+ * methods inherited from a generic interface are written with the type arguments the remote call interface binds.
+ * all of the interfaces are also listed in a index, so {@code ProxyCenter} finds them without scanning the classpath
+ *
+ * @author lihb
+ */
+@SupportedAnnotationTypes("com.light.common.Remote")
+public class RemoteProcessor extends AbstractProcessor {
+    private static final String COMPLETABLE_FUTURE = "java.util.concurrent.CompletableFuture";
+    private static final String COMPLETION_STAGE = "java.util.concurrent.CompletionStage";
+    private static final String PUBLISHER = "java.util.concurrent.Flow.Publisher";
+    private static final String ITERATOR = "java.util.Iterator";
+    private static final String SERIALIZER = "com.light.serializer.Serializer";
+    /**
+     * methods of {@code RemoteStub} a interface method must not clash with
+     */
+    private static final Set<String> STUB_METHOD_NAMES = new HashSet<>(Arrays.asList(
+            "sync", "async", "future", "publisher", "iterator", "none", "compress", "declare",
+            "invokeSync", "invokeAsync", "invokeFuture", "invokePublisher", "invokeIterator"));
+    /**
+     * binary names of remote call interfaces met in all rounds, written to the index when processing is over
+     */
+    private final Set<String> indexedInterfaces = new TreeSet<>();
+    private final List<Element> indexOriginatingElements = new ArrayList<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(Remote.class)) {
+            if (element.getKind() != ElementKind.INTERFACE) {
+                continue;
+            }
+            TypeElement remoteCallInterface = (TypeElement) element;
+            indexedInterfaces.add(processingEnv.getElementUtils().getBinaryName(remoteCallInterface).toString());
+            indexOriginatingElements.add(remoteCallInterface);
+            try {
+                List<RemoteMethod> methods = resolve(remoteCallInterface);
+                if (methods == null) {
+                    continue;
+                }
+                writeStub(remoteCallInterface, methods);
+                if (remoteCallInterface.getAnnotation(Instance.class) != null) {
+                    writeDispatcher(remoteCallInterface, methods);
+                }
+            } catch (IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        String.format("can not generate classes for %s: %s", remoteCallInterface.getQualifiedName(), e), remoteCallInterface);
+            }
+        }
+        if (roundEnv.processingOver() && !indexedInterfaces.isEmpty()) {
+            writeIndex();
+        }
+        return false;
+    }
+
+    /**
+     * write the index of remote call interfaces, keeping interfaces of a earlier compilation which still exist
+     * so compiling part of the sources does not drop them
+     */
+    private void writeIndex() {
+        Filer filer = processingEnv.getFiler();
+        try {
+            FileObject previous = filer.getResource(StandardLocation.CLASS_OUTPUT, "", Constant.REMOTE_INDEX_LOCATION);
+            try (BufferedReader reader = new BufferedReader(previous.openReader(true))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    line = line.trim();
+                    TypeElement type = line.isEmpty() ? null : processingEnv.getElementUtils().getTypeElement(line.replace('$', '.'));
+                    if (type != null && type.getAnnotation(Remote.class) != null) {
+                        indexedInterfaces.add(line);
+                    }
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            // no earlier index
+        }
+        try (Writer writer = filer.createResource(StandardLocation.CLASS_OUTPUT, "", Constant.REMOTE_INDEX_LOCATION,
+                indexOriginatingElements.toArray(new Element[0])).openWriter()) {
+            for (String name : indexedInterfaces) {
+                writer.write(name);
+                writer.write('\n');
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    String.format("can not write %s: %s", Constant.REMOTE_INDEX_LOCATION, e));
+        }
+    }
+
+    /**
+     * resolve the methods a stub implements, the same ones {@code MethodSignature} resolves except default methods
+     *
+     * @return methods or null if the interface is skipped
+     */
+    private List<RemoteMethod> resolve(TypeElement remoteCallInterface) {
+        if (!remoteCallInterface.getTypeParameters().isEmpty()) {
+            note(remoteCallInterface, "generic remote call interface %s keeps using a dynamic proxy", remoteCallInterface.getQualifiedName());
+            return null;
+        }
+        List<RemoteMethod> methods = new ArrayList<>();
+        Map<Integer, RemoteMethod> id2MethodMap = new HashMap<>();
+        for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(remoteCallInterface))) {
+            Set<Modifier> modifiers = method.getModifiers();
+            if (!modifiers.contains(Modifier.ABSTRACT) || modifiers.contains(Modifier.STATIC)
+                    || method.getEnclosingElement().getKind() != ElementKind.INTERFACE) {
+                continue;
+            }
+            if (!method.getTypeParameters().isEmpty()) {
+                note(method, "generic method %s of %s keeps the interface on a dynamic proxy", method.getSimpleName(), remoteCallInterface.getQualifiedName());
+                return null;
+            }
+            if (STUB_METHOD_NAMES.contains(method.getSimpleName().toString())) {
+                note(method, "method %s of %s clashes with RemoteStub, the interface keeps using a dynamic proxy",
+                        method.getSimpleName(), remoteCallInterface.getQualifiedName());
+                return null;
+            }
+            ExecutableType type = (ExecutableType) processingEnv.getTypeUtils().asMemberOf((DeclaredType) remoteCallInterface.asType(), method);
+            RemoteMethod remoteMethod = new RemoteMethod(method, type);
+            MethodId methodId = method.getAnnotation(MethodId.class);
+            if (methodId != null && methodId.value() <= 0) {
+                error(method, "id that MethodId annotation assigned on %s should be a positive number", remoteMethod.signature);
+                return null;
+            }
+            remoteMethod.methodId = methodId == null ? MethodSignature.idOf(remoteMethod.signature) : methodId.value();
+            RemoteMethod previous = id2MethodMap.put(remoteMethod.methodId, remoteMethod);
+            if (previous != null) {
+                error(method, "methods %s and %s of remote call interface %s share id %d, assign distinct ids by MethodId",
+                        previous.signature, remoteMethod.signature, remoteCallInterface.getQualifiedName(), remoteMethod.methodId);
+                return null;
+            }
+            if (!resolveCallMode(remoteMethod)) {
+                return null;
+            }
+            Compress compress = method.getAnnotation(Compress.class);
+            if (compress == null) {
+                compress = method.getEnclosingElement().getAnnotation(Compress.class);
+            }
+            remoteMethod.compressThreshold = compress == null ? 0 : Math.max(compress.threshold(), 0);
+            methods.add(remoteMethod);
+        }
+        return methods;
+    }
+
+    /**
+     * decide how a method is called, the same way {@code MethodDescriptor} does
+     */
+    private boolean resolveCallMode(RemoteMethod method) {
+        TypeMirror returnType = method.element.getReturnType();
+        String rawReturnType = erasure(returnType);
+        Stream stream = method.element.getAnnotation(Stream.class);
+        boolean streamed = rawReturnType.equals(PUBLISHER) || rawReturnType.equals(ITERATOR);
+        if (stream != null && !streamed) {
+            error(method.element, "method %s annotated by Stream should return a Iterator or Flow.Publisher", method.element.getSimpleName());
+            return false;
+        }
+        if (rawReturnType.equals(COMPLETABLE_FUTURE) || rawReturnType.equals(COMPLETION_STAGE) || stream != null) {
+            if (stream != null) {
+                method.callMode = rawReturnType.equals(PUBLISHER) ? "publisher" : "iterator";
+                method.timeoutMillis = stream.timeout();
+            } else {
+                method.callMode = "future";
+            }
+            List<? extends TypeMirror> typeArguments = ((DeclaredType) returnType).getTypeArguments();
+            TypeMirror valueType = typeArguments.isEmpty() ? null : typeArguments.get(0);
+            method.resultType = valueType == null || valueType.getKind() != TypeKind.DECLARED && valueType.getKind() != TypeKind.ARRAY
+                    ? "java.lang.Object" : erasure(valueType);
+            return true;
+        }
+        method.resultType = erasure(returnType);
+        Sync sync = method.element.getAnnotation(Sync.class);
+        if (sync != null) {
+            method.callMode = "sync";
+            method.timeoutMillis = sync.timeout();
+            return true;
+        }
+        Async async = method.element.getAnnotation(Async.class);
+        if (async != null) {
+            method.callMode = "async";
+            method.timeoutMillis = async.timeout();
+            TypeMirror callBack;
+            try {
+                async.callBack();
+                throw new IllegalStateException("class value of a annotation is not available while processing");
+            } catch (MirroredTypeException e) {
+                callBack = e.getTypeMirror();
+            }
+            TypeElement callBackElement = (TypeElement) processingEnv.getTypeUtils().asElement(callBack);
+            boolean hasConstructor = ElementFilter.constructorsIn(callBackElement.getEnclosedElements()).stream()
+                    .anyMatch(constructor -> constructor.getParameters().isEmpty() && constructor.getModifiers().contains(Modifier.PUBLIC));
+            if (!callBackElement.getModifiers().contains(Modifier.PUBLIC) || callBackElement.getModifiers().contains(Modifier.ABSTRACT)
+                    || !hasConstructor) {
+                error(method.element, "CallBack class %s assigned on %s do not have a public default constructor",
+                        callBackElement.getQualifiedName(), method.element.getSimpleName());
+                return false;
+            }
+            method.callBack = erasure(callBack);
+            return true;
+        }
+        method.callMode = "none";
+        return true;
+    }
+
+    private void writeStub(TypeElement remoteCallInterface, List<RemoteMethod> methods) throws IOException {
+        String packageName = packageOf(remoteCallInterface);
+        String className = simpleName(Utils.generatedClassName(binaryName(remoteCallInterface), Constant.STUB_SUFFIX));
+        String serializer;
+        try {
+            remoteCallInterface.getAnnotation(Remote.class).serializer();
+            serializer = SERIALIZER;
+        } catch (MirroredTypeException e) {
+            serializer = erasure(e.getTypeMirror());
+        }
+        StringBuilder out = new StringBuilder();
+        header(out, packageName, remoteCallInterface);
+        out.append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n");
+        out.append("public final class ").append(className).append(" extends com.light.client.RemoteStub implements ")
+                .append(remoteCallInterface.getQualifiedName()).append(" {\n");
+        out.append("    public ").append(className).append("(com.light.client.RemoteCallClient client) {\n");
+        out.append("        super(client, ").append(remoteCallInterface.getAnnotation(Remote.class).identifier()).append(", ").append(serializer).append(".class, ")
+                .append(methods.size()).append(");\n");
+        for (int i = 0; i < methods.size(); i++) {
+            RemoteMethod method = methods.get(i);
+            if (method.compressThreshold > 0) {
+                out.append("        compress(").append(i).append(", ").append(method.compressThreshold).append(");\n");
+            }
+            out.append("        ").append(method.callMode).append('(').append(i).append(", ").append(method.methodId)
+                    .append(", ").append(stringLiteral(method.signature));
+            switch (method.callMode) {
+                case "sync":
+                case "async":
+                case "publisher":
+                case "iterator":
+                    out.append(", ").append(method.resultType).append(".class, ").append(method.timeoutMillis).append('L');
+                    break;
+                case "none":
+                    break;
+                default:
+                    out.append(", ").append(method.resultType).append(".class");
+                    break;
+            }
+            out.append(");\n");
+        }
+        out.append("        declare();\n");
+        out.append("    }\n");
+        for (int i = 0; i < methods.size(); i++) {
+            writeStubMethod(out, i, methods.get(i));
+        }
+        out.append("}\n");
+        write(packageName, className, out, remoteCallInterface);
+    }
+
+    private void writeStubMethod(StringBuilder out, int index, RemoteMethod method) {
+        TypeMirror returnType = method.type.getReturnType();
+        out.append("\n    @Override\n    public ").append(returnType).append(' ').append(method.element.getSimpleName()).append('(');
+        List<? extends TypeMirror> parameters = method.type.getParameterTypes();
+        StringBuilder args = new StringBuilder("new Object[]{");
+        for (int i = 0; i < parameters.size(); i++) {
+            if (i > 0) {
+                out.append(", ");
+                args.append(", ");
+            }
+            out.append(parameters.get(i)).append(" arg").append(i);
+            args.append("arg").append(i);
+        }
+        args.append('}');
+        out.append(") {\n");
+        boolean isVoid = returnType.getKind() == TypeKind.VOID;
+        switch (method.callMode) {
+            case "sync":
+                out.append("        ");
+                if (!isVoid) {
+                    out.append("return (").append(boxed(returnType)).append(") ");
+                }
+                out.append("invokeSync(").append(index).append(", ").append(args).append(");\n");
+                break;
+            case "future":
+                out.append("        return (").append(erasure(returnType)).append(") invokeFuture(").append(index).append(", ")
+                        .append(args).append(");\n");
+                break;
+            case "publisher":
+            case "iterator":
+                out.append("        return (").append(erasure(returnType)).append(") invoke")
+                        .append(method.callMode.equals("publisher") ? "Publisher" : "Iterator").append('(').append(index)
+                        .append(", ").append(args).append(");\n");
+                break;
+            case "async":
+                out.append("        invokeAsync(").append(index).append(", ").append(args).append(", new ")
+                        .append(method.callBack).append("());\n");
+                appendDefaultReturn(out, returnType);
+                break;
+            default:
+                appendDefaultReturn(out, returnType);
+                break;
+        }
+        out.append("    }\n");
+    }
+
+    private void writeDispatcher(TypeElement remoteCallInterface, List<RemoteMethod> methods) throws IOException {
+        String packageName = packageOf(remoteCallInterface);
+        String className = simpleName(Utils.generatedClassName(binaryName(remoteCallInterface), Constant.DISPATCHER_SUFFIX));
+        String interfaceName = remoteCallInterface.getQualifiedName().toString();
+        int interfaceId = remoteCallInterface.getAnnotation(Remote.class).identifier();
+        StringBuilder out = new StringBuilder();
+        header(out, packageName, remoteCallInterface);
+        out.append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n");
+        out.append("public final class ").append(className).append(" implements com.light.server.RemoteDispatcher {\n");
+        out.append("    private static final com.light.common.MethodSignature[] SIGNATURES = {\n");
+        for (RemoteMethod method : methods) {
+            out.append("            new com.light.common.MethodSignature(").append(interfaceId).append(", ")
+                    .append(method.methodId).append(", ").append(stringLiteral(method.signature)).append("),\n");
+        }
+        out.append("    };\n");
+        // erasures of the declared types, as {@code DispatchTable} reflects them, so arguments are read alike with or without a dispatcher
+        out.append("    private static final Class<?>[][] PARAMETER_TYPES = {\n");
+        for (RemoteMethod method : methods) {
+            out.append("            {");
+            List<? extends Element> parameters = method.element.getParameters();
+            for (int i = 0; i < parameters.size(); i++) {
+                if (i > 0) {
+                    out.append(", ");
+                }
+                out.append(erasure(parameters.get(i).asType())).append(".class");
+            }
+            out.append("},\n");
+        }
+        out.append("    };\n");
+        out.append("    private final ").append(interfaceName).append(" instance;\n\n");
+        out.append("    public ").append(className).append('(').append(interfaceName).append(" instance) {\n");
+        out.append("        this.instance = instance;\n");
+        out.append("    }\n\n");
+        out.append("    @Override\n    public com.light.common.MethodSignature[] getSignatures() {\n        return SIGNATURES;\n    }\n\n");
+        out.append("    @Override\n    public Class<?>[][] getParameterTypes() {\n        return PARAMETER_TYPES;\n    }\n\n");
+        out.append("    @Override\n    public Object dispatch(int methodId, Object[] args) throws Throwable {\n");
+        out.append("        switch (methodId) {\n");
+        for (RemoteMethod method : methods) {
+            out.append("            case ").append(method.methodId).append(":\n");
+            StringBuilder call = new StringBuilder("instance.").append(method.element.getSimpleName()).append('(');
+            List<? extends TypeMirror> parameters = method.type.getParameterTypes();
+            for (int i = 0; i < parameters.size(); i++) {
+                if (i > 0) {
+                    call.append(", ");
+                }
+                call.append('(').append(boxed(parameters.get(i))).append(") args[").append(i).append(']');
+            }
+            call.append(')');
+            if (method.type.getReturnType().getKind() == TypeKind.VOID) {
+                out.append("                ").append(call).append(";\n");
+                out.append("                return null;\n");
+            } else {
+                out.append("                return ").append(call).append(";\n");
+            }
+        }
+        out.append("            default:\n");
+        out.append("                throw new IllegalArgumentException(\"no method \" + methodId + \" in ").append(interfaceName).append("\");\n");
+        out.append("        }\n");
+        out.append("    }\n");
+        out.append("}\n");
+        write(packageName, className, out, remoteCallInterface);
+    }
+
+    private void header(StringBuilder out, String packageName, TypeElement remoteCallInterface) {
+        if (!packageName.isEmpty()) {
+            out.append("package ").append(packageName).append(";\n\n");
+        }
+        out.append("/**\n * generated by ").append(RemoteProcessor.class.getName()).append(" for {@code ")
+                .append(remoteCallInterface.getQualifiedName()).append("}, do not edit\n */\n");
+    }
+
+    private void write(String packageName, String className, StringBuilder source, TypeElement originatingElement) throws IOException {
+        String name = packageName.isEmpty() ? className : packageName + "." + className;
+        try (Writer writer = processingEnv.getFiler().createSourceFile(name, originatingElement).openWriter()) {
+            writer.write(source.toString());
+        }
+    }
+
+    private void appendDefaultReturn(StringBuilder out, TypeMirror returnType) {
+        switch (returnType.getKind()) {
+            case VOID:
+                return;
+            case BOOLEAN:
+                out.append("        return false;\n");
+                return;
+            default:
+                out.append(returnType.getKind().isPrimitive() ? "        return 0;\n" : "        return null;\n");
+        }
+    }
+
+    /**
+     * source name of a type for casts, boxed if primitive and erased if generic
+     */
+    private String boxed(TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            return processingEnv.getTypeUtils().boxedClass(processingEnv.getTypeUtils().getPrimitiveType(type.getKind()))
+                    .getQualifiedName().toString();
+        }
+        return erasure(type);
+    }
+
+    /**
+     * source name of the erasure of a type, usable in class literals
+     */
+    private String erasure(TypeMirror type) {
+        return processingEnv.getTypeUtils().erasure(type).toString();
+    }
+
+    /**
+     * name of the erasure of a type as {@code Class.getTypeName} returns it
+     */
+    private String typeName(TypeMirror type) {
+        TypeMirror erased = processingEnv.getTypeUtils().erasure(type);
+        if (erased.getKind() == TypeKind.ARRAY) {
+            return typeName(((ArrayType) erased).getComponentType()) + "[]";
+        }
+        if (erased.getKind() == TypeKind.DECLARED) {
+            return binaryName((TypeElement) ((DeclaredType) erased).asElement());
+        }
+        return erased.toString();
+    }
+
+    private String binaryName(TypeElement type) {
+        return processingEnv.getElementUtils().getBinaryName(type).toString();
+    }
+
+    private String packageOf(TypeElement type) {
+        PackageElement packageElement = processingEnv.getElementUtils().getPackageOf(type);
+        return packageElement.isUnnamed() ? "" : packageElement.getQualifiedName().toString();
+    }
+
+    private static String simpleName(String binaryName) {
+        return binaryName.substring(binaryName.lastIndexOf('.') + 1);
+    }
+
+    private static String stringLiteral(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    private void note(Element element, String format, Object... args) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, String.format(format, args), element);
+    }
+
+    private void error(Element element, String format, Object... args) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, String.format(format, args), element);
+    }
+
+    /**
+     * a method of a remote call interface being generated
+     */
+    private final class RemoteMethod {
+        final ExecutableElement element;
+        /**
+         * type of the method as a member of the remote call interface, with type arguments of generic super interfaces bound
+         */
+        final ExecutableType type;
+        /**
+         * name and parameter types as {@code MethodSignature} builds them
+         */
+        final String signature;
+        int methodId;
+        /**
+         * name of the {@code RemoteStub} method describing it
+         */
+        String callMode;
+        /**
+         * source name of the result class
+         */
+        String resultType;
+        long timeoutMillis;
+        /**
+         * threshold {@code Compress} assigns, 0 if not compressed
+         */
+        int compressThreshold;
+        /**
+         * source name of the callback class of a async method
+         */
+        String callBack;
+
+        RemoteMethod(ExecutableElement element, ExecutableType type) {
+            this.element = element;
+            this.type = type;
+            StringBuilder builder = new StringBuilder(element.getSimpleName()).append('(');
+            List<? extends Element> parameters = element.getParameters();
+            for (int i = 0; i < parameters.size(); i++) {
+                if (i > 0) {
+                    builder.append(',');
+                }
+                builder.append(typeName(parameters.get(i).asType()));
+            }
+            this.signature = builder.append(')').toString();
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package com.light.serializer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * compact serializer for primitives, strings and arrays of them, and {@code Object[]} of such values.
+ * arrays of other reference types are rejected, they would be read back as {@code Object[]}.
+ * every value starts with a one byte tag, integers and lengths are zig-zag varints
+ *
+ * @author lihb
+ */
+public class CompactSerializer implements Serializer {
+    public static final byte IDENTIFIER = 1;
+
+    private static final byte NULL = 0;
+    private static final byte TRUE = 1;
+    private static final byte FALSE = 2;
+    private static final byte BYTE = 3;
+    private static final byte SHORT = 4;
+    private static final byte CHAR = 5;
+    private static final byte INT = 6;
+    private static final byte LONG = 7;
+    private static final byte FLOAT = 8;
+    private static final byte DOUBLE = 9;
+    private static final byte STRING = 10;
+    private static final byte BYTE_ARRAY = 11;
+    private static final byte BOOLEAN_ARRAY = 12;
+    private static final byte SHORT_ARRAY = 13;
+    private static final byte CHAR_ARRAY = 14;
+    private static final byte INT_ARRAY = 15;
+    private static final byte LONG_ARRAY = 16;
+    private static final byte FLOAT_ARRAY = 17;
+    private static final byte DOUBLE_ARRAY = 18;
+    private static final byte STRING_ARRAY = 19;
+    private static final byte OBJECT_ARRAY = 20;
+
+    @Override
+    public byte getIdentifier() {
+        return IDENTIFIER;
+    }
+
+    @Override
+    public byte[] serialize(Object object) throws IOException {
+        SerializeBuffer out = SerializeBuffer.acquire();
+        try {
+            write(object, out);
+            return out.toByteArray();
+        } finally {
+            out.release();
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes, Class<?> type) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        try {
+            return read(in);
+        } catch (RuntimeException e) {
+            throw new IOException("malformed compact value", e);
+        }
+    }
+
+    /**
+     * write a tagged value
+     *
+     * @param object value
+     * @param out    stream to write to
+     * @throws IOException if the type of value is not supported
+     */
+    static void write(Object object, SerializeBuffer out) throws IOException {
+        if (object == null) {
+            out.write(NULL);
+        } else if (object instanceof Boolean) {
+            out.write((Boolean) object ? TRUE : FALSE);
+        } else if (object instanceof Byte) {
+            out.write(BYTE);
+            out.write((Byte) object);
+        } else if (object instanceof Short) {
+            out.write(SHORT);
+            writeVarLong(out, (Short) object);
+        } else if (object instanceof Character) {
+            out.write(CHAR);
+            writeVarLong(out, (Character) object);
+        } else if (object instanceof Integer) {
+            out.write(INT);
+            writeVarLong(out, (Integer) object);
+        } else if (object instanceof Long) {
+            out.write(LONG);
+            writeVarLong(out, (Long) object);
+        } else if (object instanceof Float) {
+            out.write(FLOAT);
+            writeFixed(out, Float.floatToRawIntBits((Float) object), 4);
+        } else if (object instanceof Double) {
+            out.write(DOUBLE);
+            writeFixed(out, Double.doubleToRawLongBits((Double) object), 8);
+        } else if (object instanceof String) {
+            out.write(STRING);
+            writeString(out, (String) object);
+        } else if (object instanceof byte[]) {
+            byte[] array = (byte[]) object;
+            out.write(BYTE_ARRAY);
+            writeVarLong(out, array.length);
+            out.write(array);
+        } else if (object instanceof boolean[]) {
+            boolean[] array = (boolean[]) object;
+            out.write(BOOLEAN_ARRAY);
+            writeVarLong(out, array.length);
+            for (boolean value : array) {
+                out.write(value ? 1 : 0);
+            }
+        } else if (object instanceof short[]) {
+            short[] array = (short[]) object;
+            out.write(SHORT_ARRAY);
+            writeVarLong(out, array.length);
+            for (short value : array) {
+                writeVarLong(out, value);
+            }
+        } else if (object instanceof char[]) {
+            char[] array = (char[]) object;
+            out.write(CHAR_ARRAY);
+            writeVarLong(out, array.length);
+            for (char value : array) {
+                writeVarLong(out, value);
+            }
+        } else if (object instanceof int[]) {
+            int[] array = (int[]) object;
+            out.write(INT_ARRAY);
+            writeVarLong(out, array.length);
+            for (int value : array) {
+                writeVarLong(out, value);
+            }
+        } else if (object instanceof long[]) {
+            long[] array = (long[]) object;
+            out.write(LONG_ARRAY);
+            writeVarLong(out, array.length);
+            for (long value : array) {
+                writeVarLong(out, value);
+            }
+        } else if (object instanceof float[]) {
+            float[] array = (float[]) object;
+            out.write(FLOAT_ARRAY);
+            writeVarLong(out, array.length);
+            for (float value : array) {
+                writeFixed(out, Float.floatToRawIntBits(value), 4);
+            }
+        } else if (object instanceof double[]) {
+            double[] array = (double[]) object;
+            out.write(DOUBLE_ARRAY);
+            writeVarLong(out, array.length);
+            for (double value : array) {
+                writeFixed(out, Double.doubleToRawLongBits(value), 8);
+            }
+        } else if (object instanceof String[]) {
+            String[] array = (String[]) object;
+            out.write(STRING_ARRAY);
+            writeVarLong(out, array.length);
+            for (String value : array) {
+                write(value, out);
+            }
+        } else if (object.getClass() == Object[].class) {
+            Object[] array = (Object[]) object;
+            out.write(OBJECT_ARRAY);
+            writeVarLong(out, array.length);
+            for (Object value : array) {
+                write(value, out);
+            }
+        } else if (object instanceof Object[]) {
+            throw new IOException(String.format("arrays of %s are not supported by compact serializer, use Object[]",
+                    object.getClass().getComponentType().getName()));
+        } else {
+            throw new IOException(String.format("type %s is not supported by compact serializer", object.getClass().getName()));
+        }
+    }
+
+    /**
+     * read a tagged value
+     *
+     * @param in buffer to read from
+     * @return value
+     * @throws IOException if the tag is unknown
+     */
+    static Object read(ByteBuffer in) throws IOException {
+        byte tag = in.get();
+        switch (tag) {
+            case NULL:
+                return null;
+            case TRUE:
+                return Boolean.TRUE;
+            case FALSE:
+                return Boolean.FALSE;
+            case BYTE:
+                return in.get();
+            case SHORT:
+                return (short) readVarLong(in);
+            case CHAR:
+                return (char) readVarLong(in);
+            case INT:
+                return (int) readVarLong(in);
+            case LONG:
+                return readVarLong(in);
+            case FLOAT:
+                return in.getFloat();
+            case DOUBLE:
+                return in.getDouble();
+            case STRING:
+                return readString(in);
+            default:
+                return readArray(tag, in);
+        }
+    }
+
+    private static Object readArray(byte tag, ByteBuffer in) throws IOException {
+        int length = (int) readVarLong(in);
+        if (length < 0 || length > in.remaining()) {
+            throw new IOException(String.format("invalid array length %d", length));
+        }
+        switch (tag) {
+            case BYTE_ARRAY: {
+                byte[] array = new byte[length];
+                in.get(array);
+                return array;
+            }
+            case BOOLEAN_ARRAY: {
+                boolean[] array = new boolean[length];
+                for (int i = 0; i < length; i++) {
+                    array[i] = in.get() != 0;
+                }
+                return array;
+            }
+            case SHORT_ARRAY: {
+                short[] array = new short[length];
+                for (int i = 0; i < length; i++) {
+                    array[i] = (short) readVarLong(in);
+                }
+                return array;
+            }
+            case CHAR_ARRAY: {
+                char[] array = new char[length];
+                for (int i = 0; i < length; i++) {
+                    array[i] = (char) readVarLong(in);
+                }
+                return array;
+            }
+            case INT_ARRAY: {
+                int[] array = new int[length];
+                for (int i = 0; i < length; i++) {
+                    array[i] = (int) readVarLong(in);
+                }
+                return array;
+            }
+            case LONG_ARRAY: {
+                long[] array = new long[length];
+                for (int i = 0; i < length; i++) {
+                    array[i] = readVarLong(in);
+                }
+                return array;
+            }
+            case FLOAT_ARRAY: {
+                float[] array = new float[length];
+                for (int i = 0; i < length; i++) {
+                    array[i] = in.getFloat();
+                }
+                return array;
+            }
+            case DOUBLE_ARRAY: {
+                double[] array = new double[length];
+                for (int i = 0; i < length; i++) {
+                    array[i] = in.getDouble();
+                }
+                return array;
+            }
+            case STRING_ARRAY: {
+                String[] array = new String[length];
+                for (int i = 0; i < length; i++) {
+                    array[i] = (String) read(in);
+                }
+                return array;
+            }
+            case OBJECT_ARRAY: {
+                Object[] array = new Object[length];
+                for (int i = 0; i < length; i++) {
+                    array[i] = read(in);
+                }
+                return array;
+            }
+            default:
+                throw new IOException(String.format("unknown compact tag %d", tag));
+        }
+    }
+
+    private static void writeString(SerializeBuffer out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static String readString(ByteBuffer in) throws IOException {
+        int length = (int) readVarLong(in);
+        if (length < 0 || length > in.remaining()) {
+            throw new IOException(String.format("invalid string length %d", length));
+        }
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    private static void writeFixed(SerializeBuffer out, long value, int length) {
+        for (int shift = (length - 1) * 8; shift >= 0; shift -= 8) {
+            out.write((int) (value >>> shift));
+        }
+    }
+
+    /**
+     * write a zig-zag encoded varint
+     */
+    private static void writeVarLong(SerializeBuffer out, long value) {
+        long zigZag = (value << 1) ^ (value >> 63);
+        while ((zigZag & ~0x7FL) != 0) {
+            out.write((int) ((zigZag & 0x7F) | 0x80));
+            zigZag >>>= 7;
+        }
+        out.write((int) zigZag);
+    }
+
+    /**
+     * read a zig-zag encoded varint
+     */
+    private static long readVarLong(ByteBuffer in) throws IOException {
+        long zigZag = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            zigZag |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (zigZag >>> 1) ^ -(zigZag & 1);
+            }
+        }
+        throw new IOException("malformed varint");
+    }
+}
@@ -0,0 +1,44 @@
+package com.light.serializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+ * serializer based on java serialization.
+ * it is not registered by default, since deserializing arbitrary classes is unsafe,
+ * both sides need to add it explicitly
+ *
+ * @author lihb
+ */
+public class JavaSerializer implements Serializer {
+    public static final byte IDENTIFIER = 3;
+
+    @Override
+    public byte getIdentifier() {
+        return IDENTIFIER;
+    }
+
+    @Override
+    public byte[] serialize(Object object) throws IOException {
+        SerializeBuffer out = SerializeBuffer.acquire();
+        try {
+            try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(out)) {
+                objectOutputStream.writeObject(object);
+            }
+            return out.toByteArray();
+        } finally {
+            out.release();
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes, Class<?> type) throws IOException {
+        try (ObjectInputStream objectInputStream = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return objectInputStream.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.light.serializer;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.MessageLite;
+import com.google.protobuf.Parser;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * serializer for protobuf messages.
+ * values which are not messages, such as primitives and strings, are written by {@code CompactSerializer}
+ *
+ * @author lihb
+ */
+public class ProtobufSerializer implements Serializer {
+    public static final byte IDENTIFIER = 2;
+
+    /**
+     * tag of a protobuf message, distinct from all tags of {@code CompactSerializer}
+     */
+    private static final byte MESSAGE = 127;
+
+    /**
+     * key -> class object of a protobuf message
+     * value -> parser of the message
+     */
+    private final Map<Class<?>, Parser<?>> parserMap = new ConcurrentHashMap<>();
+
+    @Override
+    public byte getIdentifier() {
+        return IDENTIFIER;
+    }
+
+    @Override
+    public byte[] serialize(Object object) throws IOException {
+        if (!(object instanceof MessageLite)) {
+            SerializeBuffer out = SerializeBuffer.acquire();
+            try {
+                CompactSerializer.write(object, out);
+                return out.toByteArray();
+            } finally {
+                out.release();
+            }
+        }
+        MessageLite message = (MessageLite) object;
+        byte[] bytes = new byte[1 + message.getSerializedSize()];
+        bytes[0] = MESSAGE;
+        message.writeTo(CodedOutputStream.newInstance(bytes, 1, bytes.length - 1));
+        return bytes;
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes, Class<?> type) throws IOException {
+        if (bytes.length == 0 || bytes[0] != MESSAGE) {
+            try {
+                return CompactSerializer.read(ByteBuffer.wrap(bytes));
+            } catch (RuntimeException e) {
+                throw new IOException("malformed compact value", e);
+            }
+        }
+        try {
+            return getParser(type).parseFrom(bytes, 1, bytes.length - 1);
+        } catch (InvalidProtocolBufferException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private Parser<?> getParser(Class<?> type) throws IOException {
+        Parser<?> parser = parserMap.get(type);
+        if (parser != null) {
+            return parser;
+        }
+        if (!MessageLite.class.isAssignableFrom(type)) {
+            throw new IOException(String.format("type %s is not a protobuf message", type.getName()));
+        }
+        try {
+            Method parserMethod = type.getMethod("parser");
+            parser = (Parser<?>) parserMethod.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IOException(String.format("can not obtain parser of protobuf message %s", type.getName()), e);
+        }
+        parserMap.put(type, parser);
+        return parser;
+    }
+}
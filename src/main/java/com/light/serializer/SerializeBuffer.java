@@ -0,0 +1,125 @@
+package com.light.serializer;
+
+import com.light.utils.Utils;
+
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * reusable, unsynchronized byte array output for serializers.
+ * each thread keeps one buffer which is handed out by {@code acquire} and reset,
+ * so serializing a argument neither allocates a new stream nor sees bytes of a previous one.
+ * a buffer acquired while the cached one is in use is a fresh one, so nested serializing is safe.
+ * virtual threads are short lived and numerous, so they share a small pool of buffers
+ * instead of caching one per thread
+ *
+ * @author lihb
+ */
+public final class SerializeBuffer extends OutputStream {
+    private static final int INITIAL_CAPACITY = 256;
+    /**
+     * buffers grown beyond this are not kept by their thread
+     */
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+    private static final ThreadLocal<SerializeBuffer> CACHE = new ThreadLocal<>();
+    private static final int POOL_SIZE = Math.max(8, Runtime.getRuntime().availableProcessors() * 2);
+    /**
+     * buffers shared by virtual threads
+     */
+    private static final AtomicReferenceArray<SerializeBuffer> POOL = new AtomicReferenceArray<>(POOL_SIZE);
+
+    private byte[] bytes;
+    private int count;
+
+    private SerializeBuffer(int capacity) {
+        this.bytes = new byte[capacity];
+    }
+
+    /**
+     * obtain a empty buffer, which must be given back by {@code release}
+     *
+     * @return buffer
+     */
+    public static SerializeBuffer acquire() {
+        if (Utils.isVirtualThread(Thread.currentThread())) {
+            int start = ThreadLocalRandom.current().nextInt(POOL_SIZE);
+            for (int i = 0; i < POOL_SIZE; i++) {
+                SerializeBuffer buffer = POOL.getAndSet((start + i) % POOL_SIZE, null);
+                if (buffer != null) {
+                    return buffer;
+                }
+            }
+            return new SerializeBuffer(INITIAL_CAPACITY);
+        }
+        SerializeBuffer buffer = CACHE.get();
+        if (buffer == null) {
+            return new SerializeBuffer(INITIAL_CAPACITY);
+        }
+        CACHE.set(null);
+        return buffer;
+    }
+
+    /**
+     * give the buffer back to the current thread or the pool, it must not be used afterwards
+     */
+    public void release() {
+        count = 0;
+        if (bytes.length > MAX_RETAINED_CAPACITY) {
+            return;
+        }
+        if (!Utils.isVirtualThread(Thread.currentThread())) {
+            CACHE.set(this);
+            return;
+        }
+        int start = ThreadLocalRandom.current().nextInt(POOL_SIZE);
+        for (int i = 0; i < POOL_SIZE; i++) {
+            if (POOL.compareAndSet((start + i) % POOL_SIZE, null, this)) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void write(int b) {
+        ensureCapacity(count + 1);
+        bytes[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b) {
+        write(b, 0, b.length);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        ensureCapacity(count + len);
+        System.arraycopy(b, off, bytes, count, len);
+        count += len;
+    }
+
+    /**
+     * number of bytes written
+     *
+     * @return size
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * copy out the bytes written
+     *
+     * @return a array of exactly {@code size()} bytes
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(bytes, count);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length << 1, capacity));
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.light.serializer;
+
+import java.io.IOException;
+
+/**
+ * define how arguments and results of a remote call are converted to bytes.
+ * implementations must be thread safe and have a default constructor
+ * when they are assigned through {@code Remote}
+ *
+ * @author lihb
+ */
+public interface Serializer {
+    /**
+     * identifier of this serializer, carried in every frame so the peer can pick the same one
+     *
+     * @return identifier
+     */
+    byte getIdentifier();
+
+    /**
+     * serialize a object
+     *
+     * @param object object to serialize, may be null
+     * @return serialized bytes
+     * @throws IOException if the object can not be serialized
+     */
+    byte[] serialize(Object object) throws IOException;
+
+    /**
+     * deserialize a object
+     *
+     * @param bytes serialized bytes
+     * @param type  declared type of the object
+     * @return deserialized object
+     * @throws IOException if the bytes can not be deserialized
+     */
+    Object deserialize(byte[] bytes, Class<?> type) throws IOException;
+}
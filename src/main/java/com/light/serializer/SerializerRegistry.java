@@ -0,0 +1,98 @@
+package com.light.serializer;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * serializers known by a {@code RemoteCallClient} or {@code RemoteCallServer}.
+ * {@code CompactSerializer} and {@code ProtobufSerializer} are registered by default.
+ * lookups read a array replaced as a whole on registering, so they take no lock
+ *
+ * @author lihb
+ */
+public final class SerializerRegistry {
+    /**
+     * index -> identifier of serializer, never modified once published
+     */
+    private volatile Serializer[] serializers = new Serializer[256];
+    /**
+     * key -> class object of serializer
+     * value -> registered serializer
+     */
+    private final Map<Class<?>, Serializer> class2SerializerMap = new ConcurrentHashMap<>();
+
+    public SerializerRegistry() {
+        register(new CompactSerializer());
+        register(new ProtobufSerializer());
+    }
+
+    /**
+     * register a serializer
+     *
+     * @param serializer serializer
+     */
+    public synchronized void register(Serializer serializer) {
+        Objects.requireNonNull(serializer);
+        int index = serializer.getIdentifier() & 0xFF;
+        Serializer registered = serializers[index];
+        if (registered != null && registered.getClass() != serializer.getClass()) {
+            throw new RuntimeException(String.format("identifier %d of serializer %s already used by %s",
+                    index, serializer.getClass().getName(), registered.getClass().getName()));
+        }
+        Serializer[] newSerializers = serializers.clone();
+        newSerializers[index] = serializer;
+        class2SerializerMap.put(serializer.getClass(), serializer);
+        serializers = newSerializers;
+    }
+
+    /**
+     * register a new instance of a serializer class unless one is registered
+     *
+     * @param serializerClass class object of serializer
+     * @return the registered serializer
+     */
+    public synchronized Serializer register(Class<? extends Serializer> serializerClass) {
+        Serializer serializer = class2SerializerMap.get(serializerClass);
+        if (serializer == null) {
+            serializer = newInstance(serializerClass);
+            register(serializer);
+        }
+        return serializer;
+    }
+
+    /**
+     * obtain a serializer by identifier
+     *
+     * @param identifier identifier of serializer
+     * @return serializer or null if not registered
+     */
+    public Serializer get(byte identifier) {
+        return serializers[identifier & 0xFF];
+    }
+
+    /**
+     * obtain a serializer by class
+     *
+     * @param serializerClass class object of serializer
+     * @return serializer or null if not registered
+     */
+    public Serializer get(Class<? extends Serializer> serializerClass) {
+        return class2SerializerMap.get(serializerClass);
+    }
+
+    /**
+     * create a serializer by its default constructor, without registering it
+     *
+     * @param serializerClass class object of serializer
+     * @return new serializer
+     */
+    public static Serializer newInstance(Class<? extends Serializer> serializerClass) {
+        try {
+            return serializerClass.getConstructor().newInstance();
+        } catch (Exception e) {
+            throw new RuntimeException(String.format("Class %s need contain a default constructor",
+                    serializerClass.getName()));
+        }
+    }
+}
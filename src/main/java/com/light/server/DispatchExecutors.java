@@ -0,0 +1,210 @@
+package com.light.server;
+
+import com.light.utils.Utils;
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * executors invocations of each remote call interface run on, chosen by the {@code DispatchMode} of the interface.
+ * pools are bounded and reject tasks once their queue is full, which is answered by a busy response.
+ * dedicated pools are created on the first request of their interface
+ *
+ * @author lihb
+ */
+final class DispatchExecutors {
+    private static final long KEEP_ALIVE_SECONDS = 60;
+    /**
+     * mode of interfaces without one of their own
+     */
+    private final DispatchMode defaultMode;
+    /**
+     * key -> identifier of remote call interface
+     * value -> mode of the interface
+     */
+    private final IntObjectMap<DispatchMode> modes = new IntObjectHashMap<>();
+    /**
+     * pool of interfaces dispatched by {@code SHARED}, null if there is none
+     */
+    private final ExecutorService sharedExecutor;
+    /**
+     * threads and queue size of dedicated pools of particular interfaces, by identifier
+     */
+    private final Map<Integer, Integer> dedicatedThreadNums;
+    private final Map<Integer, Integer> dedicatedQueueSizes;
+    /**
+     * threads and queue size of other dedicated pools
+     */
+    private final int dedicatedThreadNum;
+    private final int dedicatedQueueSize;
+    /**
+     * dedicated pools created so far, replaced as a whole when one is added
+     */
+    private volatile IntObjectMap<ExecutorService> dedicatedExecutors = new IntObjectHashMap<>();
+    private boolean shutdown;
+
+    DispatchExecutors(DispatchMode defaultMode, Map<Integer, DispatchMode> modes, ExecutorService sharedExecutor,
+                      Map<Integer, Integer> dedicatedThreadNums, Map<Integer, Integer> dedicatedQueueSizes,
+                      int dedicatedThreadNum, int dedicatedQueueSize) {
+        this.defaultMode = defaultMode;
+        for (Map.Entry<Integer, DispatchMode> entry : modes.entrySet()) {
+            this.modes.put(entry.getKey().intValue(), entry.getValue());
+        }
+        this.sharedExecutor = sharedExecutor;
+        this.dedicatedThreadNums = dedicatedThreadNums;
+        this.dedicatedQueueSizes = dedicatedQueueSizes;
+        this.dedicatedThreadNum = dedicatedThreadNum;
+        this.dedicatedQueueSize = dedicatedQueueSize;
+    }
+
+    /**
+     * create a pool of fixed threads which rejects tasks once queueSize tasks are waiting
+     *
+     * @param name      prefix of thread names
+     * @param threadNum number of threads
+     * @param queueSize number of waiting tasks, 0 means a task is rejected unless a thread is idle
+     * @return pool
+     */
+    static ExecutorService newBoundedExecutor(String name, int threadNum, int queueSize) {
+        BlockingQueue<Runnable> queue = queueSize == 0 ? new SynchronousQueue<>() : new LinkedBlockingQueue<>(queueSize);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threadNum, threadNum, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                queue, new DefaultThreadFactory(name), new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * create a executor which runs each task on a new virtual thread and rejects tasks once maxTasks are running,
+     * virtual threads queue nothing, so the bound of a pool covers both its threads and its queue
+     *
+     * @param maxTasks max number of tasks running at once
+     * @return executor
+     */
+    static ExecutorService newBoundedVirtualThreadExecutor(int maxTasks) {
+        return new BoundedExecutor(Utils.newVirtualThreadPerTaskExecutor(), maxTasks);
+    }
+
+    /**
+     * obtain the executor invocations of a remote call interface run on
+     *
+     * @param identifier identifier of the remote call interface
+     * @return executor or null for the event loop
+     * @throws RejectedExecutionException if shut down
+     */
+    Executor executorFor(int identifier) {
+        DispatchMode mode = modes.get(identifier);
+        switch (mode == null ? defaultMode : mode) {
+            case SHARED:
+                return sharedExecutor;
+            case DEDICATED:
+                ExecutorService executor = dedicatedExecutors.get(identifier);
+                return executor != null ? executor : newDedicatedExecutor(identifier);
+            default:
+                return null;
+        }
+    }
+
+    private synchronized ExecutorService newDedicatedExecutor(int identifier) {
+        ExecutorService executor = dedicatedExecutors.get(identifier);
+        if (executor != null) {
+            return executor;
+        }
+        if (shutdown) {
+            throw new RejectedExecutionException("dispatch executors are shut down");
+        }
+        executor = newBoundedExecutor(String.format("light-dispatch-%d", identifier),
+                dedicatedThreadNums.getOrDefault(identifier, dedicatedThreadNum),
+                dedicatedQueueSizes.getOrDefault(identifier, dedicatedQueueSize));
+        IntObjectMap<ExecutorService> executors = new IntObjectHashMap<>(dedicatedExecutors.size() + 1);
+        executors.putAll(dedicatedExecutors);
+        executors.put(identifier, executor);
+        dedicatedExecutors = executors;
+        return executor;
+    }
+
+    synchronized boolean isShutdown() {
+        return shutdown;
+    }
+
+    synchronized void shutdown() {
+        shutdown = true;
+        if (sharedExecutor != null) {
+            sharedExecutor.shutdown();
+        }
+        for (ExecutorService executor : dedicatedExecutors.values()) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * executor running at most a number of tasks at once on a unbounded one
+     */
+    static final class BoundedExecutor extends AbstractExecutorService {
+        private final ExecutorService executor;
+        private final Semaphore permits;
+        private final int maxTasks;
+
+        BoundedExecutor(ExecutorService executor, int maxTasks) {
+            this.executor = executor;
+            this.permits = new Semaphore(maxTasks);
+            this.maxTasks = maxTasks;
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            if (!permits.tryAcquire()) {
+                throw new RejectedExecutionException(String.format("%d tasks are running", maxTasks));
+            }
+            try {
+                executor.execute(() -> {
+                    try {
+                        task.run();
+                    } finally {
+                        permits.release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                permits.release();
+                throw e;
+            }
+        }
+
+        @Override
+        public void shutdown() {
+            executor.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return executor.shutdownNow();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return executor.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return executor.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return executor.awaitTermination(timeout, unit);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.light.server;
+
+/**
+ * where {@code RemoteCallServer} runs invocations of a remote call interface
+ *
+ * @author lihb
+ */
+public enum DispatchMode {
+    /**
+     * on the event loop that read the request, for cheap methods which never block
+     */
+    EVENT_LOOP,
+    /**
+     * on a bounded pool shared by all interfaces dispatched this way
+     */
+    SHARED,
+    /**
+     * on a bounded pool of the interface alone, so a slow interface does not delay the others
+     */
+    DEDICATED
+}
@@ -0,0 +1,234 @@
+package com.light.server;
+
+import com.light.common.MethodSignature;
+import com.light.metrics.MethodMetrics;
+import com.light.metrics.MetricsRegistry;
+import com.light.serializer.Serializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InaccessibleObjectException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * dispatch table of remote call instances on {@code RemoteCallServer} side.
+ * method handles are resolved once when a instance is registered,
+ * so dispatching a request does no reflective lookup.
+ * invokers are kept in a open addressing array keyed by interface id and method id,
+ * replaced as a whole on registering, so a lookup is a few array reads without locking or boxing
+ *
+ * @author lihb
+ */
+public final class DispatchTable {
+    private static final Logger logger = LoggerFactory.getLogger(DispatchTable.class);
+    /**
+     * generic type every registered method handle is adapted to
+     */
+    private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Object[].class);
+
+    /**
+     * metrics invokers record invocations to, null if disabled
+     */
+    private final MetricsRegistry metrics;
+    /**
+     * identifiers of registered remote call interfaces
+     */
+    private final Set<Integer> identifiers = new HashSet<>();
+    /**
+     * current slots, replaced as a whole on registering
+     */
+    private volatile Slots slots = new Slots(16);
+    /**
+     * number of registered invokers
+     */
+    private int size;
+
+    public DispatchTable() {
+        this(null);
+    }
+
+    /**
+     * @param metrics metrics of invocations, resolved per method as it is registered, null if disabled
+     */
+    public DispatchTable(MetricsRegistry metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * resolve all methods of a remote call interface against its instance
+     *
+     * @param identifier          identifier of remote call interface
+     * @param remoteCallInterface class object of remote call interface
+     * @param instance            instance implementing the interface
+     * @param serializer          serializer requests of the interface must use, null to accept any enabled serializer
+     */
+    public synchronized void register(int identifier, Class<?> remoteCallInterface, Object instance, Serializer serializer) {
+        checkIdentifier(identifier);
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        List<MethodInvoker> methodInvokers = new ArrayList<>();
+        for (Map.Entry<Method, MethodSignature> entry : MethodSignature.resolve(remoteCallInterface, identifier).entrySet()) {
+            Method method = entry.getKey();
+            try {
+                method.setAccessible(true);
+            } catch (InaccessibleObjectException | SecurityException e) {
+                // the lookup below works for public methods still
+                logger.debug("can not suppress access checks of method {} of remote call interface {}",
+                        method.getName(), remoteCallInterface.getName(), e);
+            }
+            MethodHandle handle;
+            try {
+                handle = lookup.unreflect(method);
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException(String.format("can not access method %s of remote call interface %s",
+                        method.getName(), remoteCallInterface.getName()), e);
+            }
+            handle = handle.bindTo(instance)
+                    .asSpreader(Object[].class, method.getParameterCount())
+                    .asType(INVOKER_TYPE);
+            methodInvokers.add(new MethodInvoker(handle, method.getParameterTypes(), method.getName(), entry.getValue(), serializer,
+                    metricsOf(identifier, method.getName())));
+        }
+        publish(identifier, methodInvokers);
+    }
+
+    /**
+     * register the methods of a remote call interface served by a generated dispatcher
+     *
+     * @param identifier identifier of remote call interface
+     * @param dispatcher dispatcher bound to the instance
+     * @param serializer serializer requests of the interface must use, null to accept any enabled serializer
+     */
+    public synchronized void register(int identifier, RemoteDispatcher dispatcher, Serializer serializer) {
+        checkIdentifier(identifier);
+        MethodSignature[] signatures = dispatcher.getSignatures();
+        Class<?>[][] parameterTypes = dispatcher.getParameterTypes();
+        List<MethodInvoker> methodInvokers = new ArrayList<>(signatures.length);
+        for (int i = 0; i < signatures.length; i++) {
+            if (signatures[i].getInterfaceId() != identifier) {
+                throw new RuntimeException(String.format("dispatcher %s serves remote call interface %d instead of %d",
+                        dispatcher.getClass().getName(), signatures[i].getInterfaceId(), identifier));
+            }
+            methodInvokers.add(new MethodInvoker(dispatcher, parameterTypes[i], signatures[i].getMethodName(), signatures[i],
+                    serializer, metricsOf(identifier, signatures[i].getMethodName())));
+        }
+        publish(identifier, methodInvokers);
+    }
+
+    private MethodMetrics metricsOf(int identifier, String methodName) {
+        return metrics == null ? null : metrics.method(identifier, methodName);
+    }
+
+    private void checkIdentifier(int identifier) {
+        if (identifiers.contains(identifier)) {
+            throw new RuntimeException(String.format("identifier %d already registered", identifier));
+        }
+    }
+
+    /**
+     * copy the current slots with the invokers of a interface added and make them visible to lookups
+     */
+    private void publish(int identifier, List<MethodInvoker> methodInvokers) {
+        Slots oldSlots = slots;
+        int capacity = oldSlots.keys.length;
+        while ((size + methodInvokers.size()) * 2 > capacity) {
+            capacity <<= 1;
+        }
+        Slots newSlots = new Slots(capacity);
+        for (int i = 0; i < oldSlots.keys.length; i++) {
+            if (oldSlots.keys[i] != 0) {
+                newSlots.put(oldSlots.keys[i], oldSlots.invokers[i]);
+            }
+        }
+        for (MethodInvoker invoker : methodInvokers) {
+            newSlots.put(key(identifier, invoker.getSignature().getMethodId()), invoker);
+        }
+        size += methodInvokers.size();
+        identifiers.add(identifier);
+        slots = newSlots;
+    }
+
+    /**
+     * obtain the invoker of a remote call method
+     *
+     * @param identifier identifier of remote call interface
+     * @param methodId   identifier of remote call method
+     * @return invoker or null if not registered
+     */
+    public MethodInvoker lookup(int identifier, int methodId) {
+        Slots slots = this.slots;
+        long key = key(identifier, methodId);
+        int mask = slots.keys.length - 1;
+        for (int i = index(key, mask); ; i = (i + 1) & mask) {
+            if (slots.keys[i] == key) {
+                return slots.invokers[i];
+            }
+            if (slots.keys[i] == 0) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * check a method signature a client declared in its handshake against the registered one
+     *
+     * @param signature declared signature
+     * @return null if both sides agree, otherwise the reason they do not
+     */
+    public String verify(MethodSignature signature) {
+        MethodInvoker invoker = lookup(signature.getInterfaceId(), signature.getMethodId());
+        if (invoker == null) {
+            return String.format("method %s of remote call interface %d is not provided",
+                    signature.getSignature(), signature.getInterfaceId());
+        }
+        if (!invoker.getSignature().getSignature().equals(signature.getSignature())) {
+            return String.format("method id %d of remote call interface %d is %s on server but %s on client",
+                    signature.getMethodId(), signature.getInterfaceId(), invoker.getSignature().getSignature(), signature.getSignature());
+        }
+        return null;
+    }
+
+    private static long key(int identifier, int methodId) {
+        return (long) identifier << 32 | (methodId & 0xFFFFFFFFL);
+    }
+
+    private static int index(long key, int mask) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+
+    /**
+     * open addressing slots with linear probing, never modified once published
+     */
+    private static final class Slots {
+        /**
+         * keys of the slots, {@code remoteCallInterfaceId << 32 | methodId}, 0 for a empty slot
+         */
+        final long[] keys;
+        /**
+         * invokers of the slots
+         */
+        final MethodInvoker[] invokers;
+
+        Slots(int capacity) {
+            keys = new long[capacity];
+            invokers = new MethodInvoker[capacity];
+        }
+
+        void put(long key, MethodInvoker invoker) {
+            int mask = keys.length - 1;
+            int i = index(key, mask);
+            while (keys[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            invokers[i] = invoker;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.light.server;
+
+import com.light.common.MethodSignature;
+import com.light.metrics.MethodMetrics;
+import com.light.serializer.Serializer;
+
+import java.lang.invoke.MethodHandle;
+
+/**
+ * invoke a method of a remote call instance through a method handle bound to the instance,
+ * or through the {@code RemoteDispatcher} generated for its interface
+ *
+ * @author lihb
+ */
+public final class MethodInvoker {
+    /**
+     * method handle of type {@code (Object[])Object}
+     */
+    private final MethodHandle handle;
+    /**
+     * generated dispatcher, null if the method handle is used
+     */
+    private final RemoteDispatcher dispatcher;
+    /**
+     * declared parameter types of the method
+     */
+    private final Class<?>[] parameterTypes;
+    /**
+     * name of the method
+     */
+    private final String methodName;
+    /**
+     * id and signature of the method
+     */
+    private final MethodSignature signature;
+    /**
+     * serializer requests of the interface must use, null if any serializer enabled on the server is accepted
+     */
+    private final Serializer serializer;
+    /**
+     * metrics of the method, resolved once so invocations do not look them up, null if disabled
+     */
+    private final MethodMetrics metrics;
+
+    public MethodInvoker(MethodHandle handle, Class<?>[] parameterTypes, String methodName, MethodSignature signature,
+                         Serializer serializer, MethodMetrics metrics) {
+        this.handle = handle;
+        this.dispatcher = null;
+        this.parameterTypes = parameterTypes;
+        this.methodName = methodName;
+        this.signature = signature;
+        this.serializer = serializer;
+        this.metrics = metrics;
+    }
+
+    public MethodInvoker(RemoteDispatcher dispatcher, Class<?>[] parameterTypes, String methodName, MethodSignature signature,
+                         Serializer serializer, MethodMetrics metrics) {
+        this.handle = null;
+        this.dispatcher = dispatcher;
+        this.parameterTypes = parameterTypes;
+        this.methodName = methodName;
+        this.signature = signature;
+        this.serializer = serializer;
+        this.metrics = metrics;
+    }
+
+    public Class<?>[] getParameterTypes() {
+        return parameterTypes;
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+
+    public MethodSignature getSignature() {
+        return signature;
+    }
+
+    public Serializer getSerializer() {
+        return serializer;
+    }
+
+    public MethodMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * invoke the method
+     *
+     * @param args arguments, one per declared parameter
+     * @return return value, null for void methods
+     * @throws Throwable anything the method throws
+     */
+    public Object invoke(Object[] args) throws Throwable {
+        if (dispatcher != null) {
+            return dispatcher.dispatch(signature.getMethodId(), args);
+        }
+        return (Object) handle.invokeExact(args);
+    }
+}
@@ -1,17 +1,35 @@
 package com.light.server;
 
 import com.light.client.CallBack;
+import com.light.codec.FrameDecoder;
+import com.light.codec.RequestDecoder;
+import com.light.codec.ResponseEncoder;
+import com.light.common.Constant;
 import com.light.common.ProxyCenter;
 import com.light.common.Request;
+import com.light.common.TransportType;
+import com.light.metrics.MetricsRegistry;
+import com.light.serializer.Serializer;
+import com.light.serializer.SerializerRegistry;
+import com.light.utils.Utils;
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInitializer;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.EpollChannelOption;
 
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
 
 /**
  * remote call server.
@@ -36,14 +54,82 @@ public final class RemoteCallServer {
      * port to bind
      */
     private int port;
+    /**
+     * max length of a frame sending or receiving
+     */
+    private int maxFrameLength = Constant.DEFAULT_MAX_FRAME_LENGTH;
+    /**
+     * netty transport
+     */
+    private TransportType transportType = TransportType.AUTO;
+    /**
+     * whether Nagle's algorithm is disabled on accepted connections
+     */
+    private boolean tcpNoDelay = true;
+    /**
+     * whether the port is bound once per boss thread with {@code SO_REUSEPORT}, epoll only
+     */
+    private boolean reusePort;
+    /**
+     * whether delayed acks are disabled on accepted connections, epoll only
+     */
+    private boolean tcpQuickAck;
+    /**
+     * whether each invocation runs on its own virtual thread instead of the event loop
+     */
+    private boolean virtualThreadDispatch;
+    /**
+     * where invocations of interfaces without a mode of their own run
+     */
+    private DispatchMode dispatchMode;
+    /**
+     * key -> identifier of remote call interface
+     * value -> where invocations of the interface run
+     */
+    private Map<Integer, DispatchMode> dispatchModes;
+    /**
+     * threads and queue size of the pool shared by {@code SHARED} interfaces
+     */
+    private int sharedDispatchThreadNum;
+    private int sharedDispatchQueueSize;
+    /**
+     * threads and queue size of a pool of a {@code DEDICATED} interface, unless given for the interface
+     */
+    private int dedicatedDispatchThreadNum;
+    private int dedicatedDispatchQueueSize;
+    /**
+     * threads and queue size of pools of particular {@code DEDICATED} interfaces, by identifier
+     */
+    private Map<Integer, Integer> dedicatedDispatchThreadNums;
+    private Map<Integer, Integer> dedicatedDispatchQueueSizes;
+    /**
+     * metrics of invocations, null if disabled
+     */
+    private MetricsRegistry metrics;
+    /**
+     * executors invocations run on
+     */
+    private DispatchExecutors dispatchExecutors;
+    /**
+     * serializers requests may use
+     */
+    private SerializerRegistry serializerRegistry;
     /**
      * proxy center
      */
     private ProxyCenter proxyCenter;
     /**
-     * channel future
+     * event loop group accepting connections
+     */
+    private EventLoopGroup bossGroup;
+    /**
+     * event loop group serving accepted connections
+     */
+    private EventLoopGroup workerGroup;
+    /**
+     * one future per bound listening channel
      */
-    private ChannelFuture connectFuture;
+    private final List<ChannelFuture> bindFutures = new ArrayList<>();
     /**
      * channel handler context
      */
@@ -76,6 +162,70 @@ public final class RemoteCallServer {
         return port;
     }
 
+    /**
+     * port the server listens on, which is picked by the system when {@code getPort} is 0
+     *
+     * @return bound port, or the configured one before start and on the local transport
+     */
+    public int getBoundPort() {
+        if (!bindFutures.isEmpty() && bindFutures.get(0).channel().localAddress() instanceof InetSocketAddress) {
+            return ((InetSocketAddress) bindFutures.get(0).channel().localAddress()).getPort();
+        }
+        return port;
+    }
+
+    public int getMaxFrameLength() {
+        return maxFrameLength;
+    }
+
+    public TransportType getTransportType() {
+        return transportType;
+    }
+
+    public boolean isTcpNoDelay() {
+        return tcpNoDelay;
+    }
+
+    public boolean isReusePort() {
+        return reusePort;
+    }
+
+    public boolean isTcpQuickAck() {
+        return tcpQuickAck;
+    }
+
+    public boolean isVirtualThreadDispatch() {
+        return virtualThreadDispatch;
+    }
+
+    public DispatchMode getDispatchMode() {
+        return dispatchMode;
+    }
+
+    /**
+     * obtain where invocations of a remote call interface run
+     *
+     * @param remoteCallInterfaceId identifier of the remote call interface
+     * @return dispatch mode
+     */
+    public DispatchMode getDispatchMode(int remoteCallInterfaceId) {
+        return dispatchModes.getOrDefault(remoteCallInterfaceId, dispatchMode);
+    }
+
+    /**
+     * obtain metrics of invocations, which may be exported by {@code JmxExporter} or {@code PrometheusExporter}.
+     * the registry is named after the bound port once the server started, so export it after {@code start}
+     *
+     * @return metrics registry, null if disabled
+     */
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    public SerializerRegistry getSerializerRegistry() {
+        return serializerRegistry;
+    }
+
     public ProxyCenter getProxyCenter() {
         return proxyCenter;
     }
@@ -92,27 +242,85 @@ public final class RemoteCallServer {
 
     public void stop() {
         try {
-            connectFuture.channel().close().sync();
+            for (ChannelFuture bindFuture : bindFutures) {
+                bindFuture.channel().close().sync();
+            }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
         }
+        if (bossGroup != null) {
+            bossGroup.shutdownGracefully();
+        }
+        if (workerGroup != null) {
+            workerGroup.shutdownGracefully();
+        }
+        if (dispatchExecutors != null) {
+            dispatchExecutors.shutdown();
+        }
     }
 
     private void init() {
         proxyCenter.scanFor(autoScanPackage);
+        ExecutorService sharedExecutor = null;
+        if (dispatchMode == DispatchMode.SHARED || dispatchModes.containsValue(DispatchMode.SHARED)) {
+            sharedExecutor = virtualThreadDispatch
+                    ? DispatchExecutors.newBoundedVirtualThreadExecutor(sharedDispatchThreadNum + sharedDispatchQueueSize)
+                    : DispatchExecutors.newBoundedExecutor("light-dispatch-shared", sharedDispatchThreadNum, sharedDispatchQueueSize);
+        }
+        dispatchExecutors = new DispatchExecutors(dispatchMode, dispatchModes, sharedExecutor,
+                dedicatedDispatchThreadNums, dedicatedDispatchQueueSizes, dedicatedDispatchThreadNum, dedicatedDispatchQueueSize);
+        RequestDispatchHandler dispatchHandler = new RequestDispatchHandler(proxyCenter.getDispatchTable(), serializerRegistry,
+                dispatchExecutors, metrics);
+        TransportType transport = transportType.resolve();
+        boolean epoll = transport == TransportType.EPOLL;
+        bossGroup = transport.newEventLoopGroup(bossGroupThreadNum);
+        workerGroup = transport.newEventLoopGroup(workerGroupThreadNum);
         ServerBootstrap serverBootstrap = new ServerBootstrap();
-        connectFuture = serverBootstrap.group(new NioEventLoopGroup(bossGroupThreadNum),
-                new NioEventLoopGroup(workerGroupThreadNum)).channel(NioServerSocketChannel.class)
-                .handler(new ChannelInitializer<SocketChannel>() {
+        serverBootstrap.group(bossGroup, workerGroup).channel(transport.serverChannelClass())
+                .childHandler(new ChannelInitializer<Channel>() {
                     @Override
-                    protected void initChannel(SocketChannel ch) throws Exception {
+                    protected void initChannel(Channel ch) throws Exception {
+                        ChannelPipeline pipeline = ch.pipeline();
+                        if (transport != TransportType.LOCAL) {
+                            pipeline.addLast(new FrameDecoder(maxFrameLength))
+                                    .addLast(new RequestDecoder(maxFrameLength))
+                                    .addLast(new ResponseEncoder(maxFrameLength));
+                        }
+                        pipeline.addLast(dispatchHandler);
                     }
-                }).bind("0.0.0.0", port);
+                });
+        if (transport != TransportType.LOCAL) {
+            serverBootstrap.childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+                    .childOption(ChannelOption.TCP_NODELAY, tcpNoDelay);
+        }
+        if (epoll) {
+            serverBootstrap.childOption(EpollChannelOption.TCP_QUICKACK, tcpQuickAck);
+        }
+        // with SO_REUSEPORT every boss thread accepts on its own listening socket and the kernel spreads connections
+        int bindNum = 1;
+        if (reusePort && epoll) {
+            serverBootstrap.option(EpollChannelOption.SO_REUSEPORT, true);
+            bindNum = Math.max(1, bossGroupThreadNum);
+        }
+        int bindPort = port;
+        for (int i = 0; i < bindNum; i++) {
+            bindFutures.add(serverBootstrap.bind(transport.address("0.0.0.0", bindPort)));
+            if (bindPort == 0 && bindNum > 1) {
+                // the other sockets share the ephemeral port the first one is given
+                bindPort = ((InetSocketAddress) bindFutures.get(0).syncUninterruptibly().channel().localAddress()).getPort();
+            }
+        }
     }
 
     public void start() throws InterruptedException {
         init();
-        connectFuture.sync();
+        for (ChannelFuture bindFuture : bindFutures) {
+            bindFuture.sync();
+        }
+        if (metrics != null) {
+            // a ephemeral port is known once bound
+            metrics.setName(String.valueOf(getBoundPort()));
+        }
     }
 
     /**
@@ -133,9 +341,65 @@ public final class RemoteCallServer {
          */
         private int workerGroupThreadNum;
         /**
-         * port to bind
+         * port to bind, 0 lets the system pick a free one, see {@code RemoteCallServer.getBoundPort}
          */
         private int port;
+        /**
+         * max length of a frame sending or receiving
+         */
+        private int maxFrameLength = Constant.DEFAULT_MAX_FRAME_LENGTH;
+        /**
+         * netty transport
+         */
+        private TransportType transportType = TransportType.AUTO;
+        /**
+         * whether Nagle's algorithm is disabled on accepted connections
+         */
+        private boolean tcpNoDelay = true;
+        /**
+         * whether the port is bound once per boss thread with {@code SO_REUSEPORT}, epoll only
+         */
+        private boolean reusePort;
+        /**
+         * whether delayed acks are disabled on accepted connections, epoll only
+         */
+        private boolean tcpQuickAck;
+        /**
+         * whether each invocation runs on its own virtual thread instead of the event loop
+         */
+        private boolean virtualThreadDispatch;
+        /**
+         * where invocations of interfaces without a mode of their own run, null means by {@code virtualThreadDispatch}
+         */
+        private DispatchMode dispatchMode;
+        /**
+         * key -> identifier of remote call interface
+         * value -> where invocations of the interface run
+         */
+        private Map<Integer, DispatchMode> dispatchModes = new HashMap<>();
+        /**
+         * threads and queue size of the pool shared by {@code SHARED} interfaces
+         */
+        private int sharedDispatchThreadNum = Runtime.getRuntime().availableProcessors() * 2;
+        private int sharedDispatchQueueSize = Constant.DEFAULT_DISPATCH_QUEUE_SIZE;
+        /**
+         * threads and queue size of a pool of a {@code DEDICATED} interface, unless given for the interface
+         */
+        private int dedicatedDispatchThreadNum = Runtime.getRuntime().availableProcessors();
+        private int dedicatedDispatchQueueSize = Constant.DEFAULT_DISPATCH_QUEUE_SIZE;
+        /**
+         * threads and queue size of pools of particular {@code DEDICATED} interfaces, by identifier
+         */
+        private Map<Integer, Integer> dedicatedDispatchThreadNums = new HashMap<>();
+        private Map<Integer, Integer> dedicatedDispatchQueueSizes = new HashMap<>();
+        /**
+         * whether metrics of invocations are collected
+         */
+        private boolean metricsEnabled = true;
+        /**
+         * serializers enabled in addition to the default ones
+         */
+        private List<Serializer> serializers = new ArrayList<>();
 
         private RemoteCallServerBuilder() {
         }
@@ -179,12 +443,207 @@ public final class RemoteCallServer {
         }
 
         public void setPort(int port) {
-            if (port <= 0) {
-                throw new RuntimeException("port should be a positive number");
+            if (port < 0) {
+                throw new RuntimeException("port should not be a negative number");
             }
             this.port = port;
         }
 
+        public int getMaxFrameLength() {
+            return maxFrameLength;
+        }
+
+        public void setMaxFrameLength(int maxFrameLength) {
+            if (maxFrameLength <= 0) {
+                throw new RuntimeException("maxFrameLength should be a positive number");
+            }
+            this.maxFrameLength = maxFrameLength;
+        }
+
+        public TransportType getTransportType() {
+            return transportType;
+        }
+
+        public void setTransportType(TransportType transportType) {
+            Objects.requireNonNull(transportType);
+            this.transportType = transportType;
+        }
+
+        public boolean isTcpNoDelay() {
+            return tcpNoDelay;
+        }
+
+        public void setTcpNoDelay(boolean tcpNoDelay) {
+            this.tcpNoDelay = tcpNoDelay;
+        }
+
+        public boolean isReusePort() {
+            return reusePort;
+        }
+
+        /**
+         * bind the port once per boss thread with {@code SO_REUSEPORT} so connections are accepted in parallel.
+         * ignored unless the epoll transport is in use
+         *
+         * @param reusePort true to enable
+         */
+        public void setReusePort(boolean reusePort) {
+            this.reusePort = reusePort;
+        }
+
+        public boolean isTcpQuickAck() {
+            return tcpQuickAck;
+        }
+
+        /**
+         * disable delayed acks on accepted connections, ignored unless the epoll transport is in use
+         *
+         * @param tcpQuickAck true to enable
+         */
+        public void setTcpQuickAck(boolean tcpQuickAck) {
+            this.tcpQuickAck = tcpQuickAck;
+        }
+
+        public boolean isVirtualThreadDispatch() {
+            return virtualThreadDispatch;
+        }
+
+        /**
+         * run each invocation of remote call instances on its own virtual thread,
+         * so blocking instances do not stall the event loop. requires a JVM supporting virtual threads.
+         * the virtual threads serve interfaces dispatched by {@code SHARED}, which becomes the default dispatch mode.
+         * they are bounded like the shared pool, see {@code setSharedDispatch}
+         *
+         * @param virtualThreadDispatch true to enable
+         */
+        public void setVirtualThreadDispatch(boolean virtualThreadDispatch) {
+            if (virtualThreadDispatch && !Utils.isVirtualThreadSupported()) {
+                throw new RuntimeException("virtual threads are not supported by this JVM");
+            }
+            this.virtualThreadDispatch = virtualThreadDispatch;
+        }
+
+        public DispatchMode getDispatchMode() {
+            return dispatchMode;
+        }
+
+        /**
+         * set where invocations of interfaces without a mode of their own run, {@code EVENT_LOOP} by default
+         *
+         * @param dispatchMode dispatch mode
+         */
+        public void setDispatchMode(DispatchMode dispatchMode) {
+            Objects.requireNonNull(dispatchMode);
+            this.dispatchMode = dispatchMode;
+        }
+
+        public Map<Integer, DispatchMode> getDispatchModes() {
+            return dispatchModes;
+        }
+
+        /**
+         * set where invocations of a remote call interface run, e.g. {@code EVENT_LOOP} for a interface of cheap methods
+         *
+         * @param remoteCallInterfaceId identifier of the remote call interface
+         * @param dispatchMode          dispatch mode
+         */
+        public void setDispatchMode(int remoteCallInterfaceId, DispatchMode dispatchMode) {
+            Objects.requireNonNull(dispatchMode);
+            if (remoteCallInterfaceId <= 0) {
+                throw new RuntimeException("remoteCallInterfaceId should be a positive number");
+            }
+            this.dispatchModes.put(remoteCallInterfaceId, dispatchMode);
+        }
+
+        /**
+         * run invocations of a remote call interface on a pool of its own
+         *
+         * @param remoteCallInterfaceId identifier of the remote call interface
+         * @param threadNum             number of threads of the pool
+         * @param queueSize             number of invocations waiting for a thread before requests are answered busy
+         */
+        public void setDedicatedDispatch(int remoteCallInterfaceId, int threadNum, int queueSize) {
+            checkPool(threadNum, queueSize);
+            setDispatchMode(remoteCallInterfaceId, DispatchMode.DEDICATED);
+            this.dedicatedDispatchThreadNums.put(remoteCallInterfaceId, threadNum);
+            this.dedicatedDispatchQueueSizes.put(remoteCallInterfaceId, queueSize);
+        }
+
+        public int getSharedDispatchThreadNum() {
+            return sharedDispatchThreadNum;
+        }
+
+        public int getSharedDispatchQueueSize() {
+            return sharedDispatchQueueSize;
+        }
+
+        /**
+         * size the pool shared by {@code SHARED} interfaces.
+         * with {@code virtualThreadDispatch} at most threadNum + queueSize invocations run at once on virtual threads
+         *
+         * @param threadNum number of threads of the pool
+         * @param queueSize number of invocations waiting for a thread before requests are answered busy
+         */
+        public void setSharedDispatch(int threadNum, int queueSize) {
+            checkPool(threadNum, queueSize);
+            this.sharedDispatchThreadNum = threadNum;
+            this.sharedDispatchQueueSize = queueSize;
+        }
+
+        public int getDedicatedDispatchThreadNum() {
+            return dedicatedDispatchThreadNum;
+        }
+
+        public int getDedicatedDispatchQueueSize() {
+            return dedicatedDispatchQueueSize;
+        }
+
+        /**
+         * size pools of {@code DEDICATED} interfaces not sized by {@code setDedicatedDispatch}
+         *
+         * @param threadNum number of threads of each pool
+         * @param queueSize number of invocations waiting for a thread before requests are answered busy
+         */
+        public void setDefaultDedicatedDispatch(int threadNum, int queueSize) {
+            checkPool(threadNum, queueSize);
+            this.dedicatedDispatchThreadNum = threadNum;
+            this.dedicatedDispatchQueueSize = queueSize;
+        }
+
+        private static void checkPool(int threadNum, int queueSize) {
+            if (threadNum <= 0) {
+                throw new RuntimeException("threadNum should be a positive number");
+            }
+            if (queueSize < 0) {
+                throw new RuntimeException("queueSize should not be negative");
+            }
+        }
+
+        public boolean isMetricsEnabled() {
+            return metricsEnabled;
+        }
+
+        public void setMetricsEnabled(boolean metricsEnabled) {
+            this.metricsEnabled = metricsEnabled;
+        }
+
+        public List<Serializer> getSerializers() {
+            return serializers;
+        }
+
+        /**
+         * enable a serializer in addition to {@code CompactSerializer} and {@code ProtobufSerializer}
+         * for all interfaces whose {@code Remote} assigns no serializer.
+         * a interface whose {@code Remote} assigns one, e.g. {@code JavaSerializer}, accepts that one alone
+         * and needs nothing enabled here
+         *
+         * @param serializer serializer
+         */
+        public void addSerializer(Serializer serializer) {
+            Objects.requireNonNull(serializer);
+            this.serializers.add(serializer);
+        }
+
         /**
          * call this to build {@code RemoteCallServer}
          *
@@ -196,6 +655,31 @@ public final class RemoteCallServer {
             server.bossGroupThreadNum = bossGroupThreadNum;
             server.workerGroupThreadNum = workerGroupThreadNum;
             server.port = port;
+            server.maxFrameLength = maxFrameLength;
+            server.transportType = transportType;
+            server.tcpNoDelay = tcpNoDelay;
+            server.reusePort = reusePort;
+            server.tcpQuickAck = tcpQuickAck;
+            server.virtualThreadDispatch = virtualThreadDispatch;
+            if (dispatchMode != null) {
+                server.dispatchMode = dispatchMode;
+            } else {
+                server.dispatchMode = virtualThreadDispatch ? DispatchMode.SHARED : DispatchMode.EVENT_LOOP;
+            }
+            server.dispatchModes = new HashMap<>(dispatchModes);
+            server.sharedDispatchThreadNum = sharedDispatchThreadNum;
+            server.sharedDispatchQueueSize = sharedDispatchQueueSize;
+            server.dedicatedDispatchThreadNum = dedicatedDispatchThreadNum;
+            server.dedicatedDispatchQueueSize = dedicatedDispatchQueueSize;
+            server.dedicatedDispatchThreadNums = new HashMap<>(dedicatedDispatchThreadNums);
+            server.dedicatedDispatchQueueSizes = new HashMap<>(dedicatedDispatchQueueSizes);
+            if (metricsEnabled) {
+                server.metrics = new MetricsRegistry("server", String.valueOf(port));
+            }
+            server.serializerRegistry = new SerializerRegistry();
+            for (Serializer serializer : serializers) {
+                server.serializerRegistry.register(serializer);
+            }
             server.proxyCenter = new ProxyCenter(server);
             return server;
         }
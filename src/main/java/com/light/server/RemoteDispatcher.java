@@ -0,0 +1,36 @@
+package com.light.server;
+
+import com.light.common.MethodSignature;
+
+/**
+ * dispatcher {@code RemoteProcessor} generates for a remote call interface with a {@code Instance}.
+ * it calls the methods of the instance directly in a switch on the method id,
+ * which {@code DispatchTable} prefers over method handles
+ *
+ * @author lihb
+ */
+public interface RemoteDispatcher {
+    /**
+     * signatures of the dispatched methods
+     *
+     * @return signatures, must not be modified
+     */
+    MethodSignature[] getSignatures();
+
+    /**
+     * parameter types of the dispatched methods, in the order of {@code getSignatures}
+     *
+     * @return parameter types, must not be modified
+     */
+    Class<?>[][] getParameterTypes();
+
+    /**
+     * invoke a method of the instance
+     *
+     * @param methodId identifier of the method
+     * @param args     arguments, one per declared parameter
+     * @return return value, null for void methods
+     * @throws Throwable anything the method throws
+     */
+    Object dispatch(int methodId, Object[] args) throws Throwable;
+}
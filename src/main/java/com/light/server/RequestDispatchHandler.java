@@ -0,0 +1,357 @@
+package com.light.server;
+
+import com.light.common.Constant;
+import com.light.common.MethodSignature;
+import com.light.common.Request;
+import com.light.common.Response;
+import com.light.metrics.MethodMetrics;
+import com.light.metrics.MetricsRegistry;
+import com.light.serializer.Serializer;
+import com.light.serializer.SerializerRegistry;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.util.AttributeKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * dispatch decoded requests to remote call instances and write back their results.
+ * invocations run on the event loop or on the executor {@code DispatchExecutors} picks for their interface,
+ * a request the executor has no room for is answered by a busy response right away.
+ * a request whose caller stopped waiting is dropped without a response, before it is invoked if it expired in a queue.
+ * a method returning a {@code Iterator} or {@code Flow.Publisher} to a streaming request has its items streamed
+ * as the client grants credits, see {@code ResultStream}
+ *
+ * @author lihb
+ */
+@ChannelHandler.Sharable
+public class RequestDispatchHandler extends SimpleChannelInboundHandler<Request> {
+    private static final Logger logger = LoggerFactory.getLogger(RequestDispatchHandler.class);
+    /**
+     * methods whose id means another method to the client of a channel, by {@code remoteCallInterfaceId << 32 | methodId}
+     */
+    private static final AttributeKey<Map<Long, String>> MISMATCHED_METHODS_KEY = AttributeKey.valueOf("light.mismatchedMethods");
+    /**
+     * open result streams of a channel, by message id
+     */
+    private static final AttributeKey<Map<Long, ResultStream>> STREAMS_KEY = AttributeKey.valueOf("light.streams");
+    private final DispatchTable dispatchTable;
+    private final SerializerRegistry serializerRegistry;
+    private final DispatchExecutors dispatchExecutors;
+    /**
+     * number of requests dropped as their caller stopped waiting
+     */
+    private final LongAdder expiredNum = new LongAdder();
+
+    /**
+     * @param metrics registry to register gauges of the handler to, null if disabled.
+     *                metrics of methods are resolved once by {@code DispatchTable}
+     */
+    RequestDispatchHandler(DispatchTable dispatchTable, SerializerRegistry serializerRegistry,
+                           DispatchExecutors dispatchExecutors, MetricsRegistry metrics) {
+        this.dispatchTable = dispatchTable;
+        this.serializerRegistry = serializerRegistry;
+        this.dispatchExecutors = dispatchExecutors;
+        if (metrics != null) {
+            metrics.registerGauge("expired_requests", expiredNum::sum);
+        }
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, Request request) throws Exception {
+        if (request.isControl()) {
+            control(ctx, request);
+            return;
+        }
+        if (request.getRemoteCallInterfaceId() == Constant.HANDSHAKE_INTERFACE_ID) {
+            handshake(ctx, request);
+            return;
+        }
+        Executor executor;
+        try {
+            executor = dispatchExecutors.executorFor(request.getRemoteCallInterfaceId());
+            if (executor == null) {
+                dispatch(ctx, request);
+                return;
+            }
+            executor.execute(() -> dispatch(ctx, request));
+        } catch (RejectedExecutionException e) {
+            Response response = new Response();
+            response.setMsgId(request.getMsgId());
+            response.setSerializerId(request.getSerializerId());
+            if (dispatchExecutors.isShutdown()) {
+                fail(response, "server is shutting down");
+            } else {
+                response.setStatus(Response.STATUS_BUSY);
+                response.setBody(String.format("server busy, no room to run remote call interface %d",
+                        request.getRemoteCallInterfaceId()).getBytes(StandardCharsets.UTF_8));
+            }
+            ctx.writeAndFlush(response);
+        }
+    }
+
+    private void dispatch(ChannelHandlerContext ctx, Request request) {
+        if (expired(request)) {
+            return;
+        }
+        Response response = new Response();
+        response.setMsgId(request.getMsgId());
+        response.setSerializerId(request.getSerializerId());
+        response.setCompressThreshold(request.getCompressThreshold());
+        MethodInvoker invoker = dispatchTable.lookup(request.getRemoteCallInterfaceId(), request.getMethodId());
+        // a interface bound to a serializer accepts that one alone, others any serializer enabled for all interfaces
+        Serializer boundSerializer = invoker == null ? null : invoker.getSerializer();
+        Serializer serializer = boundSerializer != null ? boundSerializer : serializerRegistry.get(request.getSerializerId());
+        boolean byReference = request.getArgValues() != null;
+        String mismatch = ctx.channel().hasAttr(MISMATCHED_METHODS_KEY) ? ctx.channel().attr(MISMATCHED_METHODS_KEY).get()
+                .get(key(request.getRemoteCallInterfaceId(), request.getMethodId())) : null;
+        if (boundSerializer != null && !byReference && boundSerializer.getIdentifier() != request.getSerializerId()) {
+            fail(response, String.format("remote call interface %d accepts serializer %d only, not %d",
+                    request.getRemoteCallInterfaceId(), boundSerializer.getIdentifier(), request.getSerializerId()));
+        } else if (serializer == null && !byReference) {
+            fail(response, String.format("serializer %d is not enabled", request.getSerializerId()));
+        } else if (mismatch != null) {
+            fail(response, mismatch);
+        } else if (invoker == null) {
+            fail(response, String.format("no instance for method %d of remote call interface %d",
+                    request.getMethodId(), request.getRemoteCallInterfaceId()));
+        } else {
+            MethodMetrics methodMetrics = invoker.getMetrics();
+            long startNanos = methodMetrics == null ? 0 : methodMetrics.start();
+            if (methodMetrics != null) {
+                methodMetrics.addBytesIn(payloadLength(request.getArgs()));
+            }
+            Object result;
+            try {
+                result = invoker.invoke(byReference ? checkArgs(invoker.getParameterTypes(), request.getArgValues())
+                        : readArgs(serializer, invoker.getParameterTypes(), request.getArgs()));
+            } catch (Throwable e) {
+                logger.error("", e);
+                fail(response, e.toString());
+                respond(ctx, response, methodMetrics, startNanos);
+                return;
+            }
+            if (request.getStreamCredit() > 0) {
+                if (result == null || result instanceof Iterator || result instanceof Flow.Publisher) {
+                    stream(ctx, request, result, byReference ? null : serializer, methodMetrics, startNanos);
+                    return;
+                }
+                fail(response, String.format("method %s returned %s instead of a Iterator or Flow.Publisher to stream",
+                        invoker.getMethodName(), result.getClass().getName()));
+                respond(ctx, response, methodMetrics, startNanos);
+                return;
+            }
+            if (result instanceof CompletionStage) {
+                ((CompletionStage<?>) result).whenComplete((value, cause) -> {
+                    if (expired(request)) {
+                        if (methodMetrics != null) {
+                            methodMetrics.fail(startNanos);
+                        }
+                        return;
+                    }
+                    if (cause != null) {
+                        fail(response, cause.toString());
+                    } else if (byReference) {
+                        response.setStatus(Response.STATUS_OK);
+                        response.setValue(value);
+                    } else {
+                        succeed(response, serializer, value);
+                    }
+                    respond(ctx, response, methodMetrics, startNanos);
+                });
+                return;
+            }
+            if (expired(request)) {
+                if (methodMetrics != null) {
+                    methodMetrics.fail(startNanos);
+                }
+                return;
+            }
+            if (byReference) {
+                response.setStatus(Response.STATUS_OK);
+                response.setValue(result);
+            } else {
+                succeed(response, serializer, result);
+            }
+            respond(ctx, response, methodMetrics, startNanos);
+            return;
+        }
+        ctx.writeAndFlush(response);
+    }
+
+    /**
+     * stream the items of a iterator or publisher a method returned, null is a empty stream.
+     * items of a iterator are pulled on the executor of the interface, or the event loop
+     */
+    @SuppressWarnings("unchecked")
+    private void stream(ChannelHandlerContext ctx, Request request, Object result, Serializer serializer,
+                        MethodMetrics methodMetrics, long startNanos) {
+        ctx.channel().attr(STREAMS_KEY).setIfAbsent(new ConcurrentHashMap<>());
+        Map<Long, ResultStream> streams = ctx.channel().attr(STREAMS_KEY).get();
+        ResultStream stream;
+        if (result instanceof Flow.Publisher) {
+            stream = new ResultStream.PublisherStream(ctx, request.getMsgId(), request.getSerializerId(), serializer,
+                    request.getCompressThreshold(), streams, methodMetrics, startNanos);
+        } else {
+            Executor executor = dispatchExecutors.executorFor(request.getRemoteCallInterfaceId());
+            stream = new ResultStream.IteratorStream(ctx, request.getMsgId(), request.getSerializerId(), serializer,
+                    request.getCompressThreshold(), streams, methodMetrics, startNanos,
+                    result == null ? Collections.emptyIterator() : (Iterator<?>) result, executor == null ? ctx.executor() : executor);
+        }
+        streams.put(request.getMsgId(), stream);
+        if (!ctx.channel().isActive()) {
+            // channelInactive may have cancelled the streams already
+            stream.cancel();
+            return;
+        }
+        if (result instanceof Flow.Publisher) {
+            ((Flow.Publisher<Object>) result).subscribe((ResultStream.PublisherStream) stream);
+        }
+        stream.request(request.getStreamCredit());
+    }
+
+    /**
+     * grant a open stream more credits or cancel it
+     */
+    private static void control(ChannelHandlerContext ctx, Request request) {
+        ResultStream stream = ctx.channel().hasAttr(STREAMS_KEY) ? ctx.channel().attr(STREAMS_KEY).get().get(request.getMsgId()) : null;
+        if (stream == null) {
+            // ended already
+            return;
+        }
+        if (request.getStreamCredit() > 0) {
+            stream.request(request.getStreamCredit());
+        } else {
+            stream.cancel();
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        if (ctx.channel().hasAttr(STREAMS_KEY)) {
+            for (ResultStream stream : ctx.channel().attr(STREAMS_KEY).get().values()) {
+                stream.cancel();
+            }
+        }
+        super.channelInactive(ctx);
+    }
+
+    /**
+     * verify the method signatures a client declared, the methods that do not agree are rejected on this channel.
+     * the response is OK or lists the disagreements
+     */
+    private void handshake(ChannelHandlerContext ctx, Request request) {
+        List<String> mismatches = new ArrayList<>();
+        for (byte[] entry : request.getArgs()) {
+            MethodSignature signature = MethodSignature.decode(entry);
+            String mismatch = dispatchTable.verify(signature);
+            if (mismatch != null) {
+                mismatches.add(mismatch);
+                ctx.channel().attr(MISMATCHED_METHODS_KEY).setIfAbsent(new ConcurrentHashMap<>());
+                ctx.channel().attr(MISMATCHED_METHODS_KEY).get()
+                        .put(key(signature.getInterfaceId(), signature.getMethodId()), mismatch);
+            }
+        }
+        Response response = new Response();
+        response.setMsgId(Constant.HANDSHAKE_MSG_ID);
+        if (mismatches.isEmpty()) {
+            response.setStatus(Response.STATUS_OK);
+            response.setBody(new byte[0]);
+        } else {
+            logger.warn("client {} declared methods which do not agree: {}", ctx.channel().remoteAddress(), mismatches);
+            fail(response, String.join("; ", mismatches));
+        }
+        ctx.writeAndFlush(response);
+    }
+
+    /**
+     * whether the caller of a request stopped waiting, such a request is counted and needs no response
+     */
+    private boolean expired(Request request) {
+        if (!request.isExpired(System.nanoTime())) {
+            return false;
+        }
+        expiredNum.increment();
+        logger.debug("drop request {} of remote call interface {}, its caller stopped waiting",
+                request.getMsgId(), request.getRemoteCallInterfaceId());
+        return true;
+    }
+
+    private static long key(int remoteCallInterfaceId, int methodId) {
+        return (long) remoteCallInterfaceId << 32 | (methodId & 0xFFFFFFFFL);
+    }
+
+    /**
+     * write back the response of a invoked method and record its metrics
+     */
+    private static void respond(ChannelHandlerContext ctx, Response response, MethodMetrics methodMetrics, long startNanos) {
+        if (methodMetrics != null) {
+            if (response.getBody() != null) {
+                methodMetrics.addBytesOut(response.getBody().length);
+            }
+            if (response.getStatus() == Response.STATUS_OK) {
+                methodMetrics.succeed(startNanos);
+            } else {
+                methodMetrics.fail(startNanos);
+            }
+        }
+        ctx.writeAndFlush(response);
+    }
+
+    private static long payloadLength(List<byte[]> args) {
+        long length = 0;
+        for (byte[] arg : args) {
+            length += arg.length;
+        }
+        return length;
+    }
+
+    private static Object[] readArgs(Serializer serializer, Class<?>[] parameterTypes, List<byte[]> args) throws Exception {
+        checkArgCount(parameterTypes.length, args.size());
+        Object[] values = new Object[parameterTypes.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = serializer.deserialize(args.get(i), parameterTypes[i]);
+        }
+        return values;
+    }
+
+    private static Object[] checkArgs(Class<?>[] parameterTypes, Object[] args) {
+        checkArgCount(parameterTypes.length, args.length);
+        return args;
+    }
+
+    private static void checkArgCount(int expected, int received) {
+        if (expected != received) {
+            throw new IllegalArgumentException(String.format("expect %d arguments but received %d", expected, received));
+        }
+    }
+
+    static void succeed(Response response, Serializer serializer, Object result) {
+        try {
+            response.setStatus(Response.STATUS_OK);
+            response.setBody(serializer.serialize(result));
+        } catch (Exception e) {
+            logger.error("", e);
+            fail(response, e.toString());
+        }
+    }
+
+    static void fail(Response response, String message) {
+        response.setStatus(Response.STATUS_ERROR);
+        response.setBody(message.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,349 @@
+package com.light.server;
+
+import com.light.common.Response;
+import com.light.metrics.MethodMetrics;
+import com.light.serializer.Serializer;
+import io.netty.channel.ChannelHandlerContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * a result streamed to the client as item responses under the message id of its request, ended by a end response.
+ * the client grants credits, a stream never sends more items than it was granted.
+ * a {@code Iterator} is pulled on the executor its interface is dispatched on,
+ * a {@code Flow.Publisher} is subscribed to and credits are requested from it
+ *
+ * @author lihb
+ */
+abstract class ResultStream {
+    private static final Logger logger = LoggerFactory.getLogger(ResultStream.class);
+
+    private final ChannelHandlerContext ctx;
+    private final long msgId;
+    private final byte serializerId;
+    /**
+     * serializer of the items, null if they are passed by reference
+     */
+    private final Serializer serializer;
+    private final int compressThreshold;
+    /**
+     * open streams of the channel, by message id
+     */
+    private final Map<Long, ResultStream> streams;
+    /**
+     * metrics of the streaming method, null if disabled
+     */
+    private final MethodMetrics metrics;
+    private final long startNanos;
+    private final AtomicBoolean done = new AtomicBoolean();
+
+    ResultStream(ChannelHandlerContext ctx, long msgId, byte serializerId, Serializer serializer, int compressThreshold,
+                 Map<Long, ResultStream> streams, MethodMetrics metrics, long startNanos) {
+        this.ctx = ctx;
+        this.msgId = msgId;
+        this.serializerId = serializerId;
+        this.serializer = serializer;
+        this.compressThreshold = compressThreshold;
+        this.streams = streams;
+        this.metrics = metrics;
+        this.startNanos = startNanos;
+    }
+
+    /**
+     * allow the stream to send more items
+     *
+     * @param credit number of items
+     */
+    abstract void request(long credit);
+
+    /**
+     * stop producing items, the client gave up the stream
+     */
+    void cancel() {
+        if (finish()) {
+            if (metrics != null) {
+                metrics.fail(startNanos);
+            }
+            onCancel();
+        }
+    }
+
+    /**
+     * release the source of the items after the stream was cancelled
+     */
+    protected abstract void onCancel();
+
+    /**
+     * send a item
+     *
+     * @param item  item
+     * @param flush whether to flush it right away, otherwise {@code flush} must follow
+     * @return false if the stream is over
+     */
+    boolean emit(Object item, boolean flush) {
+        if (done.get()) {
+            return false;
+        }
+        Response response = newResponse();
+        if (serializer == null) {
+            response.setStatus(Response.STATUS_ITEM);
+            response.setValue(item);
+        } else {
+            RequestDispatchHandler.succeed(response, serializer, item);
+            if (response.getStatus() != Response.STATUS_OK) {
+                fail(new IllegalStateException(new String(response.getBody(), StandardCharsets.UTF_8)));
+                return false;
+            }
+            response.setStatus(Response.STATUS_ITEM);
+            if (metrics != null) {
+                metrics.addBytesOut(response.getBody().length);
+            }
+        }
+        if (flush) {
+            ctx.writeAndFlush(response);
+        } else {
+            ctx.write(response, ctx.voidPromise());
+        }
+        return true;
+    }
+
+    /**
+     * flush the items written since the last flush
+     */
+    void flush() {
+        ctx.flush();
+    }
+
+    /**
+     * send the end of the stream
+     */
+    void complete() {
+        if (finish()) {
+            if (metrics != null) {
+                metrics.succeed(startNanos);
+            }
+            Response response = newResponse();
+            response.setStatus(Response.STATUS_END);
+            response.setBody(new byte[0]);
+            ctx.writeAndFlush(response);
+        }
+    }
+
+    /**
+     * end the stream with a error
+     *
+     * @param cause what the source of the items threw
+     */
+    void fail(Throwable cause) {
+        if (finish()) {
+            logger.error("", cause);
+            if (metrics != null) {
+                metrics.fail(startNanos);
+            }
+            Response response = newResponse();
+            RequestDispatchHandler.fail(response, cause.toString());
+            ctx.writeAndFlush(response);
+            onCancel();
+        }
+    }
+
+    /**
+     * end the stream as the server has no room to produce its items
+     */
+    void failBusy() {
+        if (finish()) {
+            if (metrics != null) {
+                metrics.fail(startNanos);
+            }
+            Response response = newResponse();
+            response.setStatus(Response.STATUS_BUSY);
+            response.setBody("server busy, no room to stream result".getBytes(StandardCharsets.UTF_8));
+            ctx.writeAndFlush(response);
+            onCancel();
+        }
+    }
+
+    boolean isDone() {
+        return done.get();
+    }
+
+    private boolean finish() {
+        if (!done.compareAndSet(false, true)) {
+            return false;
+        }
+        streams.remove(msgId);
+        return true;
+    }
+
+    private Response newResponse() {
+        Response response = new Response();
+        response.setMsgId(msgId);
+        response.setSerializerId(serializerId);
+        response.setCompressThreshold(compressThreshold);
+        return response;
+    }
+
+    /**
+     * pull items from a iterator while there are credits, the iterator may block waiting for them.
+     * it is not touched without a credit, so a blocking iterator holds its thread only while the client awaits items,
+     * and the end waits for a credit too, which the client grants once it consumed what was sent
+     */
+    static final class IteratorStream extends ResultStream {
+        private final Iterator<?> iterator;
+        private final Executor executor;
+        private final AtomicLong credits = new AtomicLong();
+        /**
+         * number of times the stream was asked to drain while draining, so one thread drains at a time
+         */
+        private final AtomicInteger wip = new AtomicInteger();
+
+        IteratorStream(ChannelHandlerContext ctx, long msgId, byte serializerId, Serializer serializer, int compressThreshold,
+                       Map<Long, ResultStream> streams, MethodMetrics metrics, long startNanos,
+                       Iterator<?> iterator, Executor executor) {
+            super(ctx, msgId, serializerId, serializer, compressThreshold, streams, metrics, startNanos);
+            this.iterator = iterator;
+            this.executor = executor;
+        }
+
+        @Override
+        void request(long credit) {
+            credits.accumulateAndGet(credit, ResultStream::addCap);
+            if (wip.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    failBusy();
+                }
+            }
+        }
+
+        private void drain() {
+            int missed = 1;
+            do {
+                long credit = credits.get();
+                long sent = 0;
+                try {
+                    while (sent < credit && !isDone()) {
+                        if (!iterator.hasNext()) {
+                            complete();
+                            break;
+                        }
+                        if (!emit(iterator.next(), false)) {
+                            break;
+                        }
+                        sent++;
+                    }
+                } catch (Throwable e) {
+                    fail(e);
+                }
+                // items of a batch share one flush
+                if (sent > 0) {
+                    flush();
+                }
+                credits.addAndGet(-sent);
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        @Override
+        protected void onCancel() {
+            if (iterator instanceof AutoCloseable) {
+                try {
+                    ((AutoCloseable) iterator).close();
+                } catch (Exception e) {
+                    logger.warn("can not close iterator of a cancelled stream", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * subscribe to a publisher and pass the credits on as its demand
+     */
+    static final class PublisherStream extends ResultStream implements Flow.Subscriber<Object> {
+        private Flow.Subscription subscription;
+        /**
+         * credits received before the publisher called {@code onSubscribe}
+         */
+        private long pendingCredit;
+
+        PublisherStream(ChannelHandlerContext ctx, long msgId, byte serializerId, Serializer serializer, int compressThreshold,
+                        Map<Long, ResultStream> streams, MethodMetrics metrics, long startNanos) {
+            super(ctx, msgId, serializerId, serializer, compressThreshold, streams, metrics, startNanos);
+        }
+
+        @Override
+        void request(long credit) {
+            Flow.Subscription current;
+            synchronized (this) {
+                current = subscription;
+                if (current == null) {
+                    pendingCredit = addCap(pendingCredit, credit);
+                    return;
+                }
+            }
+            current.request(credit);
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            long credit;
+            synchronized (this) {
+                if (this.subscription != null) {
+                    subscription.cancel();
+                    return;
+                }
+                this.subscription = subscription;
+                credit = pendingCredit;
+            }
+            if (isDone()) {
+                subscription.cancel();
+            } else if (credit > 0) {
+                subscription.request(credit);
+            }
+        }
+
+        @Override
+        public void onNext(Object item) {
+            if (!emit(item, true)) {
+                onCancel();
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            fail(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            complete();
+        }
+
+        @Override
+        protected void onCancel() {
+            Flow.Subscription current;
+            synchronized (this) {
+                current = subscription;
+            }
+            if (current != null) {
+                current.cancel();
+            }
+        }
+    }
+
+    private static long addCap(long a, long b) {
+        long sum = a + b;
+        return sum < 0 ? Long.MAX_VALUE : sum;
+    }
+}
@@ -0,0 +1,178 @@
+package com.light.utils;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * read just enough of a class file to tell whether it declares a annotated interface,
+ * so scanning does not load classes it is not interested in
+ *
+ * @author lihb
+ */
+final class ClassFileReader {
+    private static final int MAGIC = 0xCAFEBABE;
+    private static final int ACC_INTERFACE = 0x0200;
+    private static final int ACC_ANNOTATION = 0x2000;
+    private static final byte[] RUNTIME_VISIBLE_ANNOTATIONS = "RuntimeVisibleAnnotations".getBytes(StandardCharsets.UTF_8);
+
+    private ClassFileReader() {
+    }
+
+    /**
+     * whether a class file declares a interface annotated by a runtime visible annotation
+     *
+     * @param bytes                bytes of the class file
+     * @param annotationDescriptor descriptor of the annotation, like {@code Lcom/light/common/Remote;}
+     * @return true if it does, false if it does not or the bytes are not a valid class file
+     */
+    static boolean isAnnotatedInterface(byte[] bytes, String annotationDescriptor) {
+        try {
+            return isAnnotatedInterface(ByteBuffer.wrap(bytes), annotationDescriptor.getBytes(StandardCharsets.UTF_8));
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            // read or skipped past the end of a truncated or malformed class file
+            return false;
+        }
+    }
+
+    private static boolean isAnnotatedInterface(ByteBuffer in, byte[] annotationDescriptor) {
+        if (in.getInt() != MAGIC) {
+            return false;
+        }
+        // minor and major version
+        in.position(in.position() + 4);
+        int constantPoolCount = in.getShort() & 0xFFFF;
+        // offset of every Utf8 constant, 0 for other constants
+        int[] utf8Offsets = new int[constantPoolCount];
+        for (int i = 1; i < constantPoolCount; i++) {
+            byte tag = in.get();
+            switch (tag) {
+                case 1:
+                    utf8Offsets[i] = in.position();
+                    in.position(in.position() + 2 + (in.getShort() & 0xFFFF));
+                    break;
+                case 3:
+                case 4:
+                case 9:
+                case 10:
+                case 11:
+                case 12:
+                case 17:
+                case 18:
+                    in.position(in.position() + 4);
+                    break;
+                case 5:
+                case 6:
+                    in.position(in.position() + 8);
+                    // takes two entries
+                    i++;
+                    break;
+                case 7:
+                case 8:
+                case 16:
+                case 19:
+                case 20:
+                    in.position(in.position() + 2);
+                    break;
+                case 15:
+                    in.position(in.position() + 3);
+                    break;
+                default:
+                    return false;
+            }
+        }
+        int accessFlags = in.getShort() & 0xFFFF;
+        if ((accessFlags & ACC_INTERFACE) == 0 || (accessFlags & ACC_ANNOTATION) != 0) {
+            return false;
+        }
+        // this class and super class
+        in.position(in.position() + 4);
+        int interfaceCount = in.getShort() & 0xFFFF;
+        in.position(in.position() + interfaceCount * 2);
+        // fields then methods
+        for (int member = 0; member < 2; member++) {
+            int memberCount = in.getShort() & 0xFFFF;
+            for (int i = 0; i < memberCount; i++) {
+                in.position(in.position() + 6);
+                skipAttributes(in);
+            }
+        }
+        int attributeCount = in.getShort() & 0xFFFF;
+        for (int i = 0; i < attributeCount; i++) {
+            int nameIndex = in.getShort() & 0xFFFF;
+            int length = in.getInt();
+            int end = in.position() + length;
+            if (length < 0 || end > in.limit()) {
+                return false;
+            }
+            if (utf8Equals(in, utf8Offsets[nameIndex], RUNTIME_VISIBLE_ANNOTATIONS)) {
+                int annotationCount = in.getShort() & 0xFFFF;
+                for (int j = 0; j < annotationCount; j++) {
+                    if (utf8Equals(in, utf8Offsets[in.getShort(in.position()) & 0xFFFF], annotationDescriptor)) {
+                        return true;
+                    }
+                    skipAnnotation(in);
+                }
+            }
+            in.position(end);
+        }
+        return false;
+    }
+
+    private static void skipAttributes(ByteBuffer in) {
+        int attributeCount = in.getShort() & 0xFFFF;
+        for (int i = 0; i < attributeCount; i++) {
+            in.position(in.position() + 2);
+            int length = in.getInt();
+            in.position(in.position() + length);
+        }
+    }
+
+    private static void skipAnnotation(ByteBuffer in) {
+        // type index
+        in.position(in.position() + 2);
+        int pairCount = in.getShort() & 0xFFFF;
+        for (int i = 0; i < pairCount; i++) {
+            // element name index
+            in.position(in.position() + 2);
+            skipElementValue(in);
+        }
+    }
+
+    private static void skipElementValue(ByteBuffer in) {
+        byte tag = in.get();
+        switch (tag) {
+            case 'e':
+                in.position(in.position() + 4);
+                break;
+            case '@':
+                skipAnnotation(in);
+                break;
+            case '[':
+                int valueCount = in.getShort() & 0xFFFF;
+                for (int i = 0; i < valueCount; i++) {
+                    skipElementValue(in);
+                }
+                break;
+            default:
+                // constants, strings and classes
+                in.position(in.position() + 2);
+                break;
+        }
+    }
+
+    /**
+     * compare a Utf8 constant with bytes, both in (modified) UTF-8 which agree on the names compared here
+     */
+    private static boolean utf8Equals(ByteBuffer in, int offset, byte[] expected) {
+        if (offset == 0 || (in.getShort(offset) & 0xFFFF) != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (in.get(offset + 2 + i) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
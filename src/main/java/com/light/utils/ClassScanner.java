@@ -1,25 +1,41 @@
 package com.light.utils;
 
 import com.light.common.Constant;
+import com.light.common.Remote;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.UnsupportedEncodingException;
+import java.net.JarURLConnection;
 import java.net.URL;
+import java.net.URLConnection;
 import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.Enumeration;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
 
 /**
- * Class scanner
+ * Class scanner, which scans directories and jars on the classpath
  *
  * @author lihb
  */
 public class ClassScanner {
     private static final Logger logger = LoggerFactory.getLogger(ClassScanner.class);
+    private static final String CLASS_FILE_EXTENSION = "." + Constant.CLASS_FILE_SUFFIX;
+    /**
+     * descriptor of {@code Remote} in class files
+     */
+    private static final String REMOTE_DESCRIPTOR = String.format("L%s;", Remote.class.getName().replace('.', '/'));
 
     /**
      * scan all class under packageName
@@ -29,64 +45,211 @@ public class ClassScanner {
      * @return
      */
     public static Set<Class<?>> scan(String packageName, boolean recursive) {
-        Set<Class<?>> classes = new LinkedHashSet<>();
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        Set<String> classNames = new LinkedHashSet<>();
+        collect(classLoader, packageName, recursive, null, new HashSet<>(), classNames);
+        return load(classLoader, classNames);
+    }
+
+    /**
+     * scan interfaces annotated by {@code Remote} under packageName.
+     * classpath roots that carry a index generated by {@code RemoteProcessor} are not scanned but read from the index,
+     * other class files are checked by their bytes, so only matching interfaces are loaded
+     *
+     * @param packageName full qualified package name for scanning
+     * @param recursive   whether to scan sub packages
+     * @return remote call interfaces found
+     */
+    public static Set<Class<?>> scanRemoteInterfaces(String packageName, boolean recursive) {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        Set<String> classNames = new LinkedHashSet<>();
+        Set<String> indexedRoots = readIndexes(classLoader, packageName, recursive, classNames);
+        collect(classLoader, packageName, recursive, REMOTE_DESCRIPTOR, indexedRoots, classNames);
+        return load(classLoader, classNames);
+    }
+
+    /**
+     * obtain classes under packagePath
+     *
+     * @param packageName
+     * @param packagePath
+     * @param recursive
+     * @param classes
+     */
+    public static void findAndAddClassesInPackageByFile(String packageName,
+                                                        String packagePath, boolean recursive, Set<Class<?>> classes) {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        Set<String> classNames = new LinkedHashSet<>();
+        collectFromDirectory(new File(packagePath), packageName, recursive, null, classNames);
+        classes.addAll(load(classLoader, classNames));
+    }
+
+    /**
+     * collect names of classes under packageName, except those under skipped classpath roots
+     *
+     * @param annotationDescriptor if not null, only interfaces annotated by it are collected
+     */
+    private static void collect(ClassLoader classLoader, String packageName, boolean recursive, String annotationDescriptor,
+                                Set<String> skippedRoots, Set<String> classNames) {
         String packageDirName = packageName.replace('.', '/');
-        Enumeration<URL> urls;
-        try {
-            urls = Thread.currentThread().getContextClassLoader().getResources(packageDirName);
-        } catch (IOException e) {
-            logger.error("", e);
-            throw new RuntimeException(String.format("can not scan %s", packageName));
-        }
+        Enumeration<URL> urls = getResources(classLoader, packageDirName);
         while (urls.hasMoreElements()) {
             URL url = urls.nextElement();
+            if (skippedRoots.contains(rootOf(url, packageDirName))) {
+                continue;
+            }
             String protocol = url.getProtocol();
             if (Constant.FILE_PROTOCOL.equals(protocol)) {
-                String filePath = null;
+                String filePath;
                 try {
                     filePath = URLDecoder.decode(url.getFile(), "UTF-8");
                 } catch (UnsupportedEncodingException e) {
                     logger.error("", e);
+                    continue;
                 }
-                findAndAddClassesInPackageByFile(packageName,
-                        filePath, recursive, classes);
+                collectFromDirectory(new File(filePath), packageName, recursive, annotationDescriptor, classNames);
+            } else if (Constant.JAR_PROTOCOL.equals(protocol)) {
+                collectFromJar(url, packageDirName, recursive, annotationDescriptor, classNames);
+            } else {
+                logger.warn("can not scan {}, protocol {} is not supported", url, protocol);
             }
         }
-
-        return classes;
     }
 
-    /**
-     * obtain classes under packagePath
-     *
-     * @param packageName
-     * @param packagePath
-     * @param recursive
-     * @param classes
-     */
-    public static void findAndAddClassesInPackageByFile(String packageName,
-                                                        String packagePath, boolean recursive, Set<Class<?>> classes) {
-        File dir = new File(packagePath);
-        if (!dir.exists() || !dir.isDirectory()) {
+    private static void collectFromDirectory(File dir, String packageName, boolean recursive, String annotationDescriptor,
+                                             Set<String> classNames) {
+        File[] files = dir.listFiles(file -> (recursive && file.isDirectory()) ||
+                (file.getName().endsWith(CLASS_FILE_EXTENSION)));
+        if (files == null) {
             return;
         }
-        File[] files = dir.listFiles(file -> (recursive && file.isDirectory()) ||
-                (file.getName().endsWith(Constant.CLASS_FILE_SUFFIX)));
         for (File file : files) {
             if (file.isDirectory()) {
-                findAndAddClassesInPackageByFile(String.format("%s.%s", packageName, file.getName()), file.getAbsolutePath(), recursive, classes);
-            } else {
-                String className = file.getName().substring(0,
-                        file.getName().length() - Constant.CLASS_FILE_SUFFIX.length() - 1);
-                try {
-                    classes.add(Thread.currentThread()
-                            .getContextClassLoader()
-                            .loadClass(String.format("%s.%s", packageName, className)));
-                } catch (ClassNotFoundException e) {
-                    logger.error("", e);
+                collectFromDirectory(file, String.format("%s.%s", packageName, file.getName()), recursive,
+                        annotationDescriptor, classNames);
+                continue;
+            }
+            String simpleName = file.getName().substring(0, file.getName().length() - CLASS_FILE_EXTENSION.length());
+            // package-info and module-info
+            if (simpleName.indexOf('-') >= 0) {
+                continue;
+            }
+            try {
+                if (annotationDescriptor == null
+                        || ClassFileReader.isAnnotatedInterface(Files.readAllBytes(file.toPath()), annotationDescriptor)) {
+                    classNames.add(String.format("%s.%s", packageName, simpleName));
+                }
+            } catch (IOException e) {
+                logger.error(String.format("can not read %s", file), e);
+            }
+        }
+    }
+
+    private static void collectFromJar(URL url, String packageDirName, boolean recursive, String annotationDescriptor,
+                                       Set<String> classNames) {
+        String prefix = packageDirName + "/";
+        try {
+            JarURLConnection connection = (JarURLConnection) url.openConnection();
+            // the jar is opened for this scan only instead of being cached for the whole process
+            connection.setUseCaches(false);
+            try (JarFile jarFile = connection.getJarFile()) {
+                Enumeration<JarEntry> entries = jarFile.entries();
+                while (entries.hasMoreElements()) {
+                    JarEntry entry = entries.nextElement();
+                    String name = entry.getName();
+                    if (entry.isDirectory() || !name.startsWith(prefix) || !name.endsWith(CLASS_FILE_EXTENSION)
+                            || (!recursive && name.indexOf('/', prefix.length()) >= 0) || name.indexOf('-') >= 0) {
+                        continue;
+                    }
+                    if (annotationDescriptor != null) {
+                        byte[] bytes;
+                        try (InputStream in = jarFile.getInputStream(entry)) {
+                            bytes = in.readAllBytes();
+                        }
+                        if (!ClassFileReader.isAnnotatedInterface(bytes, annotationDescriptor)) {
+                            continue;
+                        }
+                    }
+                    classNames.add(name.substring(0, name.length() - CLASS_FILE_EXTENSION.length()).replace('/', '.'));
                 }
             }
+        } catch (IOException e) {
+            logger.error(String.format("can not scan %s", url), e);
         }
     }
 
+    /**
+     * read names of remote call interfaces under packageName from every index on the classpath
+     *
+     * @return classpath roots the indexes belong to
+     */
+    private static Set<String> readIndexes(ClassLoader classLoader, String packageName, boolean recursive, Set<String> classNames) {
+        Set<String> roots = new HashSet<>();
+        Enumeration<URL> urls = getResources(classLoader, Constant.REMOTE_INDEX_LOCATION);
+        while (urls.hasMoreElements()) {
+            URL url = urls.nextElement();
+            Set<String> indexed = new LinkedHashSet<>();
+            try {
+                URLConnection connection = url.openConnection();
+                connection.setUseCaches(false);
+                try (BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        line = line.trim();
+                        if (!line.isEmpty() && !line.startsWith("#") && inPackage(line, packageName, recursive)) {
+                            indexed.add(line);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                logger.warn(String.format("can not read %s, its classpath root is scanned instead", url), e);
+                continue;
+            }
+            classNames.addAll(indexed);
+            String location = url.toString();
+            roots.add(location.substring(0, location.length() - Constant.REMOTE_INDEX_LOCATION.length()));
+        }
+        return roots;
+    }
+
+    private static boolean inPackage(String className, String packageName, boolean recursive) {
+        int lastDot = className.lastIndexOf('.');
+        String classPackage = lastDot < 0 ? "" : className.substring(0, lastDot);
+        return classPackage.equals(packageName) || (recursive && classPackage.startsWith(packageName + "."));
+    }
+
+    /**
+     * classpath root of a package directory, like {@code file:/app/classes/} or {@code jar:file:/app.jar!/}
+     */
+    private static String rootOf(URL url, String packageDirName) {
+        String location = url.toString();
+        if (location.endsWith("/")) {
+            location = location.substring(0, location.length() - 1);
+        }
+        return location.endsWith(packageDirName) ? location.substring(0, location.length() - packageDirName.length())
+                : location;
+    }
+
+    private static Enumeration<URL> getResources(ClassLoader classLoader, String name) {
+        try {
+            return classLoader.getResources(name);
+        } catch (IOException e) {
+            logger.error("", e);
+            throw new RuntimeException(String.format("can not scan %s", name));
+        }
+    }
+
+    private static Set<Class<?>> load(ClassLoader classLoader, Set<String> classNames) {
+        Set<Class<?>> classes = new LinkedHashSet<>();
+        for (String className : classNames) {
+            try {
+                classes.add(classLoader.loadClass(className));
+            } catch (ClassNotFoundException | LinkageError e) {
+                logger.error("", e);
+            }
+        }
+        return classes;
+    }
+
 }
@@ -1,9 +1,95 @@
 package com.light.utils;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 /**
  * Utility class
  */
 public final class Utils {
+    /**
+     * {@code Thread.isVirtual()}, null if the running JVM has no virtual threads
+     */
+    private static final MethodHandle IS_VIRTUAL;
+    /**
+     * {@code Executors.newVirtualThreadPerTaskExecutor()}, null if the running JVM has no virtual threads
+     */
+    private static final MethodHandle NEW_VIRTUAL_THREAD_EXECUTOR;
+
+    static {
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        MethodHandle isVirtual;
+        MethodHandle newVirtualThreadExecutor;
+        try {
+            isVirtual = lookup.findVirtual(Thread.class, "isVirtual", MethodType.methodType(boolean.class));
+            newVirtualThreadExecutor = lookup.findStatic(Executors.class,
+                    "newVirtualThreadPerTaskExecutor", MethodType.methodType(ExecutorService.class));
+        } catch (ReflectiveOperationException e) {
+            isVirtual = null;
+            newVirtualThreadExecutor = null;
+        }
+        IS_VIRTUAL = isVirtual;
+        NEW_VIRTUAL_THREAD_EXECUTOR = newVirtualThreadExecutor;
+    }
+
     private Utils() {
     }
+
+    /**
+     * whether the running JVM supports virtual threads
+     *
+     * @return true if supported
+     */
+    public static boolean isVirtualThreadSupported() {
+        return NEW_VIRTUAL_THREAD_EXECUTOR != null;
+    }
+
+    /**
+     * whether a thread is a virtual thread
+     *
+     * @param thread thread
+     * @return true if it is virtual
+     */
+    public static boolean isVirtualThread(Thread thread) {
+        if (IS_VIRTUAL == null) {
+            return false;
+        }
+        try {
+            return (boolean) IS_VIRTUAL.invokeExact(thread);
+        } catch (Throwable e) {
+            return false;
+        }
+    }
+
+    /**
+     * create a executor which starts a new virtual thread for each task
+     *
+     * @return executor
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+        if (NEW_VIRTUAL_THREAD_EXECUTOR == null) {
+            throw new RuntimeException("virtual threads are not supported by this JVM");
+        }
+        try {
+            return (ExecutorService) NEW_VIRTUAL_THREAD_EXECUTOR.invokeExact();
+        } catch (Throwable e) {
+            throw new RuntimeException("can not create virtual thread executor", e);
+        }
+    }
+
+    /**
+     * name of a class generated for a remote call interface, a top level class in the package of the interface
+     * named after the interface and the classes enclosing it
+     *
+     * @param binaryName binary name of the interface, like {@code a.b.Outer$Inner}
+     * @param suffix     suffix of the generated class
+     * @return binary name of the generated class, like {@code a.b.Outer_Inner_Stub}
+     */
+    public static String generatedClassName(String binaryName, String suffix) {
+        int packageEnd = binaryName.lastIndexOf('.') + 1;
+        return binaryName.substring(0, packageEnd) + binaryName.substring(packageEnd).replace('$', '_') + suffix;
+    }
 }
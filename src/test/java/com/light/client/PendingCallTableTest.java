@@ -0,0 +1,161 @@
+package com.light.client;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * message ids and slots of {@code PendingCallTable}
+ *
+ * @author lihb
+ */
+public class PendingCallTableTest {
+    private final AtomicInteger removals = new AtomicInteger();
+
+    @Test
+    public void slotsAreRoundedUpToAPowerOfTwo() {
+        assertEquals(2, newTable(2).slotNum());
+        assertEquals(4, newTable(3).slotNum());
+        assertEquals(4, newTable(4).slotNum());
+        assertEquals(8, newTable(5).slotNum());
+        assertEquals(1024, newTable(1000).slotNum());
+    }
+
+    @Test
+    public void configuredCapacityIsEnforcedBelowTheSlots() {
+        PendingCallTable table = newTable(1000);
+        assertEquals(1000, table.capacity());
+        long first = -1;
+        for (int i = 0; i < 1000; i++) {
+            long msgId = table.register(newCall());
+            assertTrue(msgId > 0);
+            first = first < 0 ? msgId : first;
+        }
+        assertEquals(-1, table.register(newCall()));
+        assertEquals(1000, table.size());
+        table.remove(first);
+        assertTrue(table.register(newCall()) > 0);
+        assertEquals(-1, table.register(newCall()));
+        assertEquals(1000, table.size());
+    }
+
+    @Test
+    public void idsStartAfterTheBaseAndKeepTheConnectionIndex() {
+        long idBase = 5L << Connection.INDEX_SHIFT;
+        PendingCallTable table = new PendingCallTable(4, idBase, removals::incrementAndGet);
+        for (int i = 1; i <= 4; i++) {
+            long msgId = table.register(newCall());
+            assertEquals(idBase + i, msgId);
+            assertEquals(5, msgId >>> Connection.INDEX_SHIFT);
+        }
+        assertNotEquals(0, newTable(4).register(newCall()));
+    }
+
+    @Test
+    public void callIsKeptInTheSlotOfItsId() {
+        PendingCallTable table = newTable(4);
+        PendingCall call = newCall();
+        long msgId = table.register(call);
+        assertEquals(msgId, call.msgId);
+        assertSame(call, table.get(msgId));
+        assertSame(call, table.get(msgId));
+        assertEquals(1, table.size());
+        assertSame(call, table.remove(msgId));
+        assertNull(table.get(msgId));
+        assertNull(table.remove(msgId));
+        assertEquals(0, table.size());
+        assertEquals(1, removals.get());
+    }
+
+    @Test
+    public void fullTableRejects() {
+        PendingCallTable table = newTable(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(table.register(newCall()) > 0);
+        }
+        assertEquals(-1, table.register(newCall()));
+        assertEquals(4, table.size());
+    }
+
+    @Test
+    public void idsWrapAroundTheSlots() {
+        PendingCallTable table = newTable(4);
+        for (int i = 0; i < 10; i++) {
+            long msgId = table.register(newCall());
+            assertEquals(i + 1, msgId);
+            assertNotNull(table.remove(msgId));
+        }
+        assertEquals(0, table.size());
+    }
+
+    @Test
+    public void idWhoseSlotIsTakenIsSkipped() {
+        PendingCallTable table = newTable(4);
+        long first = table.register(newCall());
+        for (int i = 0; i < 3; i++) {
+            table.remove(table.register(newCall()));
+        }
+        // the next id maps to the slot of the first call, which is still pending
+        long msgId = table.register(newCall());
+        assertEquals(first + 5, msgId);
+        assertEquals(2, table.size());
+    }
+
+    @Test
+    public void staleIdOfTheSameSlotIsNotFound() {
+        PendingCallTable table = newTable(4);
+        long stale = table.register(newCall());
+        table.remove(stale);
+        for (int i = 0; i < 3; i++) {
+            table.register(newCall());
+        }
+        long msgId = table.register(newCall());
+        assertEquals(stale + 4, msgId);
+        assertNull(table.get(stale));
+        assertNull(table.remove(stale));
+        assertNotNull(table.get(msgId));
+    }
+
+    @Test
+    public void failAllRemovesCallsOfTheChannelOnly() {
+        PendingCallTable table = newTable(8);
+        EmbeddedChannel failed = new EmbeddedChannel();
+        EmbeddedChannel alive = new EmbeddedChannel();
+        SyncCallBack[] callBacks = new SyncCallBack[4];
+        long[] msgIds = new long[4];
+        for (int i = 0; i < 4; i++) {
+            callBacks[i] = new SyncCallBack();
+            PendingCall call = new PendingCall(callBacks[i], null, Object.class);
+            call.channel = i % 2 == 0 ? failed : alive;
+            msgIds[i] = table.register(call);
+        }
+        RuntimeException cause = new RuntimeException("closed");
+        table.failAll(failed, cause);
+        assertEquals(2, table.size());
+        assertEquals(1, removals.get());
+        for (int i = 0; i < 4; i++) {
+            if (i % 2 == 0) {
+                assertSame(cause, callBacks[i].getCause());
+                assertNull(table.get(msgIds[i]));
+            } else {
+                assertNull(callBacks[i].getCause());
+                assertNotNull(table.get(msgIds[i]));
+            }
+        }
+        table.failAll(failed, cause);
+        assertEquals(1, removals.get());
+        failed.finishAndReleaseAll();
+        alive.finishAndReleaseAll();
+    }
+
+    private PendingCallTable newTable(int capacity) {
+        return new PendingCallTable(capacity, 0, removals::incrementAndGet);
+    }
+
+    private static PendingCall newCall() {
+        return new PendingCall(new SyncCallBack(), null, Object.class);
+    }
+}
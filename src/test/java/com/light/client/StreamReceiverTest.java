@@ -0,0 +1,113 @@
+package com.light.client;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * credits {@code StreamReceiver} grants back as items are consumed
+ *
+ * @author lihb
+ */
+public class StreamReceiverTest {
+    @Test
+    public void creditsAreGrantedOnceHalfTheWindowIsConsumed() {
+        RecordingReceiver receiver = new RecordingReceiver(16);
+        for (int i = 0; i < 7; i++) {
+            receiver.consumed(1);
+        }
+        assertTrue(receiver.grants.isEmpty());
+        receiver.consumed(1);
+        assertEquals(Collections.singletonList(8), receiver.grants);
+        for (int i = 0; i < 8; i++) {
+            receiver.consumed(1);
+        }
+        assertEquals(List.of(8, 8), receiver.grants);
+    }
+
+    @Test
+    public void batchIsGrantedInOne() {
+        RecordingReceiver receiver = new RecordingReceiver(16);
+        receiver.consumed(3);
+        receiver.consumed(11);
+        assertEquals(Collections.singletonList(14), receiver.grants);
+        receiver.consumed(7);
+        assertEquals(Collections.singletonList(14), receiver.grants);
+        receiver.consumed(1);
+        assertEquals(List.of(14, 8), receiver.grants);
+    }
+
+    @Test
+    public void windowOfOneGrantsEveryItem() {
+        RecordingReceiver receiver = new RecordingReceiver(1);
+        for (int i = 0; i < 3; i++) {
+            receiver.consumed(1);
+        }
+        assertEquals(List.of(1, 1, 1), receiver.grants);
+    }
+
+    @Test
+    public void concurrentConsumersAreGrantedEveryItemOnce() throws InterruptedException {
+        RecordingReceiver receiver = new RecordingReceiver(16);
+        int threads = 8;
+        int items = 1000;
+        CountDownLatch finished = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                for (int i = 0; i < items; i++) {
+                    receiver.consumed(1);
+                }
+                finished.countDown();
+            }).start();
+        }
+        assertTrue(finished.await(10, TimeUnit.SECONDS));
+        List<Integer> grants;
+        synchronized (receiver.grants) {
+            grants = new ArrayList<>(receiver.grants);
+        }
+        assertEquals(threads * items / 8, grants.size());
+        for (int grant : grants) {
+            assertEquals(8, grant);
+        }
+    }
+
+    private static RemoteCallClient newClient(int streamWindow) {
+        RemoteCallClient.RemoteCallClientBuilder builder = RemoteCallClient.newBuilder();
+        builder.setStreamWindow(streamWindow);
+        return builder.build();
+    }
+
+    /**
+     * keeps the credits it would grant the server
+     */
+    private static final class RecordingReceiver extends StreamReceiver {
+        final List<Integer> grants = Collections.synchronizedList(new ArrayList<>());
+
+        RecordingReceiver(int streamWindow) {
+            super(newClient(streamWindow));
+        }
+
+        @Override
+        void grant(int credit) {
+            grants.add(credit);
+        }
+
+        @Override
+        public void onNext(Object item) {
+        }
+
+        @Override
+        public void onComplete() {
+        }
+
+        @Override
+        public void onError(Throwable cause) {
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.light.client;
+
+import com.light.utils.Utils;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * waiting of {@code SyncCallBack}, including that waiting virtual threads do not pin their carriers
+ *
+ * @author lihb
+ */
+public class SyncCallBackTest {
+    /**
+     * well above the carrier threads of the default scheduler, including the ones added to compensate pinning
+     */
+    private static final int WAITERS = 1000;
+
+    @Test
+    public void resultBeforeAwaitIsNotLost() throws InterruptedException {
+        SyncCallBack callBack = new SyncCallBack();
+        callBack.onReceive("done");
+        assertTrue(callBack.await(0));
+        assertEquals("done", callBack.getReturnValue());
+        assertNull(callBack.getCause());
+    }
+
+    @Test
+    public void awaitTimesOut() throws InterruptedException {
+        assertFalse(new SyncCallBack().await(10));
+    }
+
+    @Test
+    public void errorWakesTheWaiter() throws Exception {
+        Queue<SyncCallBack> callBacks = new ConcurrentLinkedQueue<>();
+        CountDownLatch created = new CountDownLatch(1);
+        Thread waiter = new Thread(() -> {
+            SyncCallBack callBack = new SyncCallBack();
+            callBacks.add(callBack);
+            created.countDown();
+            try {
+                assertTrue(callBack.await(10_000));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waiter.start();
+        assertTrue(created.await(10, TimeUnit.SECONDS));
+        RuntimeException cause = new RuntimeException("failed");
+        callBacks.element().onError(cause);
+        waiter.join(10_000);
+        assertFalse(waiter.isAlive());
+        assertSame(cause, callBacks.element().getCause());
+    }
+
+    @Test
+    public void waitingVirtualThreadsDoNotPinCarriers() throws Exception {
+        Assume.assumeTrue("virtual threads need JDK 21 or later", Utils.isVirtualThreadSupported());
+        ExecutorService executor = Utils.newVirtualThreadPerTaskExecutor();
+        Queue<SyncCallBack> callBacks = new ConcurrentLinkedQueue<>();
+        CountDownLatch created = new CountDownLatch(WAITERS);
+        CountDownLatch finished = new CountDownLatch(WAITERS);
+        try {
+            for (int i = 0; i < WAITERS; i++) {
+                executor.execute(() -> {
+                    SyncCallBack callBack = new SyncCallBack();
+                    callBacks.add(callBack);
+                    created.countDown();
+                    try {
+                        if (callBack.await(60_000)) {
+                            finished.countDown();
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+            assertTrue(created.await(30, TimeUnit.SECONDS));
+            // a pinned waiter holds its carrier, so a fresh virtual thread would starve behind them
+            Future<Boolean> fresh = executor.submit(() -> Utils.isVirtualThread(Thread.currentThread()));
+            assertTrue(fresh.get(10, TimeUnit.SECONDS));
+            for (SyncCallBack callBack : callBacks) {
+                callBack.onReceive(Boolean.TRUE);
+            }
+            assertTrue(finished.await(30, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
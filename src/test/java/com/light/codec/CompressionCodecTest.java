@@ -0,0 +1,147 @@
+package com.light.codec;
+
+import com.light.common.Request;
+import com.light.common.Response;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.CorruptedFrameException;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.zip.Deflater;
+
+import static com.light.codec.FrameCodecTest.assertArgsEqual;
+import static com.light.codec.FrameCodecTest.newRequest;
+import static com.light.codec.FrameCodecTest.roundTrip;
+import static org.junit.Assert.*;
+
+/**
+ * compressed requests and responses, and compressed frames claiming more than a frame may carry
+ *
+ * @author lihb
+ */
+public class CompressionCodecTest {
+    private static final int MAX_FRAME_LENGTH = 1024 * 1024;
+    /**
+     * offset of flags in a request frame without its length field
+     */
+    private static final int REQUEST_FLAGS_OFFSET = 17;
+
+    @Test
+    public void requestOverThresholdIsCompressedAndRoundTrips() {
+        Request request = newRequest(Arrays.asList(repeated('a', 4096), new byte[0], FrameCodecTest.bytes(3, 100)));
+        request.setCompressThreshold(1024);
+        ByteBuf frame = encode(request);
+        try {
+            assertTrue(frame.readableBytes() < 4096);
+            assertNotEquals(0, frame.getByte(FrameEncoder.LENGTH_FIELD_LENGTH + REQUEST_FLAGS_OFFSET) & RequestEncoder.FLAG_COMPRESSED);
+        } finally {
+            frame.release();
+        }
+        Request decoded = roundTrip(request);
+        assertEquals(1024, decoded.getCompressThreshold());
+        assertArgsEqual(request.getArgs(), decoded.getArgs());
+    }
+
+    @Test
+    public void requestUnderThresholdIsNotCompressed() {
+        Request request = newRequest(Collections.singletonList(repeated('a', 100)));
+        request.setCompressThreshold(1024);
+        ByteBuf frame = encode(request);
+        try {
+            assertEquals(0, frame.getByte(FrameEncoder.LENGTH_FIELD_LENGTH + REQUEST_FLAGS_OFFSET) & RequestEncoder.FLAG_COMPRESSED);
+        } finally {
+            frame.release();
+        }
+        Request decoded = roundTrip(request);
+        assertEquals(1024, decoded.getCompressThreshold());
+        assertArgsEqual(request.getArgs(), decoded.getArgs());
+    }
+
+    @Test
+    public void compressedResponseRoundTrips() {
+        Response response = new Response();
+        response.setMsgId(9);
+        response.setStatus(Response.STATUS_OK);
+        response.setSerializerId((byte) 1);
+        response.setBody(repeated('b', 10000));
+        response.setCompressThreshold(512);
+        EmbeddedChannel encoder = new EmbeddedChannel(new ResponseEncoder(MAX_FRAME_LENGTH));
+        assertTrue(encoder.writeOutbound(response));
+        ByteBuf frame = encoder.readOutbound();
+        assertTrue(frame.readableBytes() < 10000);
+        EmbeddedChannel decoder = new EmbeddedChannel(new FrameDecoder(MAX_FRAME_LENGTH), new ResponseDecoder(MAX_FRAME_LENGTH));
+        assertTrue(decoder.writeInbound(frame));
+        Response decoded = decoder.readInbound();
+        assertEquals(response.getMsgId(), decoded.getMsgId());
+        assertArrayEquals(response.getBody(), decoded.getBody());
+        assertFalse(encoder.finish());
+        assertFalse(decoder.finish());
+    }
+
+    @Test(expected = CorruptedFrameException.class)
+    public void requestInflatingOverMaxFrameLengthIsRejected() {
+        ByteBuf frame = requestHeader(RequestEncoder.FLAG_COMPRESSED).writeInt(MAX_FRAME_LENGTH + 1).writeBytes(deflate(new byte[64]));
+        new EmbeddedChannel(new RequestDecoder(MAX_FRAME_LENGTH)).writeInbound(frame);
+    }
+
+    @Test(expected = CorruptedFrameException.class)
+    public void requestWithNegativeInflatedLengthIsRejected() {
+        ByteBuf frame = requestHeader(RequestEncoder.FLAG_COMPRESSED).writeInt(-1).writeBytes(deflate(new byte[64]));
+        new EmbeddedChannel(new RequestDecoder(MAX_FRAME_LENGTH)).writeInbound(frame);
+    }
+
+    @Test(expected = CorruptedFrameException.class)
+    public void requestInflatingShortOfItsLengthIsRejected() {
+        byte[] raw = new byte[8];
+        raw[3] = 4;
+        ByteBuf frame = requestHeader(RequestEncoder.FLAG_COMPRESSED).writeInt(1000).writeBytes(deflate(raw));
+        new EmbeddedChannel(new RequestDecoder(MAX_FRAME_LENGTH)).writeInbound(frame);
+    }
+
+    @Test(expected = CorruptedFrameException.class)
+    public void argumentLongerThanTheFrameIsRejected() {
+        ByteBuf frame = requestHeader(0).writeInt(Integer.MAX_VALUE).writeZero(16);
+        new EmbeddedChannel(new RequestDecoder(MAX_FRAME_LENGTH)).writeInbound(frame);
+    }
+
+    @Test(expected = CorruptedFrameException.class)
+    public void responseInflatingOverMaxFrameLengthIsRejected() {
+        ByteBuf frame = Unpooled.buffer().writeLong(1).writeByte(Response.STATUS_OK).writeByte(1)
+                .writeByte(ResponseEncoder.FLAG_COMPRESSED).writeInt(Integer.MAX_VALUE).writeBytes(deflate(new byte[64]));
+        new EmbeddedChannel(new ResponseDecoder(MAX_FRAME_LENGTH)).writeInbound(frame);
+    }
+
+    private static ByteBuf encode(Request request) {
+        EmbeddedChannel encoder = new EmbeddedChannel(new RequestEncoder(MAX_FRAME_LENGTH));
+        assertTrue(encoder.writeOutbound(request));
+        ByteBuf frame = encoder.readOutbound();
+        assertFalse(encoder.finish());
+        return frame;
+    }
+
+    /**
+     * a request frame without its length field, up to and including flags
+     */
+    private static ByteBuf requestHeader(int flags) {
+        return Unpooled.buffer().writeLong(1).writeInt(7).writeByte(1).writeInt(1).writeByte(flags);
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        deflater.setInput(raw);
+        deflater.finish();
+        byte[] out = new byte[raw.length + 64];
+        int length = deflater.deflate(out);
+        deflater.end();
+        return Arrays.copyOf(out, length);
+    }
+
+    private static byte[] repeated(char c, int length) {
+        byte[] bytes = new byte[length];
+        Arrays.fill(bytes, (byte) c);
+        return bytes;
+    }
+}
@@ -0,0 +1,250 @@
+package com.light.codec;
+
+import com.light.common.Constant;
+import com.light.common.Request;
+import com.light.common.Response;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.EncoderException;
+import io.netty.handler.codec.TooLongFrameException;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * framing of {@code FrameEncoder} and {@code FrameDecoder}, and requests and responses going through them
+ *
+ * @author lihb
+ */
+public class FrameCodecTest {
+    private static final int MAX_FRAME_LENGTH = 1024 * 1024;
+
+    @Test
+    public void frameIsPrefixedByItsLengthInAExactSizeBuffer() {
+        EmbeddedChannel channel = new EmbeddedChannel(new StringEncoder(64));
+        assertTrue(channel.writeOutbound("hello"));
+        ByteBuf frame = channel.readOutbound();
+        try {
+            assertTrue(frame.isDirect());
+            assertEquals(FrameEncoder.LENGTH_FIELD_LENGTH + 5, frame.capacity());
+            assertEquals(5, frame.readInt());
+            assertEquals("hello", frame.toString(StandardCharsets.UTF_8));
+        } finally {
+            frame.release();
+        }
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void encoderRejectsFrameLongerThanMax() {
+        EmbeddedChannel channel = new EmbeddedChannel(new StringEncoder(4));
+        try {
+            channel.writeOutbound("hello");
+            fail("a frame of 5 bytes should exceed 4");
+        } catch (EncoderException e) {
+            assertTrue(e.getCause() instanceof TooLongFrameException);
+        }
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void frameSplitAcrossReadsIsReassembled() {
+        EmbeddedChannel channel = new EmbeddedChannel(new FrameDecoder(64));
+        ByteBuf frame = frameOf("hello");
+        assertFalse(channel.writeInbound(frame.readRetainedSlice(3)));
+        assertFalse(channel.writeInbound(frame.readRetainedSlice(3)));
+        assertTrue(channel.writeInbound(frame.readRetainedSlice(frame.readableBytes())));
+        frame.release();
+        assertEquals("hello", readString(channel.readInbound()));
+        assertNull(channel.readInbound());
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void severalFramesInOneReadAreAllEmitted() {
+        EmbeddedChannel channel = new EmbeddedChannel(new FrameDecoder(64));
+        ByteBuf frames = Unpooled.wrappedBuffer(frameOf("a"), frameOf(""), frameOf("bcd"));
+        assertTrue(channel.writeInbound(frames));
+        assertEquals("a", readString(channel.readInbound()));
+        assertEquals("", readString(channel.readInbound()));
+        assertEquals("bcd", readString(channel.readInbound()));
+        assertNull(channel.readInbound());
+        assertFalse(channel.finish());
+    }
+
+    @Test(expected = TooLongFrameException.class)
+    public void decoderRejectsFrameLongerThanMax() {
+        EmbeddedChannel channel = new EmbeddedChannel(new FrameDecoder(16));
+        channel.writeInbound(Unpooled.buffer().writeInt(17).writeZero(17));
+    }
+
+    @Test
+    public void requestRoundTrip() {
+        Request request = newRequest(Arrays.asList(bytes(0, 1), bytes(1, 0), bytes(2, 100)));
+        Request decoded = roundTrip(request);
+        assertEquals(request.getMsgId(), decoded.getMsgId());
+        assertEquals(request.getRemoteCallInterfaceId(), decoded.getRemoteCallInterfaceId());
+        assertEquals(request.getSerializerId(), decoded.getSerializerId());
+        assertEquals(request.getMethodId(), decoded.getMethodId());
+        assertEquals(0, decoded.getDeadlineNanos());
+        assertEquals(0, decoded.getStreamCredit());
+        assertArgsEqual(request.getArgs(), decoded.getArgs());
+    }
+
+    @Test
+    public void requestWithLargeArgumentsIsComposedAndRoundTrips() {
+        int large = Constant.ZERO_COPY_ARG_THRESHOLD;
+        Request request = newRequest(Arrays.asList(bytes(0, 10), bytes(1, large), bytes(2, 3), bytes(3, large * 2)));
+        assertArgsEqual(request.getArgs(), roundTrip(request).getArgs());
+    }
+
+    @Test
+    public void requestWithoutArgumentsRoundTrips() {
+        assertTrue(roundTrip(newRequest(Collections.emptyList())).getArgs().isEmpty());
+    }
+
+    @Test
+    public void streamRequestCarriesItsCredit() {
+        Request request = newRequest(Collections.singletonList(bytes(0, 10)));
+        request.setStreamCredit(16);
+        Request decoded = roundTrip(request);
+        assertFalse(decoded.isControl());
+        assertEquals(16, decoded.getStreamCredit());
+        assertEquals(request.getMethodId(), decoded.getMethodId());
+    }
+
+    @Test
+    public void streamControlRoundTrips() {
+        Request grant = newControl(32);
+        Request decoded = roundTrip(grant);
+        assertTrue(decoded.isControl());
+        assertEquals(grant.getMsgId(), decoded.getMsgId());
+        assertEquals(32, decoded.getStreamCredit());
+        assertEquals(0, decoded.getRemoteCallInterfaceId());
+        assertEquals(0, decoded.getMethodId());
+        assertTrue(decoded.getArgs().isEmpty());
+        // a control without credit cancels the stream
+        Request cancel = roundTrip(newControl(0));
+        assertTrue(cancel.isControl());
+        assertEquals(0, cancel.getStreamCredit());
+    }
+
+    @Test
+    public void requestLongerThanMaxIsRejected() {
+        EmbeddedChannel channel = new EmbeddedChannel(new RequestEncoder(64));
+        try {
+            channel.writeOutbound(newRequest(Collections.singletonList(bytes(0, 64))));
+            fail("a request of over 64 bytes should be rejected");
+        } catch (EncoderException e) {
+            assertTrue(e.getCause() instanceof TooLongFrameException);
+        }
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void responseRoundTrip() {
+        Response response = new Response();
+        response.setMsgId(42L << 48 | 7);
+        response.setStatus(Response.STATUS_ERROR);
+        response.setSerializerId((byte) 2);
+        response.setBody(bytes(5, 300));
+        EmbeddedChannel encoder = new EmbeddedChannel(new ResponseEncoder(MAX_FRAME_LENGTH));
+        assertTrue(encoder.writeOutbound(response));
+        EmbeddedChannel decoder = new EmbeddedChannel(new FrameDecoder(MAX_FRAME_LENGTH), new ResponseDecoder(MAX_FRAME_LENGTH));
+        assertTrue(decoder.writeInbound((ByteBuf) encoder.readOutbound()));
+        Response decoded = decoder.readInbound();
+        assertEquals(response.getMsgId(), decoded.getMsgId());
+        assertEquals(response.getStatus(), decoded.getStatus());
+        assertEquals(response.getSerializerId(), decoded.getSerializerId());
+        assertArrayEquals(response.getBody(), decoded.getBody());
+        assertFalse(encoder.finish());
+        assertFalse(decoder.finish());
+    }
+
+    static Request newRequest(List<byte[]> args) {
+        Request request = new Request();
+        request.setMsgId(3L << 48 | 12345);
+        request.setRemoteCallInterfaceId(7);
+        request.setSerializerId((byte) 1);
+        request.setMethodId(-559038737);
+        request.setArgs(args);
+        return request;
+    }
+
+    private static Request newControl(int credit) {
+        Request request = new Request();
+        request.setMsgId(3L << 48 | 12345);
+        request.setControl(true);
+        request.setStreamCredit(credit);
+        request.setArgs(Collections.emptyList());
+        return request;
+    }
+
+    /**
+     * encode a request and decode the frames the encoder wrote
+     */
+    static Request roundTrip(Request request) {
+        EmbeddedChannel encoder = new EmbeddedChannel(new RequestEncoder(MAX_FRAME_LENGTH));
+        assertTrue(encoder.writeOutbound(request));
+        EmbeddedChannel decoder = new EmbeddedChannel(new FrameDecoder(MAX_FRAME_LENGTH), new RequestDecoder(MAX_FRAME_LENGTH));
+        assertTrue(decoder.writeInbound((ByteBuf) encoder.readOutbound()));
+        Request decoded = decoder.readInbound();
+        assertNull(decoder.readInbound());
+        assertFalse(encoder.finish());
+        assertFalse(decoder.finish());
+        return decoded;
+    }
+
+    static void assertArgsEqual(List<byte[]> expected, List<byte[]> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals(expected.get(i), actual.get(i));
+        }
+    }
+
+    static byte[] bytes(int seed, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (seed * 31 + i);
+        }
+        return bytes;
+    }
+
+    private static ByteBuf frameOf(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        return Unpooled.buffer().writeInt(bytes.length).writeBytes(bytes);
+    }
+
+    private static String readString(ByteBuf frame) {
+        try {
+            return frame.toString(StandardCharsets.UTF_8);
+        } finally {
+            frame.release();
+        }
+    }
+
+    /**
+     * frame of the UTF-8 bytes of a string
+     */
+    private static final class StringEncoder extends FrameEncoder<String> {
+        StringEncoder(int maxFrameLength) {
+            super(String.class, maxFrameLength);
+        }
+
+        @Override
+        protected int frameLength(String msg) {
+            return msg.getBytes(StandardCharsets.UTF_8).length;
+        }
+
+        @Override
+        protected void encodeFrame(String msg, ByteBuf out) {
+            out.writeBytes(msg.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.light.metrics;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * buckets of {@code LatencyHistogram} and the snapshot its stripes add up to
+ *
+ * @author lihb
+ */
+public class LatencyHistogramTest {
+    @Test
+    public void valueIsReportedAtMostAEighthAboveItself() {
+        for (long value : new long[]{0, 1, 7, 8, 9, 15, 16, 100, 1000, 123456789, Long.MAX_VALUE / 3}) {
+            int index = LatencyHistogram.bucketIndex(value);
+            long upper = LatencyHistogram.bucketUpperBound(index);
+            assertTrue(String.format("%d falls above bucket %d", value, index), value <= upper);
+            assertTrue(String.format("bucket %d of %d is too wide", index, value), upper - value <= value / LatencyHistogram.SUB_BUCKET_COUNT);
+            assertTrue(index < LatencyHistogram.BUCKET_COUNT);
+        }
+    }
+
+    @Test
+    public void snapshotOfOneThread() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.snapshot().getCount());
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 1000L);
+        }
+        histogram.record(-5);
+        HistogramSnapshot snapshot = histogram.snapshot();
+        assertEquals(101, snapshot.getCount());
+        assertEquals(5050 * 1000L, snapshot.getSum());
+        assertEquals(100_000, snapshot.getMax());
+        long median = snapshot.getValueAtPercentile(50);
+        assertTrue(median >= 50_000 && median <= 50_000 * 9 / 8);
+        assertEquals(100_000, snapshot.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void stripesOfManyThreadsAddUp() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        int threads = LatencyHistogram.STRIPE_COUNT * 4;
+        int values = 10_000;
+        List<Thread> recorders = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long largest = (t + 1) * 1_000_000L;
+            Thread recorder = new Thread(() -> {
+                for (int i = 1; i < values; i++) {
+                    histogram.record(i);
+                }
+                histogram.record(largest);
+            });
+            recorder.start();
+            recorders.add(recorder);
+        }
+        for (Thread recorder : recorders) {
+            recorder.join(10_000);
+            assertFalse(recorder.isAlive());
+        }
+        HistogramSnapshot snapshot = histogram.snapshot();
+        assertEquals((long) threads * values, snapshot.getCount());
+        assertEquals(threads * (long) (values - 1) * values / 2 + (long) threads * (threads + 1) / 2 * 1_000_000L, snapshot.getSum());
+        assertEquals(threads * 1_000_000L, snapshot.getMax());
+    }
+}
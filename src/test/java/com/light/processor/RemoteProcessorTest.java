@@ -0,0 +1,142 @@
+package com.light.processor;
+
+import com.light.common.Constant;
+import com.light.common.MethodSignature;
+import com.light.server.RemoteDispatcher;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * sources {@code RemoteProcessor} generates for remote call interfaces, compiled along with them
+ *
+ * @author lihb
+ */
+public class RemoteProcessorTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void methodsOfAGenericSuperInterfaceAreBound() throws Throwable {
+        File out = compile(
+                source("svc.Base", "package svc;\n"
+                        + "import com.light.common.Sync;\n"
+                        + "import java.util.List;\n"
+                        + "import java.util.concurrent.CompletableFuture;\n"
+                        + "public interface Base<T> {\n"
+                        + "    @Sync T get(T in);\n"
+                        + "    @Sync List<T> all(T[] in, int limit);\n"
+                        + "    CompletableFuture<T> later(T in);\n"
+                        + "    void put(T in);\n"
+                        + "}\n"),
+                source("svc.Svc", "package svc;\n"
+                        + "import com.light.common.Instance;\n"
+                        + "import com.light.common.Remote;\n"
+                        + "@Remote(identifier = 1)\n"
+                        + "@Instance(instanceClass = SvcImpl.class)\n"
+                        + "public interface Svc extends Base<String> {\n"
+                        + "}\n"),
+                source("svc.SvcImpl", "package svc;\n"
+                        + "import java.util.Arrays;\n"
+                        + "import java.util.List;\n"
+                        + "import java.util.concurrent.CompletableFuture;\n"
+                        + "public class SvcImpl implements Svc {\n"
+                        + "    public String get(String in) { return in + in; }\n"
+                        + "    public List<String> all(String[] in, int limit) { return Arrays.asList(in).subList(0, limit); }\n"
+                        + "    public CompletableFuture<String> later(String in) { return CompletableFuture.completedFuture(in); }\n"
+                        + "    public void put(String in) { }\n"
+                        + "}\n"));
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{out.toURI().toURL()}, getClass().getClassLoader())) {
+            Class<?> svc = loader.loadClass("svc.Svc");
+            assertTrue(svc.isAssignableFrom(loader.loadClass("svc.Svc" + Constant.STUB_SUFFIX)));
+            Class<?> dispatcherClass = loader.loadClass("svc.Svc" + Constant.DISPATCHER_SUFFIX);
+            RemoteDispatcher dispatcher = (RemoteDispatcher) dispatcherClass.getConstructor(svc)
+                    .newInstance(loader.loadClass("svc.SvcImpl").getConstructor().newInstance());
+            // the same methods and ids a dynamic proxy resolves
+            assertEquals(signaturesOf(MethodSignature.resolve(svc, 1).values()), signaturesOf(Arrays.asList(dispatcher.getSignatures())));
+            assertEquals("abab", dispatcher.dispatch(idOf(dispatcher, "get(java.lang.Object)"), new Object[]{"ab"}));
+            assertEquals(Collections.singletonList("a"),
+                    dispatcher.dispatch(idOf(dispatcher, "all(java.lang.Object[],int)"), new Object[]{new String[]{"a", "b"}, 1}));
+        }
+    }
+
+    @Test
+    public void genericInterfaceIsSkipped() throws IOException {
+        File out = compile(source("svc.Generic", "package svc;\n"
+                + "import com.light.common.Remote;\n"
+                + "import com.light.common.Sync;\n"
+                + "@Remote(identifier = 2)\n"
+                + "public interface Generic<T> {\n"
+                + "    @Sync T get(T in);\n"
+                + "}\n"));
+        assertTrue(new File(out, "svc/Generic.class").isFile());
+        assertFalse(new File(out, "svc/Generic" + Constant.STUB_SUFFIX + ".class").exists());
+    }
+
+    private static int idOf(RemoteDispatcher dispatcher, String signature) {
+        for (MethodSignature methodSignature : dispatcher.getSignatures()) {
+            if (methodSignature.getSignature().equals(signature)) {
+                return methodSignature.getMethodId();
+            }
+        }
+        throw new AssertionError(String.format("no method %s", signature));
+    }
+
+    private static Set<String> signaturesOf(Collection<MethodSignature> signatures) {
+        return signatures.stream().map(signature -> signature.getMethodId() + " " + signature.getSignature()).collect(Collectors.toSet());
+    }
+
+    /**
+     * compile sources with the processor, failing on any error, in generated sources too
+     *
+     * @return directory of the classes
+     */
+    private File compile(JavaFileObject... sources) throws IOException {
+        File out = folder.newFolder("classes");
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, null)) {
+            List<String> options = new ArrayList<>(Arrays.asList("-d", out.getPath(), "-s", folder.newFolder("sources").getPath(),
+                    "-classpath", System.getProperty("java.class.path")));
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics, options, null, Arrays.asList(sources));
+            task.setProcessors(Collections.singletonList(new RemoteProcessor()));
+            boolean compiled = task.call();
+            String errors = diagnostics.getDiagnostics().stream().filter(d -> d.getKind() == Diagnostic.Kind.ERROR)
+                    .map(Object::toString).collect(Collectors.joining("\n"));
+            assertTrue(errors, compiled && errors.isEmpty());
+        }
+        return out;
+    }
+
+    private static JavaFileObject source(String className, String code) {
+        return new SimpleJavaFileObject(URI.create("string:///" + className.replace('.', '/') + JavaFileObject.Kind.SOURCE.extension),
+                JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return code;
+            }
+        };
+    }
+}
@@ -0,0 +1,104 @@
+package com.light.serializer;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * round trips of {@code CompactSerializer} and what it rejects
+ *
+ * @author lihb
+ */
+public class CompactSerializerTest {
+    private final CompactSerializer serializer = new CompactSerializer();
+
+    @Test
+    public void scalarsRoundTrip() throws IOException {
+        Object[] values = {null, true, false, (byte) -128, (short) -32768, Short.MAX_VALUE, 'x', '\uffff',
+                0, -1, Integer.MIN_VALUE, Integer.MAX_VALUE, 0L, Long.MIN_VALUE, Long.MAX_VALUE,
+                -0.0f, Float.NaN, Float.MIN_VALUE, Double.NEGATIVE_INFINITY, Math.PI, "", "h\u00e9llo \ud83d\ude00"};
+        for (Object value : values) {
+            assertEquals(value, roundTrip(value));
+        }
+    }
+
+    @Test
+    public void valuesKeepTheirBoxedType() throws IOException {
+        assertEquals(Short.class, roundTrip((short) 1).getClass());
+        assertEquals(Character.class, roundTrip('a').getClass());
+        assertEquals(Integer.class, roundTrip(1).getClass());
+        assertEquals(Long.class, roundTrip(1L).getClass());
+        assertEquals(Float.class, roundTrip(1f).getClass());
+    }
+
+    @Test
+    public void primitiveArraysRoundTrip() throws IOException {
+        assertArrayEquals(new byte[]{1, -1, 0}, (byte[]) roundTrip(new byte[]{1, -1, 0}));
+        assertTrue(Arrays.equals(new boolean[]{true, false}, (boolean[]) roundTrip(new boolean[]{true, false})));
+        assertArrayEquals(new short[]{Short.MIN_VALUE, 7}, (short[]) roundTrip(new short[]{Short.MIN_VALUE, 7}));
+        assertArrayEquals(new char[]{'a', '\uffff'}, (char[]) roundTrip(new char[]{'a', '\uffff'}));
+        assertArrayEquals(new int[]{Integer.MIN_VALUE, 0, 300}, (int[]) roundTrip(new int[]{Integer.MIN_VALUE, 0, 300}));
+        assertArrayEquals(new long[]{Long.MAX_VALUE, -2}, (long[]) roundTrip(new long[]{Long.MAX_VALUE, -2}));
+        assertArrayEquals(new float[]{1.5f, Float.NaN}, (float[]) roundTrip(new float[]{1.5f, Float.NaN}), 0f);
+        assertArrayEquals(new double[]{-1e300, 2}, (double[]) roundTrip(new double[]{-1e300, 2}), 0d);
+        assertEquals(0, ((int[]) roundTrip(new int[0])).length);
+    }
+
+    @Test
+    public void stringArrayKeepsItsType() throws IOException {
+        Object value = roundTrip(new String[]{"a", null, ""});
+        assertEquals(String[].class, value.getClass());
+        assertArrayEquals(new String[]{"a", null, ""}, (String[]) value);
+    }
+
+    @Test
+    public void objectArrayOfMixedValuesRoundTrips() throws IOException {
+        Object[] array = {1, "two", null, new int[]{3}, new Object[]{4L}};
+        Object[] value = (Object[]) roundTrip(array);
+        assertEquals(Object[].class, value.getClass());
+        assertEquals(1, value[0]);
+        assertEquals("two", value[1]);
+        assertNull(value[2]);
+        assertArrayEquals(new int[]{3}, (int[]) value[3]);
+        assertArrayEquals(new Object[]{4L}, (Object[]) value[4]);
+    }
+
+    @Test(expected = IOException.class)
+    public void typedReferenceArrayIsRejected() throws IOException {
+        serializer.serialize(new Integer[]{1, 2});
+    }
+
+    @Test(expected = IOException.class)
+    public void nestedArrayTypeIsRejected() throws IOException {
+        serializer.serialize(new int[][]{{1}});
+    }
+
+    @Test(expected = IOException.class)
+    public void unsupportedTypeIsRejected() throws IOException {
+        serializer.serialize(new StringBuilder("x"));
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedInputIsRejected() throws IOException {
+        byte[] bytes = serializer.serialize("hello");
+        serializer.deserialize(Arrays.copyOf(bytes, bytes.length - 1), String.class);
+    }
+
+    @Test(expected = IOException.class)
+    public void unknownTagIsRejected() throws IOException {
+        serializer.deserialize(new byte[]{99, 0}, Object.class);
+    }
+
+    @Test(expected = IOException.class)
+    public void arrayLengthBeyondInputIsRejected() throws IOException {
+        // INT_ARRAY of zig-zag length 1000
+        serializer.deserialize(new byte[]{15, (byte) 0xD0, 0x0F}, int[].class);
+    }
+
+    private Object roundTrip(Object value) throws IOException {
+        return serializer.deserialize(serializer.serialize(value), value == null ? Object.class : value.getClass());
+    }
+}
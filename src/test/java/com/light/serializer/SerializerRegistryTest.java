@@ -0,0 +1,59 @@
+package com.light.serializer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * registering and looking up serializers
+ *
+ * @author lihb
+ */
+public class SerializerRegistryTest {
+    @Test
+    public void defaultSerializersAreRegistered() {
+        SerializerRegistry registry = new SerializerRegistry();
+        assertTrue(registry.get(CompactSerializer.IDENTIFIER) instanceof CompactSerializer);
+        assertTrue(registry.get(ProtobufSerializer.IDENTIFIER) instanceof ProtobufSerializer);
+        assertNull(registry.get(JavaSerializer.IDENTIFIER));
+    }
+
+    @Test
+    public void lookupByClassDoesNotRegister() {
+        SerializerRegistry registry = new SerializerRegistry();
+        assertNull(registry.get(JavaSerializer.class));
+        assertNull(registry.get(JavaSerializer.IDENTIFIER));
+    }
+
+    @Test
+    public void registerByClassKeepsTheFirstInstance() {
+        SerializerRegistry registry = new SerializerRegistry();
+        Serializer serializer = registry.register(JavaSerializer.class);
+        assertSame(serializer, registry.register(JavaSerializer.class));
+        assertSame(serializer, registry.get(JavaSerializer.class));
+        assertSame(serializer, registry.get(JavaSerializer.IDENTIFIER));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void identifierOfAnotherSerializerIsRejected() {
+        new SerializerRegistry().register(new CompactSerializer() {
+            @Override
+            public byte getIdentifier() {
+                return ProtobufSerializer.IDENTIFIER;
+            }
+        });
+    }
+
+    @Test
+    public void identifierIsReadUnsigned() {
+        SerializerRegistry registry = new SerializerRegistry();
+        Serializer serializer = new CompactSerializer() {
+            @Override
+            public byte getIdentifier() {
+                return (byte) 0xF0;
+            }
+        };
+        registry.register(serializer);
+        assertSame(serializer, registry.get((byte) 0xF0));
+    }
+}
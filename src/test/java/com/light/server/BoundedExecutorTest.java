@@ -0,0 +1,106 @@
+package com.light.server;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * tasks {@code DispatchExecutors.BoundedExecutor} runs and rejects
+ *
+ * @author lihb
+ */
+public class BoundedExecutorTest {
+    @Test
+    public void tasksBeyondTheBoundAreRejectedUntilOneFinishes() throws InterruptedException {
+        ExecutorService executor = new DispatchExecutors.BoundedExecutor(Executors.newCachedThreadPool(), 2);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(2);
+        try {
+            for (int i = 0; i < 2; i++) {
+                executor.execute(() -> {
+                    awaitQuietly(release);
+                    finished.countDown();
+                });
+            }
+            try {
+                executor.execute(() -> {
+                });
+                fail("a third task should be rejected");
+            } catch (RejectedExecutionException expected) {
+            }
+            release.countDown();
+            assertTrue(finished.await(10, TimeUnit.SECONDS));
+            // permits are released after the tasks return
+            CountDownLatch ran = new CountDownLatch(2);
+            for (int i = 0; i < 2; i++) {
+                retry(executor, ran::countDown);
+            }
+            assertTrue(ran.await(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void taskRejectedByTheUnderlyingExecutorGivesItsPermitBack() {
+        ExecutorService underlying = Executors.newCachedThreadPool();
+        ExecutorService executor = new DispatchExecutors.BoundedExecutor(underlying, 1);
+        executor.shutdown();
+        for (int i = 0; i < 3; i++) {
+            try {
+                executor.execute(() -> {
+                });
+                fail("a shut down executor should reject");
+            } catch (RejectedExecutionException expected) {
+            }
+        }
+        assertTrue(executor.isShutdown());
+    }
+
+    @Test
+    public void failingTaskGivesItsPermitBack() throws InterruptedException {
+        ExecutorService executor = new DispatchExecutors.BoundedExecutor(Executors.newCachedThreadPool(), 1);
+        try {
+            retry(executor, () -> {
+                throw new IllegalStateException("failed");
+            });
+            CountDownLatch ran = new CountDownLatch(1);
+            retry(executor, ran::countDown);
+            assertTrue(ran.await(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * a finished task gives its permit back right after it returns, which may lag behind what it signals
+     */
+    private static void retry(ExecutorService executor, Runnable task) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (true) {
+            try {
+                executor.execute(task);
+                return;
+            } catch (RejectedExecutionException e) {
+                if (System.nanoTime() > deadline) {
+                    throw e;
+                }
+                Thread.sleep(1);
+            }
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
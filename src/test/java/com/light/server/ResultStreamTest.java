@@ -0,0 +1,228 @@
+package com.light.server;
+
+import com.light.common.Response;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * items {@code ResultStream.IteratorStream} sends for the credits it is granted
+ *
+ * @author lihb
+ */
+public class ResultStreamTest {
+    private static final long MSG_ID = 42;
+
+    private final EmbeddedChannel channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+    private final Map<Long, ResultStream> streams = new ConcurrentHashMap<>();
+
+    @After
+    public void tearDown() {
+        assertFalse(channel.finishAndReleaseAll());
+    }
+
+    @Test
+    public void noMoreItemsThanGrantedAreSent() {
+        CountingIterator iterator = new CountingIterator(10);
+        ResultStream stream = newStream(iterator, Runnable::run);
+        stream.request(3);
+        assertItems(0, 3);
+        assertNull(channel.readOutbound());
+        // a item is not pulled before there is a credit for it
+        assertEquals(3, iterator.pulled);
+        stream.request(5);
+        assertItems(3, 5);
+        assertNull(channel.readOutbound());
+        assertEquals(8, iterator.pulled);
+        stream.request(10);
+        assertItems(8, 2);
+        assertEnd();
+        assertTrue(streams.isEmpty());
+    }
+
+    @Test
+    public void endWaitsForACredit() {
+        CountingIterator iterator = new CountingIterator(2);
+        ResultStream stream = newStream(iterator, Runnable::run);
+        stream.request(2);
+        assertItems(0, 2);
+        assertNull(channel.readOutbound());
+        assertFalse(stream.isDone());
+        assertEquals(2, iterator.hasNextCalls);
+        stream.request(1);
+        assertEnd();
+        assertTrue(stream.isDone());
+    }
+
+    @Test
+    public void blockingIteratorIsNotAskedWithoutACredit() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountingIterator iterator = new CountingIterator(100) {
+            @Override
+            public boolean hasNext() {
+                if (pulled > 0) {
+                    // the next item is not there yet
+                    awaitQuietly(release);
+                }
+                return super.hasNext();
+            }
+        };
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            ResultStream stream = newStream(iterator, executor);
+            stream.request(1);
+            // the drain returned instead of blocking the thread in hasNext
+            executor.submit(() -> {
+            }).get(10, TimeUnit.SECONDS);
+            assertItems(0, 1);
+            assertNull(channel.readOutbound());
+            assertEquals(1, iterator.hasNextCalls);
+            stream.cancel();
+        } finally {
+            release.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void creditsGrantedBeforeADrainRunsAreAddedUp() {
+        Queue<Runnable> tasks = new ArrayDeque<>();
+        ResultStream stream = newStream(new CountingIterator(100), tasks::add);
+        stream.request(2);
+        stream.request(3);
+        // one drain is scheduled for both
+        assertEquals(1, tasks.size());
+        tasks.remove().run();
+        assertItems(0, 5);
+        assertNull(channel.readOutbound());
+        stream.request(1);
+        assertEquals(1, tasks.size());
+        tasks.remove().run();
+        assertItems(5, 1);
+        assertNull(channel.readOutbound());
+    }
+
+    @Test
+    public void cancelledStreamSendsNothingMoreAndClosesTheIterator() {
+        CountingIterator iterator = new CountingIterator(100);
+        ResultStream stream = newStream(iterator, Runnable::run);
+        stream.request(2);
+        assertItems(0, 2);
+        stream.cancel();
+        assertTrue(iterator.closed);
+        assertTrue(streams.isEmpty());
+        stream.request(5);
+        assertNull(channel.readOutbound());
+        assertEquals(2, iterator.pulled);
+    }
+
+    @Test
+    public void failingIteratorEndsTheStreamWithAError() {
+        CountingIterator iterator = new CountingIterator(100);
+        iterator.failAt = 1;
+        ResultStream stream = newStream(iterator, Runnable::run);
+        stream.request(5);
+        assertItems(0, 1);
+        Response response = channel.readOutbound();
+        assertEquals(Response.STATUS_ERROR, response.getStatus());
+        assertNull(channel.readOutbound());
+        assertTrue(stream.isDone());
+        assertTrue(iterator.closed);
+    }
+
+    @Test
+    public void rejectedDrainEndsTheStreamAsBusy() {
+        CountingIterator iterator = new CountingIterator(100);
+        ResultStream stream = newStream(iterator, task -> {
+            throw new RejectedExecutionException("full");
+        });
+        stream.request(5);
+        Response response = channel.readOutbound();
+        assertEquals(Response.STATUS_BUSY, response.getStatus());
+        assertEquals(0, iterator.pulled);
+        assertTrue(iterator.closed);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private ResultStream newStream(Iterator<?> iterator, Executor executor) {
+        ChannelHandlerContext ctx = channel.pipeline().firstContext();
+        ResultStream stream = new ResultStream.IteratorStream(ctx, MSG_ID, (byte) 0, null, 0, streams, null, 0,
+                iterator, executor);
+        streams.put(MSG_ID, stream);
+        return stream;
+    }
+
+    private void assertItems(int first, int count) {
+        for (int i = first; i < first + count; i++) {
+            Response response = channel.readOutbound();
+            assertNotNull(String.format("item %d should be sent", i), response);
+            assertEquals(MSG_ID, response.getMsgId());
+            assertEquals(Response.STATUS_ITEM, response.getStatus());
+            assertEquals(i, response.getValue());
+        }
+    }
+
+    private void assertEnd() {
+        Response response = channel.readOutbound();
+        assertEquals(Response.STATUS_END, response.getStatus());
+        assertNull(channel.readOutbound());
+    }
+
+    /**
+     * yields 0 up to a limit, counting the items pulled and the calls to hasNext
+     */
+    private static class CountingIterator implements Iterator<Integer>, AutoCloseable {
+        private final int limit;
+        volatile int pulled;
+        volatile int hasNextCalls;
+        int failAt = -1;
+        volatile boolean closed;
+
+        CountingIterator(int limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public boolean hasNext() {
+            hasNextCalls++;
+            return pulled < limit;
+        }
+
+        @Override
+        public Integer next() {
+            if (pulled == failAt) {
+                throw new IllegalStateException("broken");
+            }
+            return pulled++;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
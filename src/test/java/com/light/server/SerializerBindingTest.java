@@ -0,0 +1,91 @@
+package com.light.server;
+
+import com.light.common.MethodSignature;
+import com.light.common.Request;
+import com.light.common.Response;
+import com.light.serializer.CompactSerializer;
+import com.light.serializer.JavaSerializer;
+import com.light.serializer.Serializer;
+import com.light.serializer.SerializerRegistry;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * requests of a interface bound to a serializer must use that one, other interfaces accept the enabled serializers
+ *
+ * @author lihb
+ */
+public class SerializerBindingTest {
+    private static final int BOUND_ID = 1;
+    private static final int UNBOUND_ID = 2;
+
+    private final Serializer compact = new CompactSerializer();
+    private final Serializer java = new JavaSerializer();
+    private EmbeddedChannel channel;
+
+    public interface Echo {
+        String echo(String value);
+    }
+
+    @Before
+    public void setUp() {
+        DispatchTable dispatchTable = new DispatchTable();
+        Echo instance = value -> value + "!";
+        dispatchTable.register(BOUND_ID, Echo.class, instance, java);
+        dispatchTable.register(UNBOUND_ID, Echo.class, instance, null);
+        DispatchExecutors executors = new DispatchExecutors(DispatchMode.EVENT_LOOP, Collections.emptyMap(), null,
+                Collections.emptyMap(), Collections.emptyMap(), 1, 1);
+        channel = new EmbeddedChannel(new RequestDispatchHandler(dispatchTable, new SerializerRegistry(), executors, null));
+    }
+
+    @Test
+    public void boundInterfaceAcceptsItsSerializer() throws Exception {
+        Response response = call(BOUND_ID, java);
+        assertEquals(Response.STATUS_OK, response.getStatus());
+        assertEquals("hi!", java.deserialize(response.getBody(), String.class));
+    }
+
+    @Test
+    public void boundInterfaceRejectsOtherSerializers() {
+        Response response = call(BOUND_ID, compact);
+        assertEquals(Response.STATUS_ERROR, response.getStatus());
+        assertEquals("remote call interface 1 accepts serializer 3 only, not 1", new String(response.getBody(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void unboundInterfaceAcceptsEnabledSerializers() throws Exception {
+        Response response = call(UNBOUND_ID, compact);
+        assertEquals(Response.STATUS_OK, response.getStatus());
+        assertEquals("hi!", compact.deserialize(response.getBody(), String.class));
+    }
+
+    @Test
+    public void unboundInterfaceRejectsSerializerOnlyBoundToAnother() {
+        Response response = call(UNBOUND_ID, java);
+        assertEquals(Response.STATUS_ERROR, response.getStatus());
+        assertEquals("serializer 3 is not enabled", new String(response.getBody(), StandardCharsets.UTF_8));
+    }
+
+    private Response call(int interfaceId, Serializer serializer) {
+        Request request = new Request();
+        request.setMsgId(1);
+        request.setRemoteCallInterfaceId(interfaceId);
+        request.setMethodId(MethodSignature.resolve(Echo.class, interfaceId).values().iterator().next().getMethodId());
+        request.setSerializerId(serializer.getIdentifier());
+        try {
+            request.setArgs(Collections.singletonList(serializer.serialize("hi")));
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+        channel.writeInbound(request);
+        Response response = channel.readOutbound();
+        assertNotNull(response);
+        return response;
+    }
+}
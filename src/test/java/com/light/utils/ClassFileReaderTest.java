@@ -0,0 +1,122 @@
+package com.light.utils;
+
+import com.light.common.Remote;
+import com.light.serializer.CompactSerializer;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * annotations {@code ClassFileReader} finds in class files compiled from the fixtures below
+ *
+ * @author lihb
+ */
+public class ClassFileReaderTest {
+    private static final String REMOTE = "Lcom/light/common/Remote;";
+
+    @Test
+    public void annotatedInterfaceIsFound() throws IOException {
+        assertTrue(ClassFileReader.isAnnotatedInterface(bytesOf(AnnotatedInterface.class), REMOTE));
+    }
+
+    @Test
+    public void annotationAfterOneWithElementValuesIsFound() throws IOException {
+        assertTrue(ClassFileReader.isAnnotatedInterface(bytesOf(MarkedInterface.class), REMOTE));
+        assertTrue(ClassFileReader.isAnnotatedInterface(bytesOf(MarkedInterface.class), "Lcom/light/utils/ClassFileReaderTest$Marker;"));
+    }
+
+    @Test
+    public void interfaceWithoutTheAnnotationIsSkipped() throws IOException {
+        assertFalse(ClassFileReader.isAnnotatedInterface(bytesOf(PlainInterface.class), REMOTE));
+        assertFalse(ClassFileReader.isAnnotatedInterface(bytesOf(AnnotatedInterface.class), "Lcom/light/common/Instance;"));
+        // a descriptor sharing a prefix with the present one
+        assertFalse(ClassFileReader.isAnnotatedInterface(bytesOf(AnnotatedInterface.class), "Lcom/light/common/Remote"));
+    }
+
+    @Test
+    public void annotatedClassAndAnnotationTypeAreSkipped() throws IOException {
+        assertFalse(ClassFileReader.isAnnotatedInterface(bytesOf(AnnotatedClass.class), REMOTE));
+        assertFalse(ClassFileReader.isAnnotatedInterface(bytesOf(AnnotatedAnnotation.class), REMOTE));
+    }
+
+    @Test
+    public void invalidBytesAreSkipped() throws IOException {
+        assertFalse(ClassFileReader.isAnnotatedInterface(new byte[0], REMOTE));
+        assertFalse(ClassFileReader.isAnnotatedInterface("not a class file".getBytes(), REMOTE));
+        byte[] bytes = bytesOf(AnnotatedInterface.class);
+        // cut anywhere, a class file is read without throwing
+        for (int length = 0; length < bytes.length; length++) {
+            ClassFileReader.isAnnotatedInterface(Arrays.copyOf(bytes, length), REMOTE);
+        }
+        assertFalse(ClassFileReader.isAnnotatedInterface(Arrays.copyOf(bytes, 10), REMOTE));
+        assertFalse(ClassFileReader.isAnnotatedInterface(Arrays.copyOf(bytes, bytes.length / 4), REMOTE));
+        // an unknown constant pool tag right after the header
+        bytes[10] = 99;
+        assertFalse(ClassFileReader.isAnnotatedInterface(bytes, REMOTE));
+    }
+
+    private static byte[] bytesOf(Class<?> type) throws IOException {
+        String name = type.getName();
+        try (InputStream in = type.getResourceAsStream(name.substring(name.lastIndexOf('.') + 1) + ".class")) {
+            assertNotNull(in);
+            return in.readAllBytes();
+        }
+    }
+
+    /**
+     * carries constants of every width, fields, methods and a nested annotation before the one looked for
+     */
+    @Remote(identifier = 1, serializer = CompactSerializer.class)
+    interface AnnotatedInterface {
+        long LONG = Long.MAX_VALUE - 1;
+        double DOUBLE = 0.1;
+        float FLOAT = 0.1f;
+        int INT = 123456789;
+        String STRING = "constant";
+
+        String echo(String value);
+
+        default int twice(int value) {
+            return value * 2;
+        }
+    }
+
+    @Retention(RetentionPolicy.RUNTIME)
+    @interface Marker {
+        String name();
+
+        int[] values();
+
+        ElementType kind();
+
+        Class<?> type();
+
+        Retention nested();
+    }
+
+    @Marker(name = "marked", values = {1, 2, 3}, kind = ElementType.TYPE, type = String.class,
+            nested = @Retention(RetentionPolicy.CLASS))
+    @Remote(identifier = 2)
+    interface MarkedInterface {
+        void ping();
+    }
+
+    interface PlainInterface {
+        void ping();
+    }
+
+    @Remote(identifier = 3)
+    static class AnnotatedClass {
+    }
+
+    @Remote(identifier = 4)
+    @interface AnnotatedAnnotation {
+    }
+}